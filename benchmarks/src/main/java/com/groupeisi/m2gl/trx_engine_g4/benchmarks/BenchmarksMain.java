@@ -0,0 +1,26 @@
+package com.groupeisi.m2gl.trx_engine_g4.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entree du jar de benchmarks : memes options que org.openjdk.jmh.Main (filtres, -f, -wi, ...),
+ * avec le profileur d'allocation (gc) toujours actif pour mesurer les octets alloues par operation
+ * (gc.alloc.rate.norm) en plus des ops/s.
+ */
+public final class BenchmarksMain {
+
+    private BenchmarksMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
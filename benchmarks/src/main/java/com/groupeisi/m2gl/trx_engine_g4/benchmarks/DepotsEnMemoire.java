@@ -0,0 +1,46 @@
+package com.groupeisi.m2gl.trx_engine_g4.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Doublures en memoire des repositories Spring Data : un proxy qui ne repond qu'aux methodes fournies
+ * (par nom) et echoue sur toute autre. Le cout du proxy est constant d'une execution a l'autre :
+ * il ne fausse pas la comparaison entre deux versions du code mesure.
+ */
+final class DepotsEnMemoire<T> {
+
+    private final Class<T> type;
+    private final Map<String, Function<Object[], Object>> methodes = new HashMap<>();
+
+    private DepotsEnMemoire(Class<T> type) {
+        this.type = type;
+    }
+
+    static <T> DepotsEnMemoire<T> pour(Class<T> type) {
+        return new DepotsEnMemoire<>(type);
+    }
+
+    DepotsEnMemoire<T> avec(String methode, Function<Object[], Object> implementation) {
+        methodes.put(methode, implementation);
+        return this;
+    }
+
+    T creer() {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, methode, args) -> {
+            Function<Object[], Object> implementation = methodes.get(methode.getName());
+            if (implementation != null) {
+                return implementation.apply(args);
+            }
+            return switch (methode.getName()) {
+                case "toString" -> type.getSimpleName() + " en memoire";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(
+                        type.getSimpleName() + "." + methode.getName() + " n'est pas simule");
+            };
+        }));
+    }
+}
@@ -0,0 +1,69 @@
+package com.groupeisi.m2gl.trx_engine_g4.benchmarks;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import com.groupeisi.m2gl.trx_engine_g4.entities.User;
+import com.groupeisi.m2gl.trx_engine_g4.service.JournalService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Donnees identiques pour les deux variantes (doublures en memoire, base embarquee) : utilisateurs avec compte
+ * actif et solde large (aucun transfert ne echoue pour solde insuffisant), et un historique de transferts
+ * croises tire avec une graine fixe.
+ */
+final class JeuDeDonnees {
+
+    static final int COMPTES = 1_000;
+    static final int TRANSFERTS_HISTORIQUE = 25_000;
+    static final long SOLDE_INITIAL = 1_000_000_000_000L;
+
+    final List<User> utilisateurs = new ArrayList<>(COMPTES);
+    final List<EcritureJournal> ecritures = new ArrayList<>(TRANSFERTS_HISTORIQUE * 2);
+
+    JeuDeDonnees() {
+        Random random = new Random(42);
+        for (int i = 0; i < COMPTES; i++) {
+            Compte compte = new Compte();
+            compte.setNumCompte(new UUID(0, i + 1L));
+            compte.setSolde(SOLDE_INITIAL);
+            compte.setTypeCompte("CLIENT");
+            compte.setStatus("ENABLE");
+            compte.setDateCreation(LocalDate.of(2024, 1, 1));
+
+            User utilisateur = new User();
+            utilisateur.setNomUtilisateur("client" + i);
+            utilisateur.setPrenom("Prenom" + i);
+            utilisateur.setNom("Nom" + i);
+            utilisateur.setTelephone(String.format("+2217%08d", i));
+            utilisateur.setRoleName("user");
+            utilisateur.setKeycloakId(new UUID(1, i + 1L).toString());
+            utilisateur.setCompte(compte);
+            utilisateurs.add(utilisateur);
+        }
+
+        LocalDateTime date = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < TRANSFERTS_HISTORIQUE; i++) {
+            UUID emetteur = numCompte(random.nextInt(COMPTES));
+            UUID recepteur = numCompte((random.nextInt(COMPTES - 1) + 1 + indexDe(emetteur)) % COMPTES);
+            ecritures.addAll(JournalService.ecrituresTransfert(emetteur, recepteur, 1 + random.nextInt(10_000), date.plusSeconds(i)));
+        }
+    }
+
+    UUID numCompte(int index) {
+        return utilisateurs.get(index).getCompte().getNumCompte();
+    }
+
+    String telephone(int index) {
+        return utilisateurs.get(index).getTelephone();
+    }
+
+    private static int indexDe(UUID numCompte) {
+        return (int) numCompte.getLeastSignificantBits() - 1;
+    }
+}
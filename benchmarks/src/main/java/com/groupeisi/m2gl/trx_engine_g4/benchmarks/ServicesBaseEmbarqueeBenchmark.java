@@ -0,0 +1,80 @@
+package com.groupeisi.m2gl.trx_engine_g4.benchmarks;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
+import com.groupeisi.m2gl.trx_engine_g4.TrxEngineG4Application;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.service.CompteService;
+import com.groupeisi.m2gl.trx_engine_g4.service.TransfertService;
+import com.groupeisi.m2gl.trx_engine_g4.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memes chemins chauds que ServicesEnMemoireBenchmark, sur l'application complete (profil jmh : base H2 embarquee
+ * en mode PostgreSQL, JPA, transactions, caches) : cout de bout en bout hors reseau et hors HTTP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServicesBaseEmbarqueeBenchmark {
+
+    private ConfigurableApplicationContext contexte;
+    private JeuDeDonnees donnees;
+    private TransfertService transfertService;
+    private CompteService compteService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        // Contexte servlet complet (la configuration de securite en a besoin), sur des ports libres
+        contexte = new SpringApplicationBuilder(TrxEngineG4Application.class)
+                .profiles("jmh")
+                .run("--server.port=0", "--management.server.port=0");
+        donnees = new JeuDeDonnees();
+        contexte.getBean(UserRepository.class).saveAll(donnees.utilisateurs);
+        contexte.getBean(EcritureJournalRepository.class).saveAll(donnees.ecritures);
+
+        transfertService = contexte.getBean(TransfertService.class);
+        compteService = contexte.getBean(CompteService.class);
+        userService = contexte.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    @Benchmark
+    public ApiResponse effectuerTransfert() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int emetteur = random.nextInt(JeuDeDonnees.COMPTES);
+        int recepteur = (emetteur + 1 + random.nextInt(JeuDeDonnees.COMPTES - 1)) % JeuDeDonnees.COMPTES;
+        return transfertService.effectuerTransfert(
+                new TransfertDto(1L + random.nextInt(1_000), donnees.numCompte(emetteur), donnees.numCompte(recepteur)));
+    }
+
+    @Benchmark
+    public ApiResponse getTransfertsByUser() {
+        return transfertService.getTransfertsByUser(donnees.telephone(ThreadLocalRandom.current().nextInt(JeuDeDonnees.COMPTES)),
+                null, TransfertService.TAILLE_PAGE_PAR_DEFAUT);
+    }
+
+    @Benchmark
+    public ApiResponse getCompteByPhone() {
+        return compteService.getCompteByPhone(donnees.telephone(ThreadLocalRandom.current().nextInt(JeuDeDonnees.COMPTES)));
+    }
+
+    @Benchmark
+    public ApiResponse getUserByPhone() {
+        return userService.getUserByPhone(donnees.telephone(ThreadLocalRandom.current().nextInt(JeuDeDonnees.COMPTES)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.groupeisi.m2gl.trx_engine_g4.benchmarks;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CleIdempotenceRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.MessageOutboxRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import com.groupeisi.m2gl.trx_engine_g4.entities.User;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.ledger.LedgerEngine;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
+import com.groupeisi.m2gl.trx_engine_g4.service.CompteService;
+import com.groupeisi.m2gl.trx_engine_g4.service.ContrepartieCache;
+import com.groupeisi.m2gl.trx_engine_g4.service.IdempotenceService;
+import com.groupeisi.m2gl.trx_engine_g4.service.JournalService;
+import com.groupeisi.m2gl.trx_engine_g4.service.KeycloakService;
+import com.groupeisi.m2gl.trx_engine_g4.service.MetriquesTransfert;
+import com.groupeisi.m2gl.trx_engine_g4.service.TransfertService;
+import com.groupeisi.m2gl.trx_engine_g4.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Services reels sur des repositories en memoire : mesure le cout propre au code Java des chemins chauds
+ * (validation, construction des reponses, ModelMapper, caches), sans la base de donnees.
+ * A comparer avec ServicesBaseEmbarqueeBenchmark pour isoler la part de la base.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServicesEnMemoireBenchmark {
+
+    private JeuDeDonnees donnees;
+    private TransfertService transfertService;
+    private CompteService compteService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        donnees = new JeuDeDonnees();
+
+        Map<UUID, Compte> comptes = new HashMap<>();
+        Map<String, User> parTelephone = new HashMap<>();
+        Map<UUID, ContrepartieDto> contreparties = new HashMap<>();
+        for (User utilisateur : donnees.utilisateurs) {
+            Compte compte = utilisateur.getCompte();
+            comptes.put(compte.getNumCompte(), compte);
+            parTelephone.put(utilisateur.getTelephone(), utilisateur);
+            contreparties.put(compte.getNumCompte(), new ContrepartieDto(compte.getNumCompte(), utilisateur.getPrenom(),
+                    utilisateur.getNom(), utilisateur.getNomUtilisateur(), utilisateur.getTelephone()));
+        }
+        // Historique par compte, du plus recent au plus ancien (ordre de l'index (num_compte, id))
+        Map<UUID, List<EcritureJournal>> historiques = new HashMap<>();
+        for (int i = 0; i < donnees.ecritures.size(); i++) {
+            EcritureJournal ecriture = donnees.ecritures.get(i);
+            ecriture.setId(i + 1L);
+            historiques.computeIfAbsent(ecriture.getNumCompte(), k -> new ArrayList<>()).add(0, ecriture);
+        }
+
+        CompteRepository compteRepository = DepotsEnMemoire.pour(CompteRepository.class)
+                .avec("findByNumCompte", args -> Optional.ofNullable(comptes.get((UUID) args[0])))
+                .avec("findByNumCompteForUpdate", args -> Optional.ofNullable(comptes.get((UUID) args[0])))
+                .avec("findSoldeCourant", args -> Optional.ofNullable(comptes.get((UUID) args[0])).map(Compte::getSolde))
+                .creer();
+        EcritureJournalRepository ecritureJournalRepository = DepotsEnMemoire.pour(EcritureJournalRepository.class)
+                .avec("saveAll", args -> args[0])
+                .avec("findByNumCompteAvant", args -> {
+                    long curseur = (Long) args[1];
+                    return historiques.getOrDefault((UUID) args[0], List.of()).stream()
+                            .filter(e -> e.getId() < curseur)
+                            .limit(((Pageable) args[2]).getPageSize())
+                            .collect(Collectors.toList());
+                })
+                .creer();
+        UserRepository userRepository = DepotsEnMemoire.pour(UserRepository.class)
+                .avec("findByTelephone", args -> Optional.ofNullable(parTelephone.get((String) args[0])))
+                .avec("findContrepartiesByNumCompteIn", args -> ((Collection<?>) args[0]).stream()
+                        .map(contreparties::get).filter(Objects::nonNull).collect(Collectors.toList()))
+                .creer();
+        MessageOutboxRepository messageOutboxRepository = DepotsEnMemoire.pour(MessageOutboxRepository.class)
+                .avec("save", args -> args[0])
+                .creer();
+        CleIdempotenceRepository cleIdempotenceRepository = DepotsEnMemoire.pour(CleIdempotenceRepository.class).creer();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionsFactices transactions = new TransactionsFactices();
+        LedgerEngine ledgerDesactive = new LedgerEngine(compteRepository, null, null, false, 0, 0, 0);
+        ContrepartieCache contrepartieCache = new ContrepartieCache(userRepository, meterRegistry, 10_000, Duration.ofMinutes(10));
+        OutboxService outboxService = new OutboxService(messageOutboxRepository);
+
+        JournalService journalService = new JournalService(ecritureJournalRepository, compteRepository);
+
+        transfertService = new TransfertService(compteRepository, ecritureJournalRepository, userRepository, ledgerDesactive,
+                new TransactionTemplate(transactions), contrepartieCache,
+                new IdempotenceService(cleIdempotenceRepository, meterRegistry, Duration.ofHours(24), Duration.ofMinutes(5), 100_000),
+                journalService, outboxService, new MetriquesTransfert(meterRegistry));
+        compteService = new CompteService(compteRepository, userRepository, outboxService, journalService, ledgerDesactive,
+                meterRegistry);
+        // Keycloak n'est pas sollicite par getUserByPhone
+        KeycloakService keycloakService = new KeycloakService(null, "benchmark", Duration.ofMinutes(5), Duration.ofMinutes(30), meterRegistry);
+        userService = new UserService(transactions, keycloakService, userRepository, new ModelMapper(), compteService,
+                contrepartieCache, Runnable::run);
+    }
+
+    @Benchmark
+    public ApiResponse effectuerTransfert() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int emetteur = random.nextInt(JeuDeDonnees.COMPTES);
+        int recepteur = (emetteur + 1 + random.nextInt(JeuDeDonnees.COMPTES - 1)) % JeuDeDonnees.COMPTES;
+        return transfertService.effectuerTransfert(
+                new TransfertDto(1L + random.nextInt(1_000), donnees.numCompte(emetteur), donnees.numCompte(recepteur)));
+    }
+
+    @Benchmark
+    public ApiResponse getTransfertsByUser() {
+        return transfertService.getTransfertsByUser(donnees.telephone(ThreadLocalRandom.current().nextInt(JeuDeDonnees.COMPTES)),
+                null, TransfertService.TAILLE_PAGE_PAR_DEFAUT);
+    }
+
+    @Benchmark
+    public ApiResponse getCompteByPhone() {
+        return compteService.getCompteByPhone(donnees.telephone(ThreadLocalRandom.current().nextInt(JeuDeDonnees.COMPTES)));
+    }
+
+    @Benchmark
+    public ApiResponse getUserByPhone() {
+        return userService.getUserByPhone(donnees.telephone(ThreadLocalRandom.current().nextInt(JeuDeDonnees.COMPTES)));
+    }
+}
@@ -0,0 +1,29 @@
+package com.groupeisi.m2gl.trx_engine_g4.benchmarks;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Gestionnaire de transactions sans ressource : les TransactionTemplate des services s'executent
+ * (synchronisations comprises) sans base de donnees derriere.
+ */
+class TransactionsFactices extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+}
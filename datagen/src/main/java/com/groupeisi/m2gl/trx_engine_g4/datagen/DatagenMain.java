@@ -0,0 +1,201 @@
+package com.groupeisi.m2gl.trx_engine_g4.datagen;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generateur de donnees synthetiques a volume de production : utilisateurs (app_user), comptes (compte)
+ * et historique des transferts (ecriture_journal, source de verite des soldes).
+ *
+ * Ordre : journal d'abord (en parallele, index du journal supprime pendant le chargement puis recree,
+ * ecritures deja marquees compactee), puis comptes avec leur solde final en snapshot (le compacteur
+ * n'a rien a rattraper), puis utilisateurs. Les identifiants sont fixes par le generateur et les sequences
+ * d'identite repositionnees a la fin.
+ */
+public final class DatagenMain {
+
+    private static final String[] PRENOMS = {"Amadou", "Fatou", "Moussa", "Aminata", "Ibrahima", "Awa", "Cheikh", "Mariama",
+            "Ousmane", "Khady", "Abdoulaye", "Ndeye", "Mamadou", "Aissatou", "Modou", "Coumba", "Babacar", "Astou", "Pape", "Seynabou"};
+    private static final String[] NOMS = {"Diop", "Ndiaye", "Fall", "Sow", "Gueye", "Diallo", "Ba", "Sarr", "Faye", "Cisse",
+            "Mbaye", "Diouf", "Ka", "Sy", "Kane", "Thiam", "Niang", "Seck", "Dieng", "Toure"};
+
+    private static final String INDEX_JOURNAL = "idx_ecriture_compte_id";
+
+    private DatagenMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.equals("aide") || arg.equals("--aide")) {
+                System.out.println("Parametres (cle=valeur) et valeurs par defaut :");
+                ParametresGeneration.DEFAUTS.forEach((cle, valeur) -> System.out.println("  " + cle + "=" + valeur));
+                return;
+            }
+        }
+        ParametresGeneration parametres = ParametresGeneration.depuis(args);
+        long debut = System.nanoTime();
+
+        // Un seul generateur racine : population, puis une graine par bloc de transferts, puis comptes et utilisateurs
+        SplittableRandom racine = new SplittableRandom(parametres.graine());
+        Population population = new Population(parametres, racine.split());
+        GenerateurTransferts generateur = new GenerateurTransferts(parametres, population);
+        long[] grainesBlocs = new long[generateur.blocs()];
+        for (int i = 0; i < grainesBlocs.length; i++) {
+            grainesBlocs[i] = racine.nextLong();
+        }
+        SplittableRandom randomComptes = racine.split();
+
+        try (Connection connexion = connecter(parametres)) {
+            preparer(connexion, parametres);
+
+            long[] net = ecrireJournal(parametres, generateur, grainesBlocs);
+            etape("journal", debut, 2 * parametres.transferts());
+
+            ecrireComptesEtUtilisateurs(connexion, parametres, population, net, randomComptes);
+            etape("comptes et utilisateurs", debut, 2L * parametres.utilisateurs());
+
+            finaliser(connexion, parametres);
+            etape("index et statistiques", debut, 0);
+        }
+        System.out.printf(Locale.ROOT, "Termine : %d utilisateurs (%d marchands), %d transferts en %.1f s%n",
+                parametres.utilisateurs(), parametres.marchands(), parametres.transferts(), (System.nanoTime() - debut) / 1e9);
+    }
+
+    private static Connection connecter(ParametresGeneration parametres) throws SQLException {
+        Connection connexion = DriverManager.getConnection(parametres.url(), parametres.utilisateur(), parametres.motDePasse());
+        connexion.setAutoCommit(true);
+        if (estPostgres(connexion)) {
+            try (Statement statement = connexion.createStatement()) {
+                // Donnees regenerables : pas d'attente du flush du WAL a chaque commit
+                statement.execute("SET synchronous_commit = off");
+            }
+        }
+        return connexion;
+    }
+
+    private static boolean estPostgres(Connection connexion) throws SQLException {
+        return connexion.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres");
+    }
+
+    private static void preparer(Connection connexion, ParametresGeneration parametres) throws SQLException {
+        try (Statement statement = connexion.createStatement()) {
+            if (parametres.vider()) {
+                if (estPostgres(connexion)) {
+                    statement.execute("TRUNCATE app_user, compte, ecriture_journal");
+                } else {
+                    statement.execute("DELETE FROM app_user");
+                    statement.execute("DELETE FROM compte");
+                    statement.execute("DELETE FROM ecriture_journal");
+                }
+            } else {
+                for (String table : List.of("app_user", "compte", "ecriture_journal")) {
+                    try (ResultSet resultat = statement.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+                        if (resultat.next()) {
+                            throw new IllegalStateException("La table " + table + " contient deja des lignes (relancer avec vider=true)");
+                        }
+                    }
+                }
+            }
+            // Chargement sans maintenance d'index : l'index est recree en une passe a la fin
+            statement.execute("DROP INDEX IF EXISTS " + INDEX_JOURNAL);
+        }
+    }
+
+    /**
+     * Blocs de transferts repartis sur les threads, une connexion (et un flux COPY par bloc) par thread.
+     * Chaque thread cumule les variations de solde dans son propre tableau ; les tableaux sont additionnes a la fin.
+     */
+    private static long[] ecrireJournal(ParametresGeneration parametres, GenerateurTransferts generateur,
+                                        long[] grainesBlocs) throws Exception {
+        int threads = Math.min(parametres.threads(), Math.max(1, grainesBlocs.length));
+        AtomicInteger prochainBloc = new AtomicInteger();
+        AtomicInteger blocsEcrits = new AtomicInteger();
+        ExecutorService executeur = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> resultats = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                resultats.add(executeur.submit(() -> {
+                    long[] net = new long[parametres.utilisateurs()];
+                    try (Connection connexion = connecter(parametres)) {
+                        for (int bloc = prochainBloc.getAndIncrement(); bloc < grainesBlocs.length; bloc = prochainBloc.getAndIncrement()) {
+                            generateur.ecrireBloc(bloc, grainesBlocs[bloc], connexion, net);
+                            System.out.printf("  bloc de transferts %d/%d ecrit%n", blocsEcrits.incrementAndGet(), grainesBlocs.length);
+                        }
+                    }
+                    return net;
+                }));
+            }
+            long[] total = new long[parametres.utilisateurs()];
+            for (Future<long[]> resultat : resultats) {
+                long[] net = resultat.get();
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += net[i];
+                }
+            }
+            return total;
+        } finally {
+            executeur.shutdownNow();
+        }
+    }
+
+    /**
+     * Solde snapshot = dotation initiale + variation nette ; la dotation d'un client est relevee si besoin
+     * pour qu'aucun solde ne soit negatif. Les marchands partent de zero.
+     */
+    private static void ecrireComptesEtUtilisateurs(Connection connexion, ParametresGeneration parametres, Population population,
+                                                    long[] net, SplittableRandom random) throws SQLException {
+        LocalDate debut = parametres.debut();
+
+        try (SortieTable comptes = SortieTable.ouvrir(connexion, "compte",
+                "id", "num_compte", "solde", "code_marchant", "type_compte", "date_creation", "status")) {
+            for (int i = 0; i < population.total(); i++) {
+                boolean marchand = population.estMarchand(i);
+                long dotation = marchand ? 0 : GenerateurTransferts.montant(random, 50_000) + Math.max(0, -net[i]);
+                comptes.ligne(i + 1, population.numCompte(i), dotation + net[i],
+                        marchand ? 100_000 + population.rangMarchand(i) : null,
+                        marchand ? "MARCHAND" : "CLIENT",
+                        debut.minusDays(random.nextInt(730)),
+                        "ENABLE");
+            }
+        }
+
+        try (SortieTable utilisateurs = SortieTable.ouvrir(connexion, "app_user",
+                "id", "keycloak_id", "nom", "prenom", "nom_utilisateur", "telephone", "nin", "role_name", "compte_id")) {
+            for (int i = 0; i < population.total(); i++) {
+                String prenom = PRENOMS[random.nextInt(PRENOMS.length)];
+                String nom = NOMS[random.nextInt(NOMS.length)];
+                long nin = 1_000_000_000_000L + random.nextLong(9_000_000_000_000L);
+                utilisateurs.ligne(i + 1, population.keycloakId(i).toString(), nom, prenom,
+                        (prenom + "." + nom).toLowerCase(Locale.ROOT) + i, population.telephone(i), nin, "user", i + 1);
+            }
+        }
+    }
+
+    private static void finaliser(Connection connexion, ParametresGeneration parametres) throws SQLException {
+        try (Statement statement = connexion.createStatement()) {
+            statement.execute("CREATE INDEX IF NOT EXISTS " + INDEX_JOURNAL + " ON ecriture_journal (num_compte, id)");
+            statement.execute("ALTER TABLE compte ALTER COLUMN id RESTART WITH " + (parametres.utilisateurs() + 1));
+            statement.execute("ALTER TABLE app_user ALTER COLUMN id RESTART WITH " + (parametres.utilisateurs() + 1));
+            statement.execute("ALTER TABLE ecriture_journal ALTER COLUMN id RESTART WITH " + (2 * parametres.transferts() + 1));
+            if (estPostgres(connexion)) {
+                statement.execute("ANALYZE compte, app_user, ecriture_journal");
+            }
+        }
+    }
+
+    private static void etape(String nom, long debut, long lignes) {
+        System.out.printf(Locale.ROOT, "%s : %d lignes, %.1f s depuis le debut%n", nom, lignes, (System.nanoTime() - debut) / 1e9);
+    }
+}
@@ -0,0 +1,102 @@
+package com.groupeisi.m2gl.trx_engine_g4.datagen;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Transferts ecrits dans le journal en partie double (deux ecritures par transfert, comme JournalService).
+ * Les transferts sont decoupes en blocs de taille fixe, chacun avec son propre generateur tire de la graine :
+ * le contenu d'un bloc ne depend ni du thread qui l'ecrit ni de l'ordre d'execution des blocs.
+ *
+ * Distributions :
+ * - emetteur : client tire selon une loi de Zipf (quelques clients tres actifs, longue traine de clients rares) ;
+ * - paiement marchand (part-paiements-marchands) : marchand tire selon une loi de Zipf plus concentree
+ *   (marchands chauds), montant log-normal de mediane 5 000 FCFA ;
+ * - sinon transfert entre particuliers : beneficiaire tire selon une loi de Zipf decalee de la moitie des rangs
+ *   (les gros emetteurs ne sont pas aussi les gros beneficiaires), montant log-normal de mediane 15 000 FCFA.
+ */
+final class GenerateurTransferts {
+
+    static final int TAILLE_BLOC = 1_000_000;
+
+    private static final long MONTANT_MIN = 100;
+    private static final long MONTANT_MAX = 2_000_000;
+
+    private final Population population;
+    private final long transferts;
+    private final int clients;
+    private final double partPaiementsMarchands;
+    private final Zipf emetteurs;
+    private final Zipf marchands;
+    private final Zipf beneficiaires;
+    private final LocalDateTime debut;
+    private final long pasMicros;
+
+    GenerateurTransferts(ParametresGeneration parametres, Population population) {
+        this.population = population;
+        this.transferts = parametres.transferts();
+        this.clients = parametres.clients();
+        this.partPaiementsMarchands = parametres.partPaiementsMarchands();
+        this.emetteurs = new Zipf(parametres.clients(), parametres.exposantEmetteurs());
+        this.marchands = new Zipf(parametres.marchands(), parametres.exposantMarchands());
+        this.beneficiaires = new Zipf(parametres.clients(), parametres.exposantBeneficiaires());
+        this.debut = parametres.debut().atStartOfDay();
+        // Transferts repartis regulierement sur la periode, dans l'ordre des ids (l'historique pagine par id reste chronologique)
+        this.pasMicros = ChronoUnit.MICROS.between(debut, debut.plusDays(parametres.jours())) / Math.max(1, transferts);
+    }
+
+    int blocs() {
+        return (int) ((transferts + TAILLE_BLOC - 1) / TAILLE_BLOC);
+    }
+
+    /**
+     * Ecrit le bloc et cumule dans net la variation de solde de chaque compte (index de la population).
+     * Le transfert t porte les ecritures d'id 2t + 1 (debit) et 2t + 2 (credit).
+     */
+    void ecrireBloc(int bloc, long graineBloc, Connection connexion, long[] net) throws SQLException {
+        SplittableRandom random = new SplittableRandom(graineBloc);
+        long premier = (long) bloc * TAILLE_BLOC;
+        long dernier = Math.min(premier + TAILLE_BLOC, transferts);
+
+        try (SortieTable journal = SortieTable.ouvrir(connexion, "ecriture_journal",
+                "id", "num_compte", "contrepartie", "montant", "date_ecriture", "reference_operation", "compactee")) {
+            for (long t = premier; t < dernier; t++) {
+                int emetteur = population.client(emetteurs.tirer(random));
+                int recepteur;
+                long montant;
+                if (random.nextDouble() < partPaiementsMarchands) {
+                    recepteur = population.marchand(marchands.tirer(random));
+                    montant = montant(random, 5_000);
+                } else {
+                    do {
+                        recepteur = population.client((beneficiaires.tirer(random) + clients / 2) % clients);
+                    } while (recepteur == emetteur);
+                    montant = montant(random, 15_000);
+                }
+
+                LocalDateTime date = debut.plus(t * pasMicros, ChronoUnit.MICROS);
+                UUID reference = new UUID(random.nextLong(), random.nextLong());
+                UUID compteEmetteur = population.numCompte(emetteur);
+                UUID compteRecepteur = population.numCompte(recepteur);
+                journal.ligne(2 * t + 1, compteEmetteur, compteRecepteur, -montant, date, reference, true);
+                journal.ligne(2 * t + 2, compteRecepteur, compteEmetteur, montant, date, reference, true);
+
+                net[emetteur] -= montant;
+                net[recepteur] += montant;
+            }
+        }
+    }
+
+    /**
+     * Log-normal de mediane donnee (sigma 1), arrondi a 5 FCFA et borne.
+     */
+    static long montant(SplittableRandom random, long mediane) {
+        double brut = mediane * Math.exp(random.nextGaussian());
+        long arrondi = Math.round(brut / 5) * 5;
+        return Math.max(MONTANT_MIN, Math.min(MONTANT_MAX, arrondi));
+    }
+}
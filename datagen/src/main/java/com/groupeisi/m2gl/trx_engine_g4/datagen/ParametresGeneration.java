@@ -0,0 +1,107 @@
+package com.groupeisi.m2gl.trx_engine_g4.datagen;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parametres de generation, passes en arguments cle=valeur (--cle=valeur accepte).
+ */
+record ParametresGeneration(
+        String url,
+        String utilisateur,
+        String motDePasse,
+        long graine,
+        int utilisateurs,
+        double partMarchands,
+        long transferts,
+        double partPaiementsMarchands,
+        double exposantEmetteurs,
+        double exposantMarchands,
+        double exposantBeneficiaires,
+        LocalDate debut,
+        int jours,
+        int threads,
+        boolean vider) {
+
+    static final Map<String, String> DEFAUTS = new LinkedHashMap<>();
+
+    static {
+        DEFAUTS.put("url", "jdbc:postgresql://localhost:5432/trx_engine_g4");
+        DEFAUTS.put("utilisateur", "postgres");
+        DEFAUTS.put("mot-de-passe", "postgres");
+        DEFAUTS.put("graine", "42");
+        // Population : clients et marchands (chaque utilisateur a un compte)
+        DEFAUTS.put("utilisateurs", "1000000");
+        DEFAUTS.put("part-marchands", "0.005");
+        // Transferts : part des paiements vers un marchand, le reste entre particuliers
+        DEFAUTS.put("transferts", "50000000");
+        DEFAUTS.put("part-paiements-marchands", "0.6");
+        // Exposants des lois de Zipf : frequence d'emission des clients, popularite des marchands et des beneficiaires
+        DEFAUTS.put("exposant-emetteurs", "1.1");
+        DEFAUTS.put("exposant-marchands", "1.3");
+        DEFAUTS.put("exposant-beneficiaires", "1.0");
+        // Periode couverte par l'historique
+        DEFAUTS.put("debut", "2024-01-01");
+        DEFAUTS.put("jours", "365");
+        DEFAUTS.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        // Vide compte, app_user et ecriture_journal avant de generer (refus sinon si elles contiennent des lignes)
+        DEFAUTS.put("vider", "false");
+    }
+
+    static ParametresGeneration depuis(String[] args) {
+        Map<String, String> valeurs = new HashMap<>(DEFAUTS);
+        for (String arg : args) {
+            String cleValeur = arg.startsWith("--") ? arg.substring(2) : arg;
+            int egal = cleValeur.indexOf('=');
+            String cle = egal < 0 ? cleValeur : cleValeur.substring(0, egal);
+            if (!DEFAUTS.containsKey(cle)) {
+                throw new IllegalArgumentException("Parametre inconnu : '" + cle + "' (parametres : " + DEFAUTS.keySet() + ")");
+            }
+            valeurs.put(cle, egal < 0 ? "true" : cleValeur.substring(egal + 1));
+        }
+
+        ParametresGeneration parametres = new ParametresGeneration(
+                valeurs.get("url"),
+                valeurs.get("utilisateur"),
+                valeurs.get("mot-de-passe"),
+                Long.parseLong(valeurs.get("graine")),
+                Integer.parseInt(valeurs.get("utilisateurs")),
+                Double.parseDouble(valeurs.get("part-marchands")),
+                Long.parseLong(valeurs.get("transferts")),
+                Double.parseDouble(valeurs.get("part-paiements-marchands")),
+                Double.parseDouble(valeurs.get("exposant-emetteurs")),
+                Double.parseDouble(valeurs.get("exposant-marchands")),
+                Double.parseDouble(valeurs.get("exposant-beneficiaires")),
+                LocalDate.parse(valeurs.get("debut")),
+                Integer.parseInt(valeurs.get("jours")),
+                Integer.parseInt(valeurs.get("threads")),
+                Boolean.parseBoolean(valeurs.get("vider")));
+        parametres.valider();
+        return parametres;
+    }
+
+    int marchands() {
+        return (int) Math.max(1, Math.round(utilisateurs * partMarchands));
+    }
+
+    int clients() {
+        return utilisateurs - marchands();
+    }
+
+    private void valider() {
+        if (clients() < 2) {
+            throw new IllegalArgumentException("Il faut au moins deux clients (utilisateurs=" + utilisateurs + ", part-marchands=" + partMarchands + ")");
+        }
+        if (utilisateurs >= 100_000_000) {
+            throw new IllegalArgumentException("Au plus 99 999 999 utilisateurs (numeros de telephone +2217XXXXXXXX)");
+        }
+        if (partPaiementsMarchands < 0 || partPaiementsMarchands > 1) {
+            throw new IllegalArgumentException("part-paiements-marchands doit etre entre 0 et 1");
+        }
+        if (transferts < 0 || jours < 1 || threads < 1) {
+            throw new IllegalArgumentException("transferts, jours et threads doivent etre positifs");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.groupeisi.m2gl.trx_engine_g4.datagen;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Utilisateurs generes, un compte chacun : l'utilisateur d'index i a le compte et la ligne app_user d'id i + 1.
+ * Les rangs de popularite (rang 0 = le plus actif) sont repartis sur les index par une permutation tiree,
+ * pour que les comptes chauds ne soient pas regroupes en tete de table.
+ * Les clients occupent les rangs 0..clients-1 de la permutation, les marchands les suivants.
+ */
+final class Population {
+
+    private final long graine;
+    private final int clients;
+    private final int[] indexParRang;
+    private final int[] rangParIndex;
+
+    Population(ParametresGeneration parametres, SplittableRandom random) {
+        this.graine = parametres.graine();
+        this.clients = parametres.clients();
+        int total = parametres.utilisateurs();
+
+        indexParRang = new int[total];
+        for (int i = 0; i < total; i++) {
+            indexParRang[i] = i;
+        }
+        for (int i = total - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int echange = indexParRang[i];
+            indexParRang[i] = indexParRang[j];
+            indexParRang[j] = echange;
+        }
+
+        rangParIndex = new int[total];
+        for (int rang = 0; rang < total; rang++) {
+            rangParIndex[indexParRang[rang]] = rang;
+        }
+    }
+
+    int total() {
+        return indexParRang.length;
+    }
+
+    int client(int rang) {
+        return indexParRang[rang];
+    }
+
+    int marchand(int rang) {
+        return indexParRang[clients + rang];
+    }
+
+    boolean estMarchand(int index) {
+        return rangParIndex[index] >= clients;
+    }
+
+    /**
+     * Rang de popularite d'un marchand parmi les marchands (0 = le plus paye).
+     */
+    int rangMarchand(int index) {
+        return rangParIndex[index] - clients;
+    }
+
+    /**
+     * Numero de compte (UUID version 4) derive de la graine et de l'index, sans table en memoire.
+     */
+    UUID numCompte(int index) {
+        return uuid(2L * index);
+    }
+
+    UUID keycloakId(int index) {
+        return uuid(2L * index + 1 + (1L << 40));
+    }
+
+    String telephone(int index) {
+        return String.format("+2217%08d", index);
+    }
+
+    private UUID uuid(long n) {
+        long haut = melanger(graine + 2 * n);
+        long bas = melanger(graine + 2 * n + 1);
+        return new UUID((haut & ~0xF000L) | 0x4000L, (bas & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+
+    // Finaliseur de SplitMix64 : bijection sur les long, bien repartie
+    static long melanger(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,118 @@
+package com.groupeisi.m2gl.trx_engine_g4.datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Ecriture en flux des lignes d'une table : COPY ... FROM STDIN (format CSV) sur PostgreSQL,
+ * insertions JDBC par lots sur les autres bases. Les valeurs sont ecrites dans l'ordre des colonnes.
+ */
+abstract class SortieTable implements AutoCloseable {
+
+    abstract void ligne(Object... valeurs) throws SQLException;
+
+    @Override
+    public abstract void close() throws SQLException;
+
+    static SortieTable ouvrir(Connection connexion, String table, String... colonnes) throws SQLException {
+        String liste = String.join(", ", colonnes);
+        if (connexion.isWrapperFor(PGConnection.class)) {
+            CopyIn copie = connexion.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + table + " (" + liste + ") FROM STDIN (FORMAT csv)");
+            return new CopiePostgres(copie);
+        }
+        String marqueurs = String.join(", ", Collections.nCopies(colonnes.length, "?"));
+        return new LotsJdbc(connexion.prepareStatement("INSERT INTO " + table + " (" + liste + ") VALUES (" + marqueurs + ")"));
+    }
+
+    /**
+     * Lignes CSV accumulees dans un tampon, envoyees au serveur par blocs d'environ 1 Mo.
+     */
+    private static final class CopiePostgres extends SortieTable {
+        private static final int TAILLE_TAMPON = 1 << 20;
+
+        private final CopyIn copie;
+        private final StringBuilder tampon = new StringBuilder(TAILLE_TAMPON + 1024);
+
+        private CopiePostgres(CopyIn copie) {
+            this.copie = copie;
+        }
+
+        @Override
+        void ligne(Object... valeurs) throws SQLException {
+            for (int i = 0; i < valeurs.length; i++) {
+                if (i > 0) {
+                    tampon.append(',');
+                }
+                Object valeur = valeurs[i];
+                if (valeur instanceof String texte) {
+                    // Texte toujours entre guillemets : une chaine vide reste distincte de NULL
+                    tampon.append('"').append(texte.replace("\"", "\"\"")).append('"');
+                } else if (valeur != null) {
+                    tampon.append(valeur);
+                }
+            }
+            tampon.append('\n');
+            if (tampon.length() >= TAILLE_TAMPON) {
+                envoyer();
+            }
+        }
+
+        private void envoyer() throws SQLException {
+            byte[] octets = tampon.toString().getBytes(StandardCharsets.UTF_8);
+            copie.writeToCopy(octets, 0, octets.length);
+            tampon.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!copie.isActive()) {
+                return;
+            }
+            if (tampon.length() > 0) {
+                envoyer();
+            }
+            copie.endCopy();
+        }
+    }
+
+    private static final class LotsJdbc extends SortieTable {
+        private static final int TAILLE_LOT = 5_000;
+
+        private final PreparedStatement insertion;
+        private int enAttente;
+
+        private LotsJdbc(PreparedStatement insertion) {
+            this.insertion = insertion;
+        }
+
+        @Override
+        void ligne(Object... valeurs) throws SQLException {
+            for (int i = 0; i < valeurs.length; i++) {
+                insertion.setObject(i + 1, valeurs[i]);
+            }
+            insertion.addBatch();
+            if (++enAttente >= TAILLE_LOT) {
+                insertion.executeBatch();
+                enAttente = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (enAttente > 0) {
+                    insertion.executeBatch();
+                }
+            } finally {
+                insertion.close();
+            }
+        }
+    }
+}
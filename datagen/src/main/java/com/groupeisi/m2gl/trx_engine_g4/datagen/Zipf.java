@@ -0,0 +1,70 @@
+package com.groupeisi.m2gl.trx_engine_g4.datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Loi de Zipf sur les rangs 1..n (probabilite du rang k proportionnelle a 1 / k^exposant), tiree en temps constant
+ * par rejet-inversion (Hormann et Derflinger, 1996) : ni table cumulee ni recherche, quel que soit n.
+ */
+final class Zipf {
+
+    private final int n;
+    private final double exposant;
+    private final double hIntegraleX1;
+    private final double hIntegraleN;
+    private final double s;
+
+    Zipf(int n, double exposant) {
+        if (n < 1 || exposant <= 0) {
+            throw new IllegalArgumentException("Zipf : n >= 1 et exposant > 0 attendus (n=" + n + ", exposant=" + exposant + ")");
+        }
+        this.n = n;
+        this.exposant = exposant;
+        this.hIntegraleX1 = hIntegrale(1.5) - 1d;
+        this.hIntegraleN = hIntegrale(n + 0.5);
+        this.s = 2d - hIntegraleInverse(hIntegrale(2.5) - h(2));
+    }
+
+    /**
+     * Rang tire, de 0 (le plus frequent) a n - 1.
+     */
+    int tirer(SplittableRandom random) {
+        while (true) {
+            double u = hIntegraleN + random.nextDouble() * (hIntegraleX1 - hIntegraleN);
+            double x = hIntegraleInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegrale(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exposant * Math.log(x));
+    }
+
+    private double hIntegrale(double x) {
+        double logX = Math.log(x);
+        return expm1SurX((1d - exposant) * logX) * logX;
+    }
+
+    private double hIntegraleInverse(double x) {
+        double t = Math.max(-1d, x * (1d - exposant));
+        return Math.exp(log1pSurX(t) * x);
+    }
+
+    // log(1 + x) / x, et son developpement limite pres de 0
+    private static double log1pSurX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1 / 3d - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, et son developpement limite pres de 0
+    private static double expm1SurX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3d * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,109 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Donnees initiales du test de charge, tirees avec la graine de l'execution : des clients avec compte actif
+ * et solde large (aucun transfert n'echoue pour solde insuffisant) et un historique de transferts croises.
+ * Insertion par lots JDBC ; une base qui contient deja ces comptes (PostgreSQL conserve) n'est pas resemee.
+ */
+final class DonneesDeCharge {
+
+    static final long SOLDE_INITIAL = 1_000_000_000_000L;
+    private static final int TAILLE_LOT = 1_000;
+
+    private final int comptes;
+
+    private DonneesDeCharge(int comptes) {
+        this.comptes = comptes;
+    }
+
+    static DonneesDeCharge semer(JdbcTemplate jdbcTemplate, ParametresCharge parametres) {
+        DonneesDeCharge donnees = new DonneesDeCharge(parametres.comptes());
+        Integer existants = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM compte WHERE num_compte = ?", Integer.class, donnees.numCompte(parametres.comptes() - 1));
+        if (existants != null && existants > 0) {
+            System.out.println("Donnees deja presentes (" + parametres.comptes() + " comptes), pas de nouvel ensemencement");
+            return donnees;
+        }
+
+        long debut = System.nanoTime();
+        donnees.insererClients(jdbcTemplate);
+        donnees.insererHistorique(jdbcTemplate, parametres.transfertsHistorique(), new SplittableRandom(parametres.graine()));
+        System.out.printf("Donnees semees : %d comptes, %d transferts d'historique en %d ms%n",
+                parametres.comptes(), parametres.transfertsHistorique(), (System.nanoTime() - debut) / 1_000_000);
+        return donnees;
+    }
+
+    int comptes() {
+        return comptes;
+    }
+
+    UUID numCompte(int index) {
+        return new UUID(0, index + 1L);
+    }
+
+    String telephone(int index) {
+        return String.format("+2217%08d", index);
+    }
+
+    private void insererClients(JdbcTemplate jdbcTemplate) {
+        for (int debut = 0; debut < comptes; debut += TAILLE_LOT) {
+            List<Object[]> lotComptes = new ArrayList<>(TAILLE_LOT);
+            List<Object[]> lotUtilisateurs = new ArrayList<>(TAILLE_LOT);
+            for (int i = debut; i < Math.min(debut + TAILLE_LOT, comptes); i++) {
+                lotComptes.add(new Object[]{numCompte(i), SOLDE_INITIAL, Date.valueOf(LocalDate.of(2024, 1, 1))});
+                lotUtilisateurs.add(new Object[]{new UUID(1, i + 1L).toString(), "Nom" + i, "Prenom" + i, "client" + i,
+                        telephone(i), numCompte(i)});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO compte (num_compte, solde, type_compte, status, date_creation) " +
+                            "VALUES (?, ?, 'CLIENT', 'ENABLE', ?)",
+                    lotComptes);
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO app_user (keycloak_id, nom, prenom, nom_utilisateur, telephone, role_name, compte_id) " +
+                            "SELECT ?, ?, ?, ?, ?, 'user', c.id FROM compte c WHERE c.num_compte = ?",
+                    lotUtilisateurs);
+        }
+    }
+
+    /**
+     * Deux ecritures par transfert (debit de l'emetteur, credit du recepteur), comme JournalService.
+     */
+    private void insererHistorique(JdbcTemplate jdbcTemplate, int transferts, SplittableRandom random) {
+        LocalDateTime date = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Object[]> lot = new ArrayList<>(TAILLE_LOT);
+        for (int i = 0; i < transferts; i++) {
+            int emetteur = random.nextInt(comptes);
+            int recepteur = (emetteur + 1 + random.nextInt(comptes - 1)) % comptes;
+            long montant = 1 + random.nextInt(10_000);
+            Timestamp horodatage = Timestamp.valueOf(date.plusSeconds(i));
+            UUID reference = new UUID(random.nextLong(), random.nextLong());
+            lot.add(new Object[]{numCompte(emetteur), numCompte(recepteur), -montant, horodatage, reference});
+            lot.add(new Object[]{numCompte(recepteur), numCompte(emetteur), montant, horodatage, reference});
+            if (lot.size() >= TAILLE_LOT) {
+                insererEcritures(jdbcTemplate, lot);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty()) {
+            insererEcritures(jdbcTemplate, lot);
+        }
+    }
+
+    private static void insererEcritures(JdbcTemplate jdbcTemplate, List<Object[]> lot) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO ecriture_journal (num_compte, contrepartie, montant, date_ecriture, reference_operation) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                lot);
+    }
+}
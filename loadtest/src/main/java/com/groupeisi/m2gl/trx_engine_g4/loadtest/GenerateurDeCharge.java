@@ -0,0 +1,171 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Charge en modele ouvert : les requetes sont emises a intervalles fixes (1 / debit), quel que soit le temps
+ * de reponse du serveur, et leur type est tire selon le mix. La latence est comptee depuis l'instant d'emission
+ * prevu et non depuis l'envoi effectif : un serveur qui ralentit la charge n'efface pas ses propres files
+ * d'attente des mesures (omission coordonnee).
+ * La sequence des requetes (types, comptes, montants) ne depend que de la graine.
+ */
+final class GenerateurDeCharge {
+
+    private final ParametresCharge parametres;
+    private final DonneesDeCharge donnees;
+    private final String base;
+    private final HttpClient client;
+    private final SplittableRandom random;
+    private final Semaphore enVol;
+
+    private final TypeRequete[] types;
+    private final int[] poidsCumules;
+    private long prochaineInscription;
+
+    GenerateurDeCharge(ParametresCharge parametres, DonneesDeCharge donnees, String base) {
+        this.parametres = parametres;
+        this.donnees = donnees;
+        this.base = base;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.random = new SplittableRandom(parametres.graine());
+        this.enVol = new Semaphore(parametres.maxEnVol());
+        this.prochaineInscription = parametres.debutInscriptions();
+
+        Map<TypeRequete, Integer> mix = parametres.mix();
+        this.types = mix.keySet().toArray(new TypeRequete[0]);
+        this.poidsCumules = new int[types.length];
+        int cumul = 0;
+        for (int i = 0; i < types.length; i++) {
+            cumul += mix.get(types[i]);
+            poidsCumules[i] = cumul;
+        }
+    }
+
+    /**
+     * Echauffement (JIT, pools de connexions, caches) puis phase mesuree ; seules les requetes emises pendant
+     * la phase mesuree figurent dans le rapport.
+     */
+    RapportDeCharge executer(KeycloakFactice keycloak) throws InterruptedException {
+        System.out.printf("Echauffement : %d s a %d req/s%n", parametres.echauffement().toSeconds(), parametres.debit());
+        emettre(parametres.echauffement(), RapportDeCharge.nouvellesMesures());
+
+        Map<TypeRequete, RapportDeCharge.Mesure> mesures = RapportDeCharge.nouvellesMesures();
+        long appelsKeycloak = keycloak.appels();
+        System.out.printf("Mesure : %d s a %d req/s, mix %s%n", parametres.duree().toSeconds(), parametres.debit(), parametres.mix());
+        emettre(parametres.duree(), mesures);
+        attendreRequetesEnVol();
+        return new RapportDeCharge(parametres, mesures, keycloak.appels() - appelsKeycloak);
+    }
+
+    private void emettre(Duration duree, Map<TypeRequete, RapportDeCharge.Mesure> mesures) {
+        long intervalle = TimeUnit.SECONDS.toNanos(1) / parametres.debit();
+        long debut = System.nanoTime();
+        long fin = debut + duree.toNanos();
+        for (long i = 0; ; i++) {
+            long prevu = debut + i * intervalle;
+            if (prevu - fin >= 0) {
+                return;
+            }
+            attendreJusqua(prevu);
+
+            TypeRequete type = tirerType();
+            HttpRequest requete = construire(type);
+            RapportDeCharge.Mesure mesure = mesures.get(type);
+            if (!enVol.tryAcquire()) {
+                mesure.rejeter();
+                continue;
+            }
+            client.sendAsync(requete, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((reponse, erreur) -> {
+                        enVol.release();
+                        mesure.enregistrer(System.nanoTime() - prevu, erreur == null && reussie(reponse));
+                    });
+        }
+    }
+
+    private static void attendreJusqua(long echeance) {
+        long reste;
+        while ((reste = echeance - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(reste);
+        }
+    }
+
+    private void attendreRequetesEnVol() throws InterruptedException {
+        long delai = parametres.timeout().toMillis() + 1_000;
+        if (enVol.tryAcquire(parametres.maxEnVol(), delai, TimeUnit.MILLISECONDS)) {
+            enVol.release(parametres.maxEnVol());
+        } else {
+            System.out.println("⚠️ Des requetes etaient encore en vol a la fin de la mesure");
+        }
+    }
+
+    private TypeRequete tirerType() {
+        int tirage = random.nextInt(poidsCumules[poidsCumules.length - 1]);
+        for (int i = 0; i < poidsCumules.length; i++) {
+            if (tirage < poidsCumules[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    private HttpRequest construire(TypeRequete type) {
+        return switch (type) {
+            case TRANSFERT -> {
+                int emetteur = random.nextInt(donnees.comptes());
+                int recepteur = (emetteur + 1 + random.nextInt(donnees.comptes() - 1)) % donnees.comptes();
+                yield post("/api/transferts", "{\"montant\":" + (1 + random.nextInt(1_000))
+                        + ",\"compteEmetteur\":\"" + donnees.numCompte(emetteur)
+                        + "\",\"compteRecepteur\":\"" + donnees.numCompte(recepteur) + "\"}");
+            }
+            case SOLDE -> get("/api/compte/by-phone/" + encoder(donnees.telephone(random.nextInt(donnees.comptes()))));
+            case HISTORIQUE -> get("/api/transferts/user/" + encoder(donnees.telephone(random.nextInt(donnees.comptes()))));
+            case INSCRIPTION -> {
+                long numero = prochaineInscription++;
+                yield post("/api/users/register/client", String.format(
+                        "{\"prenom\":\"Prenom\",\"nom\":\"Charge\",\"nomUtilisateur\":\"charge%d\",\"telephone\":\"+2219%08d\"," +
+                                "\"password\":\"motdepasse\",\"roleName\":\"user\"}", numero, numero));
+            }
+        };
+    }
+
+    private HttpRequest get(String chemin) {
+        return HttpRequest.newBuilder(URI.create(base + chemin))
+                .timeout(parametres.timeout())
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String chemin, String json) {
+        return HttpRequest.newBuilder(URI.create(base + chemin))
+                .timeout(parametres.timeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static String encoder(String telephone) {
+        return URLEncoder.encode(telephone, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Les controleurs repondent par l'enveloppe ApiResponse : une erreur metier peut arriver avec un statut HTTP 200.
+     */
+    private static boolean reussie(HttpResponse<String> reponse) {
+        return reponse.statusCode() / 100 == 2 && reponse.body().contains("\"success\":true");
+    }
+}
@@ -0,0 +1,126 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keycloak simule au niveau HTTP : repond aux appels que fait l'application (jeton du client admin, cles JWKS,
+ * recherche et creation d'utilisateurs, roles du realm, attribution de role, suppression), avec une latence
+ * fixe par appel. Le vrai client admin partage (pool de connexions, jeton) est ainsi mesure tel quel.
+ * Aucun etat n'est conserve : tout nom d'utilisateur est libre et tout role existe.
+ */
+final class KeycloakFactice implements AutoCloseable {
+
+    private static final int THREADS = 64;
+
+    private static final String JETON = "{\"access_token\":\"jeton-charge\",\"expires_in\":3600,\"refresh_expires_in\":3600," +
+            "\"refresh_token\":\"jeton-charge\",\"token_type\":\"Bearer\",\"scope\":\"profile\"}";
+
+    private final HttpServer serveur;
+    private final ExecutorService executeur;
+    private final AtomicLong appels = new AtomicLong();
+    private volatile long latenceMs;
+
+    private KeycloakFactice(HttpServer serveur, ExecutorService executeur) {
+        this.serveur = serveur;
+        this.executeur = executeur;
+    }
+
+    static KeycloakFactice demarrer() throws IOException {
+        HttpServer serveur = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        ExecutorService executeur = Executors.newFixedThreadPool(THREADS);
+        KeycloakFactice factice = new KeycloakFactice(serveur, executeur);
+        serveur.createContext("/", factice::repondre);
+        serveur.setExecutor(executeur);
+        serveur.start();
+        return factice;
+    }
+
+    String url() {
+        return "http://localhost:" + serveur.getAddress().getPort();
+    }
+
+    void setLatenceMs(long latenceMs) {
+        this.latenceMs = latenceMs;
+    }
+
+    long appels() {
+        return appels.get();
+    }
+
+    private void repondre(HttpExchange echange) throws IOException {
+        try (echange; InputStream corps = echange.getRequestBody()) {
+            corps.transferTo(OutputStream.nullOutputStream());
+            appels.incrementAndGet();
+            attendre();
+
+            String methode = echange.getRequestMethod();
+            String chemin = echange.getRequestURI().getPath();
+
+            if (chemin.endsWith("/protocol/openid-connect/token")) {
+                envoyer(echange, 200, JETON);
+            } else if (chemin.endsWith("/protocol/openid-connect/certs")) {
+                envoyer(echange, 200, "{\"keys\":[]}");
+            } else if (!chemin.startsWith("/admin/realms/")) {
+                envoyer(echange, 404, null);
+            } else if ("POST".equals(methode) && chemin.endsWith("/users")) {
+                echange.getResponseHeaders().set("Location", url() + chemin + "/" + UUID.randomUUID());
+                envoyer(echange, 201, null);
+            } else if ("GET".equals(methode) && chemin.endsWith("/users")) {
+                envoyer(echange, 200, "[]");
+            } else if ("GET".equals(methode) && chemin.endsWith("/roles")) {
+                envoyer(echange, 200, "[" + role("user") + "," + role("marchand") + "]");
+            } else if ("GET".equals(methode) && chemin.contains("/roles/")) {
+                envoyer(echange, 200, role(chemin.substring(chemin.lastIndexOf('/') + 1)));
+            } else if ("GET".equals(methode)) {
+                envoyer(echange, 200, "{}");
+            } else {
+                // Attribution de role, mise a jour et suppression d'utilisateur
+                envoyer(echange, 204, null);
+            }
+        }
+    }
+
+    private void attendre() {
+        long latence = latenceMs;
+        if (latence > 0) {
+            try {
+                Thread.sleep(latence);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static String role(String nom) {
+        return "{\"id\":\"role-" + nom + "\",\"name\":\"" + nom + "\",\"composite\":false,\"clientRole\":false}";
+    }
+
+    private static void envoyer(HttpExchange echange, int statut, String json) throws IOException {
+        if (json == null) {
+            echange.sendResponseHeaders(statut, -1);
+            return;
+        }
+        byte[] octets = json.getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().set("Content-Type", "application/json");
+        echange.sendResponseHeaders(statut, octets.length);
+        echange.getResponseBody().write(octets);
+    }
+
+    @Override
+    public void close() {
+        serveur.stop(0);
+        executeur.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import com.groupeisi.m2gl.trx_engine_g4.TrxEngineG4Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point d'entree du test de charge : demarre le Keycloak simule, puis l'application complete (profil loadtest)
+ * sur un port local, seme les donnees, envoie la charge melangee et ecrit le rapport.
+ * Les arguments sont des proprietes Spring (par exemple --loadtest.debit=800 --loadtest.libelle=abc1234).
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (KeycloakFactice keycloak = KeycloakFactice.demarrer();
+             ConfigurableApplicationContext contexte = new SpringApplicationBuilder(TrxEngineG4Application.class)
+                     .profiles("loadtest")
+                     .run(arguments(keycloak.url(), args))) {
+
+            ParametresCharge parametres = ParametresCharge.depuis(contexte.getEnvironment());
+            keycloak.setLatenceMs(parametres.latenceKeycloakMs());
+
+            DonneesDeCharge donnees = DonneesDeCharge.semer(contexte.getBean(JdbcTemplate.class), parametres);
+            int port = ((WebServerApplicationContext) contexte).getWebServer().getPort();
+
+            RapportDeCharge rapport = new GenerateurDeCharge(parametres, donnees, "http://localhost:" + port).executer(keycloak);
+            rapport.afficher(System.out);
+            rapport.ecrire();
+        }
+    }
+
+    /**
+     * Adresses du Keycloak simule passees en arguments de ligne de commande : .properties() ne pose que des
+     * valeurs par defaut, que application.properties (localhost:9080) ecraserait. Les arguments de l'appelant
+     * suivent et gardent la main.
+     */
+    static String[] arguments(String urlKeycloak, String[] args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--keycloak.auth-server-url=" + urlKeycloak,
+                "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + urlKeycloak + "/realms/trx_engine_g4",
+                "--spring.security.oauth2.resourceserver.jwk-set-uri=" + urlKeycloak + "/realms/trx_engine_g4/protocol/openid-connect/certs"));
+        arguments.addAll(Arrays.asList(args));
+        return arguments.toArray(String[]::new);
+    }
+}
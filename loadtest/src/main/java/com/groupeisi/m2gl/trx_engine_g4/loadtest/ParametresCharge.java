@@ -0,0 +1,66 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Parametres d'une execution (proprietes loadtest.* du profil loadtest, surchargeables en argument).
+ */
+record ParametresCharge(
+        int debit,
+        Map<TypeRequete, Integer> mix,
+        Duration echauffement,
+        Duration duree,
+        int maxEnVol,
+        Duration timeout,
+        long graine,
+        int comptes,
+        int transfertsHistorique,
+        long debutInscriptions,
+        long latenceKeycloakMs,
+        Path sortie,
+        String libelle) {
+
+    static ParametresCharge depuis(Environment env) {
+        return new ParametresCharge(
+                env.getRequiredProperty("loadtest.debit", Integer.class),
+                lireMix(env.getRequiredProperty("loadtest.mix")),
+                env.getRequiredProperty("loadtest.echauffement", Duration.class),
+                env.getRequiredProperty("loadtest.duree", Duration.class),
+                env.getRequiredProperty("loadtest.max-en-vol", Integer.class),
+                env.getRequiredProperty("loadtest.timeout", Duration.class),
+                env.getRequiredProperty("loadtest.graine", Long.class),
+                env.getRequiredProperty("loadtest.comptes", Integer.class),
+                env.getRequiredProperty("loadtest.transferts-historique", Integer.class),
+                env.getRequiredProperty("loadtest.inscription.debut", Long.class),
+                env.getRequiredProperty("loadtest.keycloak.latence-ms", Long.class),
+                Path.of(env.getRequiredProperty("loadtest.sortie")),
+                env.getRequiredProperty("loadtest.libelle"));
+    }
+
+    /**
+     * "transfert:40,solde:30,..." : poids relatifs par type de requete, les types absents ne sont pas tires.
+     */
+    private static Map<TypeRequete, Integer> lireMix(String valeur) {
+        Map<TypeRequete, Integer> mix = new EnumMap<>(TypeRequete.class);
+        for (String entree : valeur.split(",")) {
+            String[] parties = entree.trim().split(":");
+            if (parties.length != 2) {
+                throw new IllegalArgumentException("Entree de loadtest.mix invalide : '" + entree + "' (attendu type:poids)");
+            }
+            int poids = Integer.parseInt(parties[1].trim());
+            if (poids < 0) {
+                throw new IllegalArgumentException("Poids negatif dans loadtest.mix : " + entree);
+            }
+            mix.put(TypeRequete.depuisNom(parties[0].trim()), poids);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("loadtest.mix ne contient aucun poids positif");
+        }
+        return mix;
+    }
+}
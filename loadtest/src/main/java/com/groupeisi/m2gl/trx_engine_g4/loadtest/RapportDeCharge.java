@@ -0,0 +1,140 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Debit et distribution des latences par endpoint pour la phase mesuree.
+ * Sorties : resume affiche, histogrammes HdrHistogram (.hgrm, en ms) par endpoint dans sortie/libelle/,
+ * et une ligne par endpoint ajoutee a sortie/historique.csv pour comparer les executions (commits) entre elles.
+ */
+final class RapportDeCharge {
+
+    private static final long LATENCE_MAX_NS = TimeUnit.MINUTES.toNanos(1);
+    private static final double NS_PAR_MS = 1_000_000.0;
+    private static final String TOTAL = "total";
+
+    /**
+     * Mesures d'un type de requete, alimentees de facon concurrente par les reponses.
+     */
+    static final class Mesure {
+        private final Recorder latences = new Recorder(LATENCE_MAX_NS, 3);
+        private final LongAdder succes = new LongAdder();
+        private final LongAdder erreurs = new LongAdder();
+        private final LongAdder rejets = new LongAdder();
+
+        void enregistrer(long latenceNs, boolean reussie) {
+            latences.recordValue(Math.min(latenceNs, LATENCE_MAX_NS));
+            (reussie ? succes : erreurs).increment();
+        }
+
+        void rejeter() {
+            rejets.increment();
+        }
+    }
+
+    private record Ligne(String nom, String endpoint, Histogram histogramme, long succes, long erreurs, long rejets) {
+    }
+
+    static Map<TypeRequete, Mesure> nouvellesMesures() {
+        Map<TypeRequete, Mesure> mesures = new EnumMap<>(TypeRequete.class);
+        for (TypeRequete type : TypeRequete.values()) {
+            mesures.put(type, new Mesure());
+        }
+        return mesures;
+    }
+
+    private final ParametresCharge parametres;
+    private final Map<String, Ligne> lignes = new LinkedHashMap<>();
+    private final long appelsKeycloak;
+
+    RapportDeCharge(ParametresCharge parametres, Map<TypeRequete, Mesure> mesures, long appelsKeycloak) {
+        this.parametres = parametres;
+        this.appelsKeycloak = appelsKeycloak;
+
+        Histogram total = new Histogram(LATENCE_MAX_NS, 3);
+        long succes = 0, erreurs = 0, rejets = 0;
+        for (TypeRequete type : parametres.mix().keySet()) {
+            Mesure mesure = mesures.get(type);
+            Ligne ligne = new Ligne(type.nom, type.endpoint, mesure.latences.getIntervalHistogram(),
+                    mesure.succes.sum(), mesure.erreurs.sum(), mesure.rejets.sum());
+            lignes.put(type.nom, ligne);
+            total.add(ligne.histogramme());
+            succes += ligne.succes();
+            erreurs += ligne.erreurs();
+            rejets += ligne.rejets();
+        }
+        lignes.put(TOTAL, new Ligne(TOTAL, "", total, succes, erreurs, rejets));
+    }
+
+    void afficher(PrintStream sortie) {
+        sortie.printf("%n=== Test de charge '%s' : %d req/s pendant %d s (graine %d) ===%n",
+                parametres.libelle(), parametres.debit(), parametres.duree().toSeconds(), parametres.graine());
+        sortie.printf("%-12s %-38s %9s %9s %8s %8s %9s %9s %9s %9s %9s %9s%n", "type", "endpoint",
+                "requetes", "succes", "erreurs", "rejets", "succes/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Ligne ligne : lignes.values()) {
+            Histogram h = ligne.histogramme();
+            sortie.printf("%-12s %-38s %9d %9d %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", ligne.nom(), ligne.endpoint(),
+                    ligne.succes() + ligne.erreurs() + ligne.rejets(), ligne.succes(), ligne.erreurs(), ligne.rejets(),
+                    debit(ligne), ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9), h.getMaxValue() / NS_PAR_MS);
+        }
+        sortie.printf("Appels Keycloak (simule, %d ms chacun) : %d%n", parametres.latenceKeycloakMs(), appelsKeycloak);
+    }
+
+    void ecrire() throws IOException {
+        Path dossier = parametres.sortie().resolve(parametres.libelle());
+        Files.createDirectories(dossier);
+
+        try (PrintStream resume = new PrintStream(Files.newOutputStream(dossier.resolve("resume.txt")), false, StandardCharsets.UTF_8)) {
+            afficher(resume);
+        }
+        for (Ligne ligne : lignes.values()) {
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(dossier.resolve(ligne.nom() + ".hgrm")), false, StandardCharsets.UTF_8)) {
+                ligne.histogramme().outputPercentileDistribution(hgrm, NS_PAR_MS);
+            }
+        }
+
+        Path historique = parametres.sortie().resolve("historique.csv");
+        StringBuilder csv = new StringBuilder();
+        if (Files.notExists(historique)) {
+            csv.append("libelle,date,debit_cible,mix,type,requetes,succes,erreurs,rejets,succes_par_s,p50_ms,p90_ms,p99_ms,p999_ms,max_ms\n");
+        }
+        String date = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        String mix = parametres.mix().entrySet().stream()
+                .map(e -> e.getKey().nom + ":" + e.getValue())
+                .collect(Collectors.joining(" "));
+        for (Ligne ligne : lignes.values()) {
+            Histogram h = ligne.histogramme();
+            csv.append(String.format(Locale.ROOT, "%s,%s,%d,%s,%s,%d,%d,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
+                    parametres.libelle(), date, parametres.debit(), mix, ligne.nom(),
+                    ligne.succes() + ligne.erreurs() + ligne.rejets(), ligne.succes(), ligne.erreurs(), ligne.rejets(),
+                    debit(ligne), ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9), h.getMaxValue() / NS_PAR_MS));
+        }
+        Files.writeString(historique, csv, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("Resultats ecrits dans " + dossier.toAbsolutePath() + " et " + historique.toAbsolutePath());
+    }
+
+    private double debit(Ligne ligne) {
+        return ligne.succes() / (double) Math.max(1, parametres.duree().toSeconds());
+    }
+
+    private static double ms(Histogram histogramme, double percentile) {
+        return histogramme.getValueAtPercentile(percentile) / NS_PAR_MS;
+    }
+}
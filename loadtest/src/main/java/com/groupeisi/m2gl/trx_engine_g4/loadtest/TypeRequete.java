@@ -0,0 +1,30 @@
+package com.groupeisi.m2gl.trx_engine_g4.loadtest;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Types de requetes de la charge melangee, chacun mesure separement.
+ */
+enum TypeRequete {
+    TRANSFERT("transfert", "POST /api/transferts"),
+    SOLDE("solde", "GET /api/compte/by-phone/{telephone}"),
+    HISTORIQUE("historique", "GET /api/transferts/user/{telephone}"),
+    INSCRIPTION("inscription", "POST /api/users/register/client");
+
+    final String nom;
+    final String endpoint;
+
+    TypeRequete(String nom, String endpoint) {
+        this.nom = nom;
+        this.endpoint = endpoint;
+    }
+
+    static TypeRequete depuisNom(String nom) {
+        return Arrays.stream(values())
+                .filter(type -> type.nom.equals(nom))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Type de requete inconnu : '" + nom + "' (attendu : "
+                        + Arrays.stream(values()).map(type -> type.nom).collect(Collectors.joining(", ")) + ")"));
+    }
+}
@@ -17,8 +17,8 @@ import lombok.NoArgsConstructor;
 @Schema(description = "DTO pour les comptes")  // ✅ AJOUTÉ
 public class CompteDto {
 
-    @Schema(description = "Solde du compte en CFA", example = "50000.0")
-    private float solde;
+    @Schema(description = "Solde du compte en CFA (entier, unites mineures)", example = "50000")
+    private long solde;
 
     @NotNull(message = "Le numero de compte est obligatoire")
     @Schema(description = "Numero unique du compte (UUID)", example = "123e4567-e89b-12d3-a456-426614174000")
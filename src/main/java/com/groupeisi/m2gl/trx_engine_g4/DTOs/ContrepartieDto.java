@@ -0,0 +1,25 @@
+package com.groupeisi.m2gl.trx_engine_g4.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Projection compte + utilisateur utilisee pour afficher l'autre partie d'une transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContrepartieDto {
+    private UUID numCompte;
+    private String prenom;
+    private String nom;
+    private String nomUtilisateur;
+    private String telephone;
+
+    public String getNomAffiche() {
+        return (prenom != null && nom != null) ? prenom + " " + nom : nomUtilisateur;
+    }
+}
@@ -0,0 +1,28 @@
+package com.groupeisi.m2gl.trx_engine_g4.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Ligne d'un paiement groupe : un recepteur et un montant")
+public class LigneTransfertDto {
+
+    @NotNull(message = "Le compte recepteur est obligatoire")
+    @Schema(description = "UUID du compte recepteur", example = "987e6543-e21b-98d7-b654-123456789abc", required = true)
+    private UUID compteRecepteur;
+
+    @NotNull(message = "Le montant est obligatoire")
+    @Positive(message = "Le montant doit etre superieur a 0")
+    @Schema(description = "Montant du transfert en CFA (entier, unites mineures)", example = "5000", required = true)
+    private Long montant;
+}
@@ -0,0 +1,32 @@
+package com.groupeisi.m2gl.trx_engine_g4.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "DTO pour un paiement groupe (un emetteur, plusieurs recepteurs)")
+public class TransfertBatchDto {
+
+    @NotNull(message = "Le compte emetteur est obligatoire")
+    @Schema(description = "UUID du compte emetteur", example = "123e4567-e89b-12d3-a456-426614174000", required = true)
+    private UUID compteEmetteur;
+
+    @NotEmpty(message = "Le lot doit contenir au moins une ligne")
+    @Size(max = 5000, message = "Un lot ne peut pas depasser 5000 lignes")
+    @Valid
+    @Schema(description = "Lignes du lot (recepteur, montant)", required = true)
+    private List<LigneTransfertDto> lignes;
+}
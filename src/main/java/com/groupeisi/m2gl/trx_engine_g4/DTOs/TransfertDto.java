@@ -19,8 +19,8 @@ public class TransfertDto {
 
     @NotNull(message = "Le montant est obligatoire")
     @Positive(message = "Le montant doit etre superieur a 0")  // ✅ Utilisez @Positive au lieu de @Min
-    @Schema(description = "Montant du transfert en CFA", example = "5000.0", required = true)
-    private Float montant;
+    @Schema(description = "Montant du transfert en CFA (entier, unites mineures)", example = "5000", required = true)
+    private Long montant;
 
     @NotNull(message = "Le compte emetteur est obligatoire")
     @Schema(description = "UUID du compte emetteur", example = "123e4567-e89b-12d3-a456-426614174000", required = true)
@@ -0,0 +1,35 @@
+package com.groupeisi.m2gl.trx_engine_g4.Repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.CleIdempotence;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, Integer> {
+    Optional<CleIdempotence> findByCompteEmetteurAndCle(UUID compteEmetteur, String cle);
+
+    @Modifying
+    @Query("DELETE FROM CleIdempotence c WHERE c.compteEmetteur = :compteEmetteur AND c.cle = :cle")
+    int deleteByCompteEmetteurAndCle(@Param("compteEmetteur") UUID compteEmetteur, @Param("cle") String cle);
+
+    /**
+     * Supprime la reservation de la cle si elle est toujours en cours (statusCode = 0) et plus ancienne que la limite.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CleIdempotence c WHERE c.compteEmetteur = :compteEmetteur AND c.cle = :cle "
+            + "AND c.statusCode = 0 AND c.dateCreation < :limite")
+    int deleteReservationExpiree(@Param("compteEmetteur") UUID compteEmetteur, @Param("cle") String cle,
+                                 @Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("DELETE FROM CleIdempotence c WHERE c.dateCreation < :limite")
+    int deleteByDateCreationBefore(@Param("limite") LocalDateTime limite);
+}
@@ -1,7 +1,13 @@
 package com.groupeisi.m2gl.trx_engine_g4.Repository;
 import com.groupeisi.m2gl.trx_engine_g4.entities.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -10,4 +16,17 @@ public interface CompteRepository extends JpaRepository<Compte, Integer> {
 //    Optional<Compte> findByUser(User user);
     Optional<Compte> findByNumCompte(UUID numCompte);
     boolean existsByNumCompte(UUID numCompte);
+    List<Compte> findByNumCompteIn(Collection<UUID> numComptes);
+
+    // Verrou sur l'emetteur le temps d'un debit : serialise les debits d'un meme compte.
+    // Les credits ne prennent aucun verrou (insertion seule dans le journal).
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Compte c WHERE c.numCompte = :numCompte")
+    Optional<Compte> findByNumCompteForUpdate(@Param("numCompte") UUID numCompte);
+
+    // Solde courant = snapshot + queue du journal non encore compactee, lus dans une seule requete (meme instantane)
+    @Query("SELECT c.solde + COALESCE((SELECT SUM(e.montant) FROM EcritureJournal e " +
+            "WHERE e.numCompte = c.numCompte AND e.compactee = false), 0) " +
+            "FROM Compte c WHERE c.numCompte = :numCompte")
+    Optional<Long> findSoldeCourant(@Param("numCompte") UUID numCompte);
 }
@@ -0,0 +1,17 @@
+package com.groupeisi.m2gl.trx_engine_g4.Repository;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface EcritureJournalRepository extends JpaRepository<EcritureJournal, Long> {
+
+    // Historique d'un compte par curseur (keyset) : un seul parcours borne de l'index (num_compte, id)
+    @Query("SELECT e FROM EcritureJournal e WHERE e.numCompte = :numCompte AND e.id < :curseur ORDER BY e.id DESC")
+    List<EcritureJournal> findByNumCompteAvant(@Param("numCompte") UUID numCompte, @Param("curseur") Long curseur, Pageable pageable);
+}
@@ -0,0 +1,18 @@
+package com.groupeisi.m2gl.trx_engine_g4.Repository;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    // Avance le point de reprise et les compteurs apres validation d'un ou plusieurs lots consecutifs
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.derniereLigneValidee = :ligne, j.importes = j.importes + :importes, " +
+            "j.dejaPresents = j.dejaPresents + :dejaPresents, j.rejetes = j.rejetes + :rejetes " +
+            "WHERE j.id = :id AND j.derniereLigneValidee < :ligne")
+    int avancer(@Param("id") Long id, @Param("ligne") long ligne, @Param("importes") long importes,
+                @Param("dejaPresents") long dejaPresents, @Param("rejetes") long rejetes);
+}
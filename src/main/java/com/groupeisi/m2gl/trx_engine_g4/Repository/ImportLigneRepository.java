@@ -0,0 +1,23 @@
+package com.groupeisi.m2gl.trx_engine_g4.Repository;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.ImportLigne;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ImportLigneRepository extends JpaRepository<ImportLigne, Long> {
+
+    // A la reprise, les resultats des lots traites au-dela du point de reprise sont recalcules.
+    // Les creations Keycloak du job (CREE_KEYCLOAK) sont gardees : elles seules autorisent la reprise d'un utilisateur existant.
+    @Modifying
+    @Query("DELETE FROM ImportLigne l WHERE l.jobId = :jobId AND l.numeroLigne > :ligne AND l.statut <> 'CREE_KEYCLOAK'")
+    int supprimerApres(@Param("jobId") Long jobId, @Param("ligne") long ligne);
+
+    // Parmi ces ids Keycloak, ceux crees par ce job
+    @Query("SELECT l.keycloakId FROM ImportLigne l WHERE l.jobId = :jobId AND l.statut = 'CREE_KEYCLOAK' AND l.keycloakId IN :ids")
+    List<String> findIdsKeycloakCrees(@Param("jobId") Long jobId, @Param("ids") Collection<String> ids);
+}
@@ -0,0 +1,7 @@
+package com.groupeisi.m2gl.trx_engine_g4.Repository;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MessageOutboxRepository extends JpaRepository<MessageOutbox, Long> {
+}
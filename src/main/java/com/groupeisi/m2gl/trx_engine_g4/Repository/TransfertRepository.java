@@ -4,4 +4,6 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.groupeisi.m2gl.trx_engine_g4.entities.Transfert;
 
-public interface TransfertRepository extends JpaRepository<Transfert, Integer> {}
+// Historique anterieur au journal (repris dans ecriture_journal par la migration V3) : plus alimente
+public interface TransfertRepository extends JpaRepository<Transfert, Integer> {
+}
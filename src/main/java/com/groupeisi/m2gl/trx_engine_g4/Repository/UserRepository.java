@@ -1,14 +1,31 @@
 package com.groupeisi.m2gl.trx_engine_g4.Repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
 import com.groupeisi.m2gl.trx_engine_g4.entities.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByKeycloakId(String keycloakId);
     Optional<User> findByTelephone(String telephone);
     Optional<User> findByCompteId(Integer compteId);
-}
\ No newline at end of file
+
+    // Resolution ensembliste des contreparties d'une page d'historique (une seule requete)
+    @Query("SELECT new com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto(c.numCompte, u.prenom, u.nom, u.nomUtilisateur, u.telephone) " +
+            "FROM User u JOIN u.compte c WHERE c.numCompte IN :numComptes")
+    List<ContrepartieDto> findContrepartiesByNumCompteIn(@Param("numComptes") Collection<UUID> numComptes);
+
+    // Import en masse : telephones et noms d'utilisateur d'un lot deja presents (une requete par lot)
+    @Query("SELECT u.telephone FROM User u WHERE u.telephone IN :telephones")
+    List<String> findTelephonesExistants(@Param("telephones") Collection<String> telephones);
+
+    @Query("SELECT u.nomUtilisateur FROM User u WHERE u.nomUtilisateur IN :noms")
+    List<String> findNomsUtilisateurExistants(@Param("noms") Collection<String> noms);
+}
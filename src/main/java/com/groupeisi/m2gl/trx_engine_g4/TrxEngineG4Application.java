@@ -2,8 +2,10 @@ package com.groupeisi.m2gl.trx_engine_g4;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TrxEngineG4Application {
 
     public static void main(String[] args) {
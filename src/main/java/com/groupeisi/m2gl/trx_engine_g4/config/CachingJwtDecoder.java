@@ -0,0 +1,85 @@
+package com.groupeisi.m2gl.trx_engine_g4.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Decodeur JWT avec cache des jetons deja verifies : un jeton renvoye plusieurs fois par la meme session mobile
+ * n'est verifie (signature, claims) qu'une fois.
+ *
+ * La cle est le SHA-256 du jeton complet, et non son jti : un jeton modifie ne peut pas tomber sur l'entree
+ * d'un jeton valide. Une entree expire au plus tard a l'exp du jeton (et au plus apres ttlMax) ;
+ * un jeton rejete n'est jamais mis en cache.
+ */
+class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegue;
+    private final Cache<String, Jwt> jetons;
+
+    CachingJwtDecoder(JwtDecoder delegue, long tailleMax, Duration ttlMax, MeterRegistry meterRegistry) {
+        this.delegue = delegue;
+        this.jetons = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String cle, Jwt jwt, long maintenant) {
+                        return dureeDeVie(jwt, ttlMax);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String cle, Jwt jwt, long maintenant, long dureeActuelle) {
+                        return dureeDeVie(jwt, ttlMax);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String cle, Jwt jwt, long maintenant, long dureeActuelle) {
+                        return dureeActuelle;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, jetons, "jwt");
+    }
+
+    private static long dureeDeVie(Jwt jwt, Duration ttlMax) {
+        if (jwt.getExpiresAt() == null) {
+            return ttlMax.toNanos();
+        }
+        Duration restant = Duration.between(Instant.now(), jwt.getExpiresAt());
+        return Math.max(0, Math.min(restant.toNanos(), ttlMax.toNanos()));
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String cle = empreinte(token);
+        Jwt jwt = jetons.getIfPresent(cle);
+        if (jwt != null && (jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(Instant.now()))) {
+            return jwt;
+        }
+        jwt = delegue.decode(token);
+        jetons.put(cle, jwt);
+        return jwt;
+    }
+
+    private static String empreinte(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.groupeisi.m2gl.trx_engine_g4.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class InscriptionExecutorConfig {
+
+    /**
+     * Pool des verifications d'inscription lancees en parallele (base locale, Keycloak).
+     * File pleine : la tache s'execute sur le thread appelant (contre-pression plutot que rejet).
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor inscriptionExecutor(@Value("${inscription.executor.threads:16}") int threads,
+                                                 @Value("${inscription.executor.queue-capacity:1000}") int capacite) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(capacite);
+        executor.setThreadNamePrefix("inscription-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool des lots d'un import en masse ; le nombre de lots en cours est borne par l'import lui-meme
+     * (import.parallelisme), la file ne se remplit donc pas.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor importExecutor(@Value("${import.parallelisme:4}") int parallelisme) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelisme);
+        executor.setMaxPoolSize(parallelisme);
+        executor.setThreadNamePrefix("import-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Profil virtual (spring.threads.virtual.enabled=true, Java 21) : un thread virtuel par tache, sans pool.
+     * Les verifications d'inscription bloquent sur JDBC ou HTTP : un thread virtuel bloque ne retient aucun thread porteur.
+     */
+    @Bean(name = "inscriptionExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor inscriptionExecutorVirtuel() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("inscription-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    @Bean(name = "importExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor importExecutorVirtuel() {
+        // Le nombre de lots en cours reste borne par l'import (import.parallelisme)
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("import-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
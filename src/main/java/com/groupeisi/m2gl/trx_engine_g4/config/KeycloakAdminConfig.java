@@ -1,22 +1,33 @@
 package com.groupeisi.m2gl.trx_engine_g4.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.ws.rs.client.Client;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.internal.ResteasyClientBuilderImpl;
 import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client d'administration Keycloak unique, partage par toute l'application.
+ * Transport HTTP avec pool de connexions (connexions TLS reutilisees), timeouts explicites,
+ * et une mesure de latence par appel (voir {@link KeycloakMetriquesEngine}).
+ * Le jeton d'acces est garde par le TokenManager du client et rafraichi avant expiration (voir KeycloakTokenRefresher).
+ */
 @Configuration
 public class KeycloakAdminConfig {
     @Value("${keycloak.client-key-password}")
     private String keycloakClientSecret;
 
-    // Nouveau champ pour le VRAI secret client
-    @Value("${keycloak.admin-client-secret}")
-    private String adminClientSecret;
-
     @Value("${keycloak.realm}")
     private String keycloakRealm;
 
@@ -26,15 +37,64 @@ public class KeycloakAdminConfig {
     @Value("${keycloak.client-id}") // Ajout pour récupérer le vrai Client ID
     private String keycloakClientId; // Nouveau champ
 
-    @Bean
-    public Keycloak keycloakAdmin() {
-        return KeycloakBuilder.builder()
-                .serverUrl(keycloakAuthServerUrl)
-                .realm(keycloakRealm) // <--- Utilisez votre propre Realm : trx_engine_g4
-                .grantType("client_credentials") // <--- Changement de type d'accès
-                .clientId(keycloakClientId) // <--- Utilisez votre Client ID : trx-engine-g4-client
-                .clientSecret(keycloakClientSecret) // <--- Utilisez votre Client Secret
-                // Supprimez .username et .password, ils ne sont pas utilisés pour client_credentials
+    // password : compte admin du realm master via admin-cli ; client_credentials : compte de service du client
+    @Value("${keycloak.admin.grant-type:password}")
+    private String grantType;
+
+    @Value("${keycloak.admin.username}")
+    private String adminUsername;
+
+    @Value("${keycloak.admin.password}")
+    private String adminPassword;
+
+    @Value("${keycloak.admin.pool-size:50}")
+    private int taillePool;
+
+    @Value("${keycloak.admin.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${keycloak.admin.read-timeout:10s}")
+    private Duration readTimeout;
+
+    @Value("${keycloak.admin.connection-ttl:5m}")
+    private Duration dureeVieConnexion;
+
+    @Bean(destroyMethod = "close")
+    public Client keycloakHttpClient(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager pool =
+                new PoolingHttpClientConnectionManager(dureeVieConnexion.toMillis(), TimeUnit.MILLISECONDS);
+        pool.setMaxTotal(taillePool);
+        pool.setDefaultMaxPerRoute(taillePool);
+        RequestConfig timeouts = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(timeouts)
+                .build();
+        return new ResteasyClientBuilderImpl()
+                .httpEngine(new KeycloakMetriquesEngine(httpClient, meterRegistry))
                 .build();
     }
+
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloakAdmin(Client keycloakHttpClient) {
+        KeycloakBuilder builder = KeycloakBuilder.builder()
+                .serverUrl(keycloakAuthServerUrl)
+                .resteasyClient(keycloakHttpClient);
+        if (OAuth2Constants.CLIENT_CREDENTIALS.equals(grantType)) {
+            builder.realm(keycloakRealm)
+                    .grantType(OAuth2Constants.CLIENT_CREDENTIALS)
+                    .clientId(keycloakClientId)
+                    .clientSecret(keycloakClientSecret);
+        } else {
+            builder.realm("master")
+                    .grantType(OAuth2Constants.PASSWORD)
+                    .clientId("admin-cli")
+                    .username(adminUsername)
+                    .password(adminPassword);
+        }
+        return builder.build();
+    }
 }
@@ -0,0 +1,56 @@
+package com.groupeisi.m2gl.trx_engine_g4.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.Response;
+import org.apache.http.client.HttpClient;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Transport HTTP vers Keycloak qui mesure la latence de chaque appel (timer keycloak.admin.appels),
+ * par methode, chemin normalise et statut. Un appel sans reponse (connexion refusee, timeout de lecture)
+ * est mesure aussi, avec statut "erreur" et le type de l'exception.
+ * Les identifiants dans le chemin sont remplaces par {id} pour garder un nombre de series borne.
+ */
+class KeycloakMetriquesEngine extends ApacheHttpClient43Engine {
+
+    private static final Pattern IDENTIFIANT = Pattern.compile("/[0-9a-fA-F]{8}-[0-9a-fA-F-]{27}(?=/|$)");
+
+    private final MeterRegistry meterRegistry;
+
+    KeycloakMetriquesEngine(HttpClient httpClient, MeterRegistry meterRegistry) {
+        super(httpClient, true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Response invoke(Invocation invocation) {
+        long debut = System.nanoTime();
+        String statut = "erreur";
+        String exception = "none";
+        try {
+            Response reponse = super.invoke(invocation);
+            statut = String.valueOf(reponse.getStatus());
+            return reponse;
+        } catch (RuntimeException e) {
+            // ProcessingException enveloppe la vraie cause (ConnectException, SocketTimeoutException...)
+            exception = (e.getCause() != null ? e.getCause() : e).getClass().getSimpleName();
+            throw e;
+        } finally {
+            ClientInvocation requete = (ClientInvocation) invocation;
+            Timer.builder("keycloak.admin.appels")
+                    .description("Latence des appels HTTP a l'API Keycloak")
+                    .tag("methode", requete.getMethod())
+                    .tag("chemin", IDENTIFIANT.matcher(requete.getUri().getPath()).replaceAll("/{id}"))
+                    .tag("statut", statut)
+                    .tag("exception", exception)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+    }
+}
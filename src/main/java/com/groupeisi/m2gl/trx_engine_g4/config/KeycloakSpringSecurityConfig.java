@@ -1,26 +1,75 @@
 package com.groupeisi.m2gl.trx_engine_g4.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+@Slf4j
 @Configuration
 @EnableMethodSecurity
 @EnableWebSecurity
 public class KeycloakSpringSecurityConfig {
 
+    // Autorites deja construites, par liste de roles : peu de combinaisons distinctes, partagees entre utilisateurs
+    private final Cache<List<String>, Collection<GrantedAuthority>> autoritesParRoles;
+
+    public KeycloakSpringSecurityConfig(MeterRegistry meterRegistry) {
+        this.autoritesParRoles = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, autoritesParRoles, "jwt.autorites");
+    }
+
+    /**
+     * Endpoints Actuator (dont /actuator/prometheus) : servis uniquement sur le port de management
+     * (management.server.port), reserve au reseau interne, et lus sans jeton par le scraper.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -60,23 +109,76 @@ public class KeycloakSpringSecurityConfig {
         return http.build();
     }
 
-    // Convertisseur de rôles Keycloak (votre code original conservé tel quel)
+    /**
+     * Cles JWKS prechargees au demarrage et rafraichies en arriere-plan avant expiration
+     * (aucune requete ne paie le telechargement des cles). Declarees en bean pour que Spring les ferme a l'arret :
+     * le rafraichissement tourne sur un thread non demon, qui sinon empeche la JVM de s'arreter.
+     */
+    @Bean
+    public JWKSource<SecurityContext> jwkSource(@Value("${spring.security.oauth2.resourceserver.jwk-set-uri}") String jwkSetUri,
+                                                @Value("${security.jwks.ttl:15m}") Duration ttlCles,
+                                                @Value("${security.jwks.refresh-ahead:1m}") Duration rafraichissementAnticipe)
+            throws MalformedURLException {
+        JWKSource<SecurityContext> cles = JWKSourceBuilder.create(new URL(jwkSetUri))
+                .cache(ttlCles.toMillis(), JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+                .refreshAheadCache(rafraichissementAnticipe.toMillis(), true)
+                .retrying(true)
+                .build();
+        prechargerCles(cles, jwkSetUri);
+        return cles;
+    }
+
+    /**
+     * Decodeur JWT sur les cles JWKS ci-dessus, avec cache des jetons deja verifies (CachingJwtDecoder).
+     */
+    @Bean
+    public JwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                                 JWKSource<SecurityContext> cles,
+                                 @Value("${security.jwt.cache.max-size:50000}") long tailleCache,
+                                 @Value("${security.jwt.cache.ttl-max:5m}") Duration ttlJetons,
+                                 MeterRegistry meterRegistry) {
+        DefaultJWTProcessor<SecurityContext> processeur = new DefaultJWTProcessor<>();
+        processeur.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, cles));
+        // Les claims sont valides par Spring (exp, nbf, iss) via setJwtValidator
+        processeur.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder decodeur = new NimbusJwtDecoder(processeur);
+        decodeur.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+
+        return new CachingJwtDecoder(decodeur, tailleCache, ttlJetons, meterRegistry);
+    }
+
+    private void prechargerCles(JWKSource<SecurityContext> cles, String jwkSetUri) {
+        try {
+            cles.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+            log.info("🔑 Cles JWKS prechargees depuis {}", jwkSetUri);
+        } catch (Exception e) {
+            // Keycloak indisponible au demarrage : les cles seront chargees a la premiere requete
+            log.warn("⚠️ Prechargement des cles JWKS impossible ({}) : {}", jwkSetUri, e.getMessage());
+        }
+    }
+
+    // Convertisseur de rôles Keycloak : la liste d'autorites est construite une fois par combinaison de roles
     private JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
         converter.setJwtGrantedAuthoritiesConverter(jwt -> {
-            Collection<GrantedAuthority> authorities = new ArrayList<>();
             Map<String, Object> resourceAccess = jwt.getClaimAsMap("resource_access");
             if (resourceAccess != null) {
                 Map<String, Object> clientRoles = (Map<String, Object>) resourceAccess.get("trx-engine-g4-client");
                 if (clientRoles != null) {
                     List<String> roles = (List<String>) clientRoles.get("roles");
                     if (roles != null) {
-                        roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+                        return autoritesParRoles.get(List.copyOf(roles), KeycloakSpringSecurityConfig::autorites);
                     }
                 }
             }
-            return authorities;
+            return List.of();
         });
         return converter;
     }
-}
\ No newline at end of file
+
+    private static Collection<GrantedAuthority> autorites(List<String> roles) {
+        Collection<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+        return List.copyOf(authorities);
+    }
+}
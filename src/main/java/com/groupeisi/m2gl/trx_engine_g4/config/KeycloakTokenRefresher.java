@@ -0,0 +1,34 @@
+package com.groupeisi.m2gl.trx_engine_g4.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rafraichit le jeton d'acces admin avant son expiration, en arriere-plan :
+ * les appels des utilisateurs ne paient jamais l'obtention d'un jeton.
+ * Le TokenManager renouvelle le jeton des qu'il lui reste moins de min-token-validity secondes.
+ */
+@Slf4j
+@Component
+public class KeycloakTokenRefresher {
+
+    private final Keycloak keycloak;
+
+    public KeycloakTokenRefresher(Keycloak keycloak,
+                                  @Value("${keycloak.admin.min-token-validity:30}") int validiteMinimaleSecondes) {
+        this.keycloak = keycloak;
+        keycloak.tokenManager().setMinTokenValidity(validiteMinimaleSecondes);
+    }
+
+    @Scheduled(fixedDelayString = "${keycloak.admin.token-refresh-interval:PT15S}")
+    public void rafraichir() {
+        try {
+            keycloak.tokenManager().getAccessTokenString();
+        } catch (Exception e) {
+            log.warn("⚠️ Rafraichissement du jeton admin Keycloak impossible : {}", e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.groupeisi.m2gl.trx_engine_g4.controller;
 
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertBatchDto;
 import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
 import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.service.TransfertBatchService;
 import com.groupeisi.m2gl.trx_engine_g4.service.TransfertService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,6 +11,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class TransfertController {
 
     private final TransfertService transfertService;
+    private final TransfertBatchService transfertBatchService;
 
     @PostMapping
     @Operation(
@@ -28,19 +32,44 @@ public class TransfertController {
                     "Le solde des deux comptes est mis à jour automatiquement."
     )
     @ApiResponses(value = {
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Transfert effectué avec succès"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Transfert effectué avec succès"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Erreur métier (solde insuffisant, comptes identiques, compte bloqué)"),
-            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Compte émetteur ou récepteur non trouvé")
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Compte émetteur ou récepteur non trouvé"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "Une requête avec la même clé d'idempotence est en cours"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "422", description = "Clé d'idempotence déjà utilisée pour une requête différente")
     })
-    public ApiResponse createTransfert(@RequestBody @Valid TransfertDto transfertDto) {
-        return transfertService.effectuerTransfert(transfertDto);
+    public ResponseEntity<ApiResponse> createTransfert(
+            @Parameter(description = "Clé unique générée par le client pour ce transfert ; une requête rejouée avec la même clé " +
+                    "renvoie la réponse d'origine sans refaire le transfert", example = "3f1c2a9e-6b1d-4c8e-9a57-0d2f5e7b8c41")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody @Valid TransfertDto transfertDto) {
+        ApiResponse response = transfertService.effectuerTransfert(transfertDto, idempotencyKey);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Effectuer un paiement groupé depuis un compte émetteur",
+            description = "Effectue en une seule opération les transferts d'un compte émetteur vers une liste de récepteurs " +
+                    "(paie des agents, versements marchands). Chaque ligne est validée contre le solde restant de l'émetteur ; " +
+                    "les lignes invalides sont rejetées sans bloquer les autres. La réponse donne le statut de chaque ligne."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Lot traité, statut par ligne"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Lot invalide ou compte émetteur bloqué"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Compte émetteur non trouvé")
+    })
+    public ApiResponse createTransfertsBatch(@RequestBody @Valid TransfertBatchDto transfertBatchDto) {
+        return transfertBatchService.effectuerTransfertsBatch(transfertBatchDto);
     }
 
     @GetMapping("/user/{phoneNumber}")
     @Operation(
             summary = "Récupérer l'historique des transferts d'un utilisateur",
-            description = "Retourne la liste de tous les transferts (émissions et réceptions) effectués par un utilisateur, " +
-                    "identifié par son numéro de téléphone. Inclut les détails de chaque transaction (montant, date, compte émetteur/récepteur)."
+            description = "Retourne une page des transferts (émissions et réceptions) effectués par un utilisateur, " +
+                    "identifié par son numéro de téléphone, du plus récent au plus ancien. Inclut les détails de chaque transaction " +
+                    "(montant, date, compte émetteur/récepteur). Pour obtenir la page suivante, renvoyer le champ 'curseur' " +
+                    "de la dernière transaction reçue."
     )
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Liste des transferts récupérée avec succès"),
@@ -49,7 +78,11 @@ public class TransfertController {
     public ApiResponse getTransfertsByUser(
             @Parameter(description = "Numéro de téléphone au format international", 
                        example = "+221771234567", required = true)
-            @PathVariable String phoneNumber) {
-        return transfertService.getTransfertsByUser(phoneNumber);
+            @PathVariable String phoneNumber,
+            @Parameter(description = "Curseur de la dernière transaction de la page précédente (absent pour la première page)")
+            @RequestParam(required = false) Long curseur,
+            @Parameter(description = "Nombre de transactions par page (max " + TransfertService.TAILLE_PAGE_MAX + ")", example = "20")
+            @RequestParam(defaultValue = "" + TransfertService.TAILLE_PAGE_PAR_DEFAUT) int taille) {
+        return transfertService.getTransfertsByUser(phoneNumber, curseur, taille);
     }
 }
@@ -4,16 +4,25 @@ import com.groupeisi.m2gl.trx_engine_g4.DTOs.CompleteProfileRequest;
 import com.groupeisi.m2gl.trx_engine_g4.DTOs.UserDto;
 import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
 import com.groupeisi.m2gl.trx_engine_g4.request.RegisterRequest;
+import com.groupeisi.m2gl.trx_engine_g4.service.ImportUtilisateursService;
 import com.groupeisi.m2gl.trx_engine_g4.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/users")
@@ -21,10 +30,12 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
+    private final ImportUtilisateursService importUtilisateursService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ImportUtilisateursService importUtilisateursService) {
         this.userService = userService;
+        this.importUtilisateursService = importUtilisateursService;
     }
 
     @PostMapping("/add")
@@ -128,4 +139,46 @@ public class UserController {
     public ResponseEntity<ApiResponse> completeProfile(@Valid @RequestBody CompleteProfileRequest request) {
         return ResponseEntity.ok(userService.completeProfile(request));
     }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(
+            summary = "Importer en masse des clients (CSV ou NDJSON)",
+            description = "Lit le fichier en flux (text/csv avec ligne d'en-tête, ou application/x-ndjson, un objet RegisterRequest par ligne). " +
+                    "Pour chaque ligne valide : utilisateur Keycloak avec son rôle, utilisateur local, compte client DISABLE et OTP par SMS, " +
+                    "comme /register/client. Les lignes sont traitées par lots en parallèle. Un import interrompu se reprend en renvoyant " +
+                    "le même fichier avec le paramètre reprise ; le rapport ligne par ligne est disponible sur /import/{id}/rapport."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Import terminé, bilan du job"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Import à reprendre introuvable"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "Import interrompu, à reprendre")
+    })
+    public ResponseEntity<ApiResponse> importerUtilisateurs(
+            @Parameter(description = "Id de l'import interrompu à reprendre (absent pour un nouvel import)")
+            @RequestParam(required = false) Long reprise,
+            HttpServletRequest request) throws IOException {
+        String format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? "CSV" : "NDJSON";
+        ApiResponse response = importUtilisateursService.importer(request.getInputStream(), format, reprise);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/import/{importId}")
+    @Operation(summary = "Bilan d'un import en masse", description = "Statut, point de reprise et compteurs (importés, déjà présents, rejetés).")
+    public ResponseEntity<ApiResponse> getImport(@PathVariable Long importId) {
+        ApiResponse response = importUtilisateursService.getImport(importId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping(value = "/import/{importId}/rapport", produces = "text/csv")
+    @Operation(summary = "Rapport ligne par ligne d'un import en masse", description = "CSV : ligne, téléphone, nom d'utilisateur, statut, motif, id Keycloak.")
+    public ResponseEntity<StreamingResponseBody> getRapportImport(@PathVariable Long importId) {
+        StreamingResponseBody corps = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            importUtilisateursService.ecrireRapport(importId, writer);
+        };
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=import-" + importId + ".csv")
+                .body(corps);
+    }
 }
@@ -0,0 +1,53 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compteurs SQL et Hibernate d'une requete HTTP, attaches au thread qui la traite (FiltreDiagnosticSql).
+ * Le travail deporte sur d'autres threads (outbox, SMS, moteur ledger, pool d'inscription) n'y est pas compte :
+ * il reste visible dans les metriques globales sql.requetes.
+ */
+final class ContexteRequete {
+
+    private static final ThreadLocal<ContexteRequete> COURANT = new ThreadLocal<>();
+
+    final String uri;
+    int instructions;
+    long dureeSqlNanos;
+    int entitesChargees;
+    int flushs;
+    // Nombre d'executions de chaque SELECT normalise, et sites d'appel des SELECT repetes au-dela du seuil N+1
+    private final Map<String, Integer> repetitions = new HashMap<>();
+    final Map<String, String> suspects = new LinkedHashMap<>();
+
+    private ContexteRequete(String uri) {
+        this.uri = uri;
+    }
+
+    static ContexteRequete ouvrir(String uri) {
+        ContexteRequete contexte = new ContexteRequete(uri);
+        COURANT.set(contexte);
+        return contexte;
+    }
+
+    static void fermer() {
+        COURANT.remove();
+    }
+
+    static ContexteRequete courant() {
+        return COURANT.get();
+    }
+
+    /**
+     * Compte une execution du SELECT et renvoie son nombre d'executions dans la requete.
+     */
+    int repeter(String sql) {
+        return repetitions.merge(sql, 1, Integer::sum);
+    }
+
+    int repetitions(String sql) {
+        return repetitions.getOrDefault(sql, 0);
+    }
+}
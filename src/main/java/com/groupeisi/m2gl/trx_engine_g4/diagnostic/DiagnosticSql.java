@@ -0,0 +1,263 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Diagnostic SQL integre, a la place des traces show-sql :
+ * - par requete HTTP (route) : instructions SQL executees, entites chargees par Hibernate, flushs ;
+ * - requetes lentes (au-dela de diagnostic.sql.seuil-lente) journalisees avec leur site d'appel dans l'application ;
+ * - N+1 : un meme SELECT execute au moins diagnostic.sql.seuil-n-plus-un fois dans une requete HTTP.
+ *
+ * Metriques : sql.requetes (timer, tag type), sql.lentes (tag type), sql.n_plus_un (tag endpoint),
+ * requete.sql.instructions, requete.hibernate.entites et requete.hibernate.flushs (tag endpoint).
+ * Les cumuls par route, les dernieres requetes lentes et les suspects N+1 sont servis par l'endpoint Actuator sql.
+ */
+@Slf4j
+public class DiagnosticSql {
+
+    private static final String RACINE = "com.groupeisi.m2gl.trx_engine_g4.";
+    private static final String PAQUET = DiagnosticSql.class.getPackageName() + ".";
+    // IN (?, ?, ?) de longueur variable ramene a une seule forme
+    private static final Pattern LISTE_PARAMETRES = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+    private static final int LONGUEUR_SQL_MAX = 1000;
+    private static final int SUSPECTS_MAX = 1000;
+
+    private final MeterRegistry meterRegistry;
+    private final long seuilLenteNanos;
+    private final int seuilNPlusUn;
+    private final int historique;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> compteurs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> distributions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StatsEndpoint> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SuspectNPlusUn> suspects = new ConcurrentHashMap<>();
+    // Dernieres requetes lentes, la plus recente en tete (acces synchronise)
+    private final Deque<RequeteLente> requetesLentes = new ArrayDeque<>();
+
+    public DiagnosticSql(MeterRegistry meterRegistry, Duration seuilLente, int seuilNPlusUn, int historique) {
+        this.meterRegistry = meterRegistry;
+        this.seuilLenteNanos = seuilLente.toNanos();
+        this.seuilNPlusUn = seuilNPlusUn;
+        this.historique = historique;
+    }
+
+    /**
+     * Une execution JDBC (un lot compte pour une instruction), sur n'importe quel thread.
+     */
+    void instructionExecutee(String sql, long nanos) {
+        String normalise = normaliser(sql);
+        String type = type(normalise);
+        timer(type).record(nanos, TimeUnit.NANOSECONDS);
+
+        ContexteRequete contexte = ContexteRequete.courant();
+        if (contexte != null) {
+            contexte.instructions++;
+            contexte.dureeSqlNanos += nanos;
+            // Site d'appel releve une seule fois, quand la repetition atteint le seuil
+            if (type.equals("select") && contexte.repeter(normalise) == seuilNPlusUn) {
+                contexte.suspects.put(normalise, siteAppel());
+            }
+        }
+
+        if (nanos >= seuilLenteNanos) {
+            RequeteLente lente = new RequeteLente(Instant.now(), TimeUnit.NANOSECONDS.toMillis(nanos), siteAppel(),
+                    contexte != null ? contexte.uri : null, normalise);
+            compteur("sql.lentes", "Requetes SQL au-dela du seuil de lenteur", "type", type).increment();
+            log.warn("🐢 Requete SQL lente ({} ms) depuis {}{} : {}", lente.dureeMs(), lente.site(),
+                    lente.uri() != null ? " [" + lente.uri() + "]" : "", normalise);
+            synchronized (requetesLentes) {
+                requetesLentes.addFirst(lente);
+                while (requetesLentes.size() > historique) {
+                    requetesLentes.removeLast();
+                }
+            }
+        }
+    }
+
+    void entiteChargee() {
+        ContexteRequete contexte = ContexteRequete.courant();
+        if (contexte != null) {
+            contexte.entitesChargees++;
+        }
+    }
+
+    void flush() {
+        ContexteRequete contexte = ContexteRequete.courant();
+        if (contexte != null) {
+            contexte.flushs++;
+        }
+    }
+
+    /**
+     * Fin d'une requete HTTP : cumuls de la route, metriques par requete et suspects N+1.
+     */
+    void requeteTerminee(String endpoint, ContexteRequete contexte) {
+        endpoints.computeIfAbsent(endpoint, e -> new StatsEndpoint()).enregistrer(contexte);
+        distribution("requete.sql.instructions", "Instructions SQL executees par requete HTTP", endpoint)
+                .record(contexte.instructions);
+        distribution("requete.hibernate.entites", "Entites chargees par Hibernate par requete HTTP", endpoint)
+                .record(contexte.entitesChargees);
+        distribution("requete.hibernate.flushs", "Flushs Hibernate par requete HTTP", endpoint)
+                .record(contexte.flushs);
+
+        contexte.suspects.forEach((sql, site) -> {
+            int repetitions = contexte.repetitions(sql);
+            compteur("sql.n_plus_un", "Requetes HTTP repetant un meme SELECT (N+1)", "endpoint", endpoint).increment();
+            String cle = endpoint + '\n' + sql;
+            if (!suspects.containsKey(cle) && suspects.size() >= SUSPECTS_MAX) {
+                return;
+            }
+            SuspectNPlusUn suspect = suspects.merge(cle,
+                    new SuspectNPlusUn(endpoint, sql, site, repetitions, 1, Instant.now()), SuspectNPlusUn::cumuler);
+            if (suspect.occurrences() == 1) {
+                log.warn("🔁 N+1 probable sur {} : {} executions depuis {} : {}", endpoint, repetitions, site, sql);
+            } else {
+                log.debug("🔁 N+1 sur {} ({} fois) : {} executions depuis {}", endpoint, suspect.occurrences(), repetitions, site);
+            }
+        });
+    }
+
+    public Rapport rapport() {
+        List<StatsEndpointVue> parEndpoint = new ArrayList<>();
+        endpoints.forEach((endpoint, stats) -> parEndpoint.add(stats.vue(endpoint)));
+        parEndpoint.sort(Comparator.comparingLong(StatsEndpointVue::instructions).reversed());
+
+        List<SuspectNPlusUn> parSuspect = new ArrayList<>(suspects.values());
+        parSuspect.sort(Comparator.comparingLong(SuspectNPlusUn::occurrences).reversed());
+
+        List<RequeteLente> lentes;
+        synchronized (requetesLentes) {
+            lentes = new ArrayList<>(requetesLentes);
+        }
+        return new Rapport(TimeUnit.NANOSECONDS.toMillis(seuilLenteNanos), seuilNPlusUn, parEndpoint, lentes, parSuspect);
+    }
+
+    /**
+     * Remet a zero les cumuls servis par l'endpoint (les metriques Micrometer ne sont pas touchees).
+     */
+    public void reinitialiser() {
+        endpoints.clear();
+        suspects.clear();
+        synchronized (requetesLentes) {
+            requetesLentes.clear();
+        }
+    }
+
+    static String normaliser(String sql) {
+        String compact = ESPACES.matcher(sql.strip()).replaceAll(" ");
+        compact = LISTE_PARAMETRES.matcher(compact).replaceAll("(?...)");
+        return compact.length() > LONGUEUR_SQL_MAX ? compact.substring(0, LONGUEUR_SQL_MAX) + "..." : compact;
+    }
+
+    static String type(String sql) {
+        int fin = sql.indexOf(' ');
+        String mot = (fin > 0 ? sql.substring(0, fin) : sql).toLowerCase(Locale.ROOT);
+        return switch (mot) {
+            case "select", "insert", "update", "delete" -> mot;
+            case "with" -> "select";
+            default -> "autre";
+        };
+    }
+
+    /**
+     * Premiere methode de l'application dans la pile (hors ce paquet et les proxys Spring), ex. TransfertService.getTransfertsByUser:<ligne>.
+     */
+    static String siteAppel() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(RACINE)
+                        && !frame.getClassName().startsWith(PAQUET)
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .orElse("hors application"));
+    }
+
+    private Timer timer(String type) {
+        return timers.computeIfAbsent(type, t -> Timer.builder("sql.requetes")
+                .description("Duree des executions JDBC, par type d'instruction")
+                .tag("type", t)
+                .register(meterRegistry));
+    }
+
+    private Counter compteur(String nom, String description, String tag, String valeur) {
+        return compteurs.computeIfAbsent(nom + '|' + valeur, cle -> Counter.builder(nom)
+                .description(description)
+                .tag(tag, valeur)
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary distribution(String nom, String description, String endpoint) {
+        return distributions.computeIfAbsent(nom + '|' + endpoint, cle -> DistributionSummary.builder(nom)
+                .description(description)
+                .tag("endpoint", endpoint)
+                .register(meterRegistry));
+    }
+
+    private static final class StatsEndpoint {
+        private final LongAdder requetes = new LongAdder();
+        private final LongAdder instructions = new LongAdder();
+        private final LongAccumulator instructionsMax = new LongAccumulator(Math::max, 0);
+        private final LongAdder entites = new LongAdder();
+        private final LongAdder flushs = new LongAdder();
+        private final LongAdder dureeSqlNanos = new LongAdder();
+
+        void enregistrer(ContexteRequete contexte) {
+            requetes.increment();
+            instructions.add(contexte.instructions);
+            instructionsMax.accumulate(contexte.instructions);
+            entites.add(contexte.entitesChargees);
+            flushs.add(contexte.flushs);
+            dureeSqlNanos.add(contexte.dureeSqlNanos);
+        }
+
+        StatsEndpointVue vue(String endpoint) {
+            long n = Math.max(1, requetes.sum());
+            return new StatsEndpointVue(endpoint, requetes.sum(), instructions.sum(),
+                    (double) instructions.sum() / n, instructionsMax.get(),
+                    (double) entites.sum() / n, (double) flushs.sum() / n,
+                    dureeSqlNanos.sum() / 1e6 / n);
+        }
+    }
+
+    public record StatsEndpointVue(String endpoint, long requetes, long instructions, double instructionsParRequete,
+                                   long instructionsMax, double entitesParRequete, double flushsParRequete,
+                                   double dureeSqlMsParRequete) {
+    }
+
+    public record RequeteLente(Instant date, long dureeMs, String site, String uri, String sql) {
+    }
+
+    public record SuspectNPlusUn(String endpoint, String sql, String site, int repetitionsMax, long occurrences,
+                                 Instant derniereDetection) {
+        SuspectNPlusUn cumuler(SuspectNPlusUn autre) {
+            return new SuspectNPlusUn(endpoint, sql, site, Math.max(repetitionsMax, autre.repetitionsMax),
+                    occurrences + autre.occurrences, autre.derniereDetection);
+        }
+    }
+
+    public record Rapport(long seuilLenteMs, int seuilNPlusUn, List<StatsEndpointVue> endpoints,
+                          List<RequeteLente> requetesLentes, List<SuspectNPlusUn> suspectsNPlusUn) {
+    }
+}
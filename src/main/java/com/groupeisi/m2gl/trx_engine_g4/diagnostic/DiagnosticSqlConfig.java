@@ -0,0 +1,81 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Branchement du diagnostic SQL : DataSource enveloppe par datasource-proxy (toutes les executions JDBC),
+ * ecouteurs Hibernate (entites chargees, flushs), filtre HTTP (contexte par requete) et endpoint Actuator sql.
+ * Uniquement si diagnostic.sql.enabled=true : rien n'est enveloppe ni expose par defaut.
+ */
+@Configuration
+@ConditionalOnProperty(name = "diagnostic.sql.enabled", havingValue = "true")
+public class DiagnosticSqlConfig {
+
+    @Bean
+    public DiagnosticSql diagnosticSql(MeterRegistry meterRegistry,
+                                       @Value("${diagnostic.sql.seuil-lente:200ms}") Duration seuilLente,
+                                       @Value("${diagnostic.sql.seuil-n-plus-un:5}") int seuilNPlusUn,
+                                       @Value("${diagnostic.sql.historique:100}") int historique) {
+        return new DiagnosticSql(meterRegistry, seuilLente, seuilNPlusUn, historique);
+    }
+
+    /**
+     * Methode statique : le post-processeur est cree avant les autres beans de la configuration.
+     */
+    @Bean
+    public static BeanPostProcessor diagnosticSqlDataSourcePostProcessor(ObjectProvider<DiagnosticSql> diagnosticSql) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new EcouteurSql(diagnosticSql.getObject()))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<FiltreDiagnosticSql> filtreDiagnosticSql(DiagnosticSql diagnosticSql) {
+        FilterRegistrationBean<FiltreDiagnosticSql> enregistrement = new FilterRegistrationBean<>(new FiltreDiagnosticSql(diagnosticSql));
+        // Avant la chaine de securite : tout le SQL de la requete est compte
+        enregistrement.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return enregistrement;
+    }
+
+    @Bean
+    EcouteursHibernate diagnosticSqlEcouteursHibernate(EntityManagerFactory entityManagerFactory, DiagnosticSql diagnosticSql) {
+        EcouteursHibernate ecouteurs = new EcouteursHibernate(diagnosticSql);
+        EventListenerRegistry registre = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registre.appendListeners(EventType.POST_LOAD, ecouteurs);
+        registre.appendListeners(EventType.FLUSH, ecouteurs);
+        registre.appendListeners(EventType.AUTO_FLUSH, ecouteurs);
+        return ecouteurs;
+    }
+
+    @Bean
+    public DiagnosticSqlEndpoint diagnosticSqlEndpoint(DiagnosticSql diagnosticSql) {
+        return new DiagnosticSqlEndpoint(diagnosticSql);
+    }
+}
@@ -0,0 +1,29 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Endpoint Actuator /actuator/sql (port de management) : cumuls SQL et Hibernate par route,
+ * dernieres requetes lentes et suspects N+1. DELETE remet les cumuls a zero (apres une correction, un tir de charge).
+ */
+@Endpoint(id = "sql")
+public class DiagnosticSqlEndpoint {
+
+    private final DiagnosticSql diagnosticSql;
+
+    public DiagnosticSqlEndpoint(DiagnosticSql diagnosticSql) {
+        this.diagnosticSql = diagnosticSql;
+    }
+
+    @ReadOperation
+    public DiagnosticSql.Rapport rapport() {
+        return diagnosticSql.rapport();
+    }
+
+    @DeleteOperation
+    public void reinitialiser() {
+        diagnosticSql.reinitialiser();
+    }
+}
@@ -0,0 +1,36 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Ecouteur datasource-proxy : chaque execution JDBC passant par le DataSource (JPA, JdbcTemplate, Flyway)
+ * est transmise a DiagnosticSql avec sa duree.
+ */
+class EcouteurSql implements QueryExecutionListener {
+
+    private static final String DEBUT = EcouteurSql.class.getName() + ".debut";
+
+    private final DiagnosticSql diagnosticSql;
+
+    EcouteurSql(DiagnosticSql diagnosticSql) {
+        this.diagnosticSql = diagnosticSql;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execution, List<QueryInfo> requetes) {
+        execution.addCustomValue(DEBUT, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execution, List<QueryInfo> requetes) {
+        Long debut = execution.getCustomValue(DEBUT, Long.class);
+        if (debut == null || requetes.isEmpty()) {
+            return;
+        }
+        diagnosticSql.instructionExecutee(requetes.get(0).getQuery(), System.nanoTime() - debut);
+    }
+}
@@ -0,0 +1,38 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+
+/**
+ * Ecouteurs d'evenements Hibernate ajoutes apres ceux par defaut : entites chargees et flushs de la requete HTTP.
+ * Un auto-flush n'est compte que s'il a reellement eu lieu (entites modifiees avant une requete).
+ */
+class EcouteursHibernate implements PostLoadEventListener, FlushEventListener, AutoFlushEventListener {
+
+    private final DiagnosticSql diagnosticSql;
+
+    EcouteursHibernate(DiagnosticSql diagnosticSql) {
+        this.diagnosticSql = diagnosticSql;
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        diagnosticSql.entiteChargee();
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        diagnosticSql.flush();
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        if (event.isFlushRequired()) {
+            diagnosticSql.flush();
+        }
+    }
+}
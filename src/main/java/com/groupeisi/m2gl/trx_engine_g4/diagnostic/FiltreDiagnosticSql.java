@@ -0,0 +1,40 @@
+package com.groupeisi.m2gl.trx_engine_g4.diagnostic;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Ouvre le contexte de diagnostic SQL d'une requete HTTP et le transmet a DiagnosticSql a la fin.
+ * Les cumuls sont ranges par route (methode + motif du controleur, ex. GET /api/transferts/user/{phoneNumber}) :
+ * le nombre de series reste borne quels que soient les identifiants dans les URL.
+ */
+class FiltreDiagnosticSql extends OncePerRequestFilter {
+
+    private final DiagnosticSql diagnosticSql;
+
+    FiltreDiagnosticSql(DiagnosticSql diagnosticSql) {
+        this.diagnosticSql = diagnosticSql;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContexteRequete contexte = ContexteRequete.ouvrir(request.getMethod() + " " + request.getRequestURI());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContexteRequete.fermer();
+            Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            // Requetes sans route (404, ressources statiques) : comptees seulement si elles ont touche la base
+            if (motif != null || contexte.instructions > 0) {
+                diagnosticSql.requeteTerminee(request.getMethod() + " " + (motif != null ? motif : "(sans route)"), contexte);
+            }
+        }
+    }
+}
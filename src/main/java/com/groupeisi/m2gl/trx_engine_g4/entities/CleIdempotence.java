@@ -0,0 +1,39 @@
+package com.groupeisi.m2gl.trx_engine_g4.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Reponse memorisee pour une cle Idempotency-Key de transfert, propre au compte emetteur.
+ * empreinte : SHA-256 de la requete d'origine ; statusCode = 0 tant que le transfert associe est en cours.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "uk_cle_idempotence_emetteur_cle", columnList = "compte_emetteur, cle", unique = true),
+        @Index(name = "idx_cle_idempotence_date", columnList = "date_creation")
+})
+public class CleIdempotence {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private UUID compteEmetteur;
+
+    @Column(nullable = false, length = 100)
+    private String cle;
+
+    @Column(nullable = false, length = 64)
+    private String empreinte;
+
+    private String message;
+
+    private int statusCode;
+
+    private LocalDateTime dateCreation;
+}
@@ -4,10 +4,12 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
+@DynamicUpdate  // Une sauvegarde du compte (statut, OTP) ne reecrit pas le snapshot maintenu par le compacteur
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,7 +19,9 @@ public class Compte {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    private float solde;
+    // Snapshot du solde en unites mineures (FCFA entiers) : somme des ecritures marquees compactee.
+    // Le solde courant est ce snapshot plus la queue du journal (voir CompteRepository.findSoldeCourant).
+    private long solde;
 
     @Column(unique = true, nullable = false)
     private UUID numCompte;
@@ -10,6 +10,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})  // ✅ AJOUTÉ
+// Historique anterieur au journal, plus lu par compte (l'historique lit ecriture_journal) : pas d'index par compte
 public class DetailsTransaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
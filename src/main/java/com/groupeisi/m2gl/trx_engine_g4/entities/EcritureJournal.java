@@ -0,0 +1,50 @@
+package com.groupeisi.m2gl.trx_engine_g4.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ligne du journal des mouvements, en partie double : chaque transfert ecrit une ligne de debit
+ * (montant negatif) sur l'emetteur et une ligne de credit (montant positif) sur le recepteur,
+ * liees par la meme referenceOperation. Les lignes ne sont jamais supprimees ; seul l'indicateur compactee
+ * passe a vrai quand CompacteurJournal integre la ligne au snapshot de solde de son compte.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+// La queue du journal d'un compte (solde courant) est servie par l'index partiel idx_ecriture_non_compactee
+// (num_compte) WHERE compactee = FALSE, cree par la migration V3 : un index partiel ne s'exprime pas en JPA
+@Table(indexes = {
+        // (compte, id) : historique par curseur
+        @Index(name = "idx_ecriture_compte_id", columnList = "num_compte, id")
+})
+public class EcritureJournal {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID numCompte;
+
+    @Column(nullable = false)
+    private UUID contrepartie;
+
+    // Unites mineures, signe : negatif au debit, positif au credit
+    @Column(nullable = false)
+    private long montant;
+
+    @Column(nullable = false)
+    private LocalDateTime dateEcriture;
+
+    @Column(nullable = false)
+    private UUID referenceOperation;
+
+    // Deja integree au snapshot de solde du compte (defaut en base : les insertions SQL ne la renseignent pas)
+    @Column(nullable = false)
+    @ColumnDefault("false")
+    private boolean compactee;
+}
@@ -0,0 +1,39 @@
+package com.groupeisi.m2gl.trx_engine_g4.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Execution d'un import en masse d'utilisateurs (CSV ou NDJSON).
+ * derniereLigneValidee est le point de reprise : toutes les lignes jusqu'a ce numero sont traitees et validees en base.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // CSV, NDJSON
+    @Column(nullable = false, length = 10)
+    private String format;
+
+    // EN_COURS, TERMINE, INTERROMPU
+    @Column(nullable = false, length = 20)
+    private String statut;
+
+    private LocalDateTime dateDebut;
+
+    private LocalDateTime dateFin;
+
+    private long derniereLigneValidee;
+
+    private long importes;
+
+    private long dejaPresents;
+
+    private long rejetes;
+}
@@ -0,0 +1,38 @@
+package com.groupeisi.m2gl.trx_engine_g4.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Resultat d'une ligne d'un import en masse (rapport ligne par ligne).
+ * Ecrit par lots JDBC avec les utilisateurs du lot, dans la meme transaction. Les utilisateurs crees dans Keycloak
+ * sont en plus traces (CREE_KEYCLOAK) des la reponse de Keycloak, dans une transaction a part, hors rapport.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_import_ligne_job", columnList = "job_id, numero_ligne"))
+public class ImportLigne {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long jobId;
+
+    private long numeroLigne;
+
+    private String telephone;
+
+    private String nomUtilisateur;
+
+    // IMPORTE, DEJA_PRESENT, REJETE, CREE_KEYCLOAK
+    @Column(nullable = false, length = 20)
+    private String statut;
+
+    @Column(length = 500)
+    private String motif;
+
+    private String keycloakId;
+}
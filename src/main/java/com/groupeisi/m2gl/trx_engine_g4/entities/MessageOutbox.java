@@ -0,0 +1,41 @@
+package com.groupeisi.m2gl.trx_engine_g4.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Notification a delivrer, ecrite dans la meme transaction que le changement metier qui la produit.
+ * La ligne est supprimee une fois delivree par le relais (OutboxRelay).
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Sink destinataire : SMS, CREDIT_TRANSFERT
+    @Column(nullable = false, length = 30)
+    private String type;
+
+    // Numero de telephone (SMS) ou numCompte (CREDIT_TRANSFERT)
+    @Column(nullable = false, length = 100)
+    private String destinataire;
+
+    @Column(nullable = false, length = 1000)
+    private String contenu;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+
+    // Date a partir de laquelle le relais peut (re)tenter la livraison (ou fin du bail d'un lot reserve)
+    @Column(name = "disponible_a", nullable = false)
+    private LocalDateTime disponibleA;
+
+    private int tentatives;
+
+    private boolean abandonne;
+}
@@ -15,7 +15,8 @@ public class Transfert {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    private float montant;
+    // Unites mineures (FCFA entiers)
+    private long montant;
 
     private LocalDateTime dateTransfert;
 
@@ -1,4 +1,5 @@
 package com.groupeisi.m2gl.trx_engine_g4.exception;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -42,8 +43,8 @@ public class GlobalExceptionHandler {
     }
 
     // 3. Gestion des erreurs métier (Solde insuffisant, comptes identiques, compte bloqué)
-    // Ces erreurs sont levées explicitement dans le TransfertService (IllegalArgumentException/IllegalStateException).
-    @ExceptionHandler({IllegalArgumentException.class, IllegalStateException.class})
+    // Ces erreurs sont levées explicitement dans le TransfertService (TransfertRefuseException, IllegalArgumentException/IllegalStateException).
+    @ExceptionHandler({TransfertRefuseException.class, IllegalArgumentException.class, IllegalStateException.class})
     public ResponseEntity<ApiErrorResponse> handleBusinessLogicErrors(RuntimeException ex) {
         ApiErrorResponse errorResponse = new ApiErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
@@ -62,6 +63,11 @@ public class GlobalExceptionHandler {
         if (ex.getMessage() != null && ex.getMessage().contains("UUID has to be represented by standard 36-char representation")) {
             errorMessage = "Erreur de format UUID. L'identifiant de compte doit être au format 36 caractères standard.";
         }
+        // Nombre a decimales pour un montant entier (spring.jackson.deserialization.accept-float-as-int=false)
+        if (ex.getCause() instanceof InvalidFormatException format && format.getValue() instanceof Number
+                && (format.getTargetType() == Long.class || format.getTargetType() == long.class)) {
+            errorMessage = "Montant invalide : les montants sont des entiers en FCFA, sans décimales.";
+        }
 
         ApiResponse errorResponse = new ApiResponse(
                 errorMessage,
@@ -0,0 +1,33 @@
+package com.groupeisi.m2gl.trx_engine_g4.exception;
+
+import lombok.Getter;
+
+/**
+ * Transfert refuse par une regle metier, avec son motif : les metriques et les appelants
+ * s'appuient sur le motif, jamais sur le texte du message.
+ */
+@Getter
+public class TransfertRefuseException extends RuntimeException {
+
+    @Getter
+    public enum Motif {
+        SOLDE_INSUFFISANT("solde_insuffisant"),
+        MEME_COMPTE("meme_compte"),
+        COMPTE_BLOQUE("compte_bloque"),
+        MOTEUR_SATURE("moteur_sature");
+
+        // Valeur du tag motif de la metrique transfert.echecs
+        private final String code;
+
+        Motif(String code) {
+            this.code = code;
+        }
+    }
+
+    private final Motif motif;
+
+    public TransfertRefuseException(Motif motif, String message) {
+        super(message);
+        this.motif = motif;
+    }
+}
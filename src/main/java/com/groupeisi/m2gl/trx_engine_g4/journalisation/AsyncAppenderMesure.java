@@ -0,0 +1,41 @@
+package com.groupeisi.m2gl.trx_engine_g4.journalisation;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AsyncAppender de logback qui compte les evenements qu'il abandonne, au lieu de les perdre en silence :
+ * - seuil_rejet : file remplie au-dela du seuil (discardingThreshold), evenements INFO et en dessous ecartes ;
+ * - file_pleine : file pleine avec neverBlock, l'evenement n'est pas mis en attente (le thread appelant ne bloque pas).
+ * Les compteurs sont exposes par MetriquesJournalisation (logs.evenements.perdus).
+ */
+public class AsyncAppenderMesure extends AsyncAppender {
+
+    private final LongAdder rejetesSeuil = new LongAdder();
+    private final LongAdder rejetesFilePleine = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent evenement) {
+        int restant = getRemainingCapacity();
+        if (restant < getDiscardingThreshold() && isDiscardable(evenement)) {
+            rejetesSeuil.increment();
+            return;
+        }
+        // Meme decision que la file avec neverBlock ; une place liberee entre-temps ne fait perdre qu'un evenement de plus
+        if (restant == 0 && isNeverBlock()) {
+            rejetesFilePleine.increment();
+            return;
+        }
+        super.append(evenement);
+    }
+
+    public long getRejetesSeuil() {
+        return rejetesSeuil.sum();
+    }
+
+    public long getRejetesFilePleine() {
+        return rejetesFilePleine.sum();
+    }
+}
@@ -0,0 +1,112 @@
+package com.groupeisi.m2gl.trx_engine_g4.journalisation;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Echantillonnage par logger des evenements a fort debit (lectures de solde, historique) : pour un logger configure
+ * "logger=N", un evenement INFO (ou en dessous) sur N est garde. WARN et ERROR ne sont jamais echantillonnes.
+ *
+ * La decision est prise avant la construction de l'evenement : un evenement ecarte ne coute ni formatage
+ * ni allocation (avec l'API fluente, log.atInfo() renvoie alors un builder vide).
+ * Configuration (logback-spring.xml, propriete logging.echantillonnage) : liste "logger=N" separee par des virgules ;
+ * un logger couvre aussi ses descendants, le nom le plus long l'emporte.
+ */
+public class EchantillonnageTurboFilter extends TurboFilter {
+
+    private static final Echantillon AUCUN = new Echantillon("", 1);
+
+    private final List<Echantillon> echantillons = new ArrayList<>();
+    // Echantillon applicable a chaque nom de logger deja rencontre
+    private final Map<String, Echantillon> parLogger = new ConcurrentHashMap<>();
+
+    public void setEchantillons(String configuration) {
+        echantillons.clear();
+        parLogger.clear();
+        if (configuration == null || configuration.isBlank()) {
+            return;
+        }
+        for (String entree : configuration.split(",")) {
+            String[] parties = entree.trim().split("=");
+            if (parties.length != 2) {
+                addError("Echantillon invalide (attendu logger=N) : " + entree);
+                continue;
+            }
+            try {
+                int taux = Integer.parseInt(parties[1].trim());
+                if (taux > 1) {
+                    echantillons.add(new Echantillon(parties[0].trim(), taux));
+                }
+            } catch (NumberFormatException e) {
+                addError("Taux d'echantillonnage invalide pour " + parties[0].trim() + " : " + parties[1]);
+            }
+        }
+        echantillons.sort(Comparator.comparingInt((Echantillon e) -> e.logger.length()).reversed());
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (echantillons.isEmpty() || level == null || level.isGreaterOrEqual(Level.WARN)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Echantillon echantillon = parLogger.computeIfAbsent(logger.getName(), this::chercher);
+        if (echantillon == AUCUN || echantillon.garder()) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+    private Echantillon chercher(String nom) {
+        for (Echantillon echantillon : echantillons) {
+            if (nom.equals(echantillon.logger) || nom.startsWith(echantillon.logger + ".")) {
+                return echantillon;
+            }
+        }
+        return AUCUN;
+    }
+
+    public List<Echantillon> getEchantillons() {
+        return Collections.unmodifiableList(echantillons);
+    }
+
+    public static final class Echantillon {
+        private final String logger;
+        private final int taux;
+        private final AtomicLong sequence = new AtomicLong();
+        private final LongAdder ecartes = new LongAdder();
+
+        private Echantillon(String logger, int taux) {
+            this.logger = logger;
+            this.taux = taux;
+        }
+
+        private boolean garder() {
+            if (sequence.getAndIncrement() % taux == 0) {
+                return true;
+            }
+            ecartes.increment();
+            return false;
+        }
+
+        public String getLogger() {
+            return logger;
+        }
+
+        public long getEcartes() {
+            return ecartes.sum();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.groupeisi.m2gl.trx_engine_g4.journalisation;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Metriques de la journalisation, lues sur la configuration logback en place :
+ * - logs.evenements.perdus (tags appender, cause) : evenements abandonnes par un AsyncAppenderMesure ;
+ * - logs.file.occupation (tag appender) : evenements en attente d'ecriture ;
+ * - logs.evenements.echantillonnes (tag logger) : evenements ecartes par l'echantillonnage.
+ * Sans profil logs-prod, aucun de ces composants n'est configure et aucune metrique n'est enregistree.
+ */
+@Component
+public class MetriquesJournalisation implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ILoggerFactory fabrique = LoggerFactory.getILoggerFactory();
+        if (!(fabrique instanceof LoggerContext contexte)) {
+            return;
+        }
+
+        Iterator<Appender<ILoggingEvent>> appenders = contexte.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof AsyncAppenderMesure async) {
+                FunctionCounter.builder("logs.evenements.perdus", async, AsyncAppenderMesure::getRejetesSeuil)
+                        .description("Evenements de log abandonnes par l'appender asynchrone")
+                        .tags("appender", async.getName(), "cause", "seuil_rejet")
+                        .register(registry);
+                FunctionCounter.builder("logs.evenements.perdus", async, AsyncAppenderMesure::getRejetesFilePleine)
+                        .description("Evenements de log abandonnes par l'appender asynchrone")
+                        .tags("appender", async.getName(), "cause", "file_pleine")
+                        .register(registry);
+                Gauge.builder("logs.file.occupation", async, AsyncAppenderMesure::getNumberOfElementsInQueue)
+                        .description("Evenements de log en attente d'ecriture")
+                        .tag("appender", async.getName())
+                        .register(registry);
+            }
+        }
+
+        for (TurboFilter filtre : contexte.getTurboFilterList()) {
+            if (filtre instanceof EchantillonnageTurboFilter echantillonnage) {
+                for (EchantillonnageTurboFilter.Echantillon echantillon : echantillonnage.getEchantillons()) {
+                    FunctionCounter.builder("logs.evenements.echantillonnes", echantillon, EchantillonnageTurboFilter.Echantillon::getEcartes)
+                            .description("Evenements de log ecartes par l'echantillonnage")
+                            .tag("logger", echantillon.getLogger())
+                            .register(registry);
+                }
+            }
+        }
+    }
+}
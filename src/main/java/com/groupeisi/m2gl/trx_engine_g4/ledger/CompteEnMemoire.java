@@ -0,0 +1,22 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Etat d'un compte tel que detenu par son shard.
+ * N'est lu et modifie que par le thread du shard proprietaire.
+ */
+@Data
+@AllArgsConstructor
+class CompteEnMemoire {
+    private final UUID numCompte;
+    private long solde;
+    private String status;
+
+    boolean isBloque() {
+        return "BLOQUE".equalsIgnoreCase(status);
+    }
+}
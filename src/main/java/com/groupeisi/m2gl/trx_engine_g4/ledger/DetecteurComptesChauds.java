@@ -0,0 +1,70 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detecte les comptes qui recoivent beaucoup de credits (gros marchands) en comptant les credits
+ * par compte sur une fenetre glissante. Un compte devient chaud au-dela du seuil et le reste
+ * tant qu'il recoit au moins la moitie du seuil par fenetre (hysteresis, pour eviter les bascules).
+ */
+@Slf4j
+@Component
+class DetecteurComptesChauds {
+
+    private final boolean actif;
+    private final long seuil;
+    private volatile ConcurrentHashMap<UUID, LongAdder> credits = new ConcurrentHashMap<>();
+    private volatile Set<UUID> chauds = Set.of();
+
+    DetecteurComptesChauds(@Value("${ledger.stripes.enabled:true}") boolean actif,
+                           @Value("${ledger.stripes.seuil-credits:500}") long seuil) {
+        this.actif = actif;
+        this.seuil = seuil;
+    }
+
+    /**
+     * Compte un credit pour ce recepteur et indique s'il est actuellement chaud.
+     */
+    boolean enregistrerCredit(UUID numCompte) {
+        if (!actif) {
+            return false;
+        }
+        credits.computeIfAbsent(numCompte, k -> new LongAdder()).increment();
+        return chauds.contains(numCompte);
+    }
+
+    boolean estChaud(UUID numCompte) {
+        return chauds.contains(numCompte);
+    }
+
+    @Scheduled(fixedRateString = "${ledger.stripes.fenetre:PT10S}")
+    void basculerFenetre() {
+        if (!actif) {
+            return;
+        }
+        ConcurrentHashMap<UUID, LongAdder> fenetre = credits;
+        credits = new ConcurrentHashMap<>();
+
+        Set<UUID> anciens = chauds;
+        Set<UUID> nouveaux = new HashSet<>();
+        fenetre.forEach((numCompte, compteur) -> {
+            long n = compteur.sum();
+            if (n >= seuil || (anciens.contains(numCompte) && n >= seuil / 2)) {
+                nouveaux.add(numCompte);
+            }
+        });
+        if (!nouveaux.equals(anciens)) {
+            log.info("🔥 Comptes chauds (credits repartis sur les shards) : {}", nouveaux);
+        }
+        chauds = Set.copyOf(nouveaux);
+    }
+}
@@ -0,0 +1,315 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import com.groupeisi.m2gl.trx_engine_g4.service.JournalService;
+import com.groupeisi.m2gl.trx_engine_g4.service.Montants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Moteur de transfert en memoire, optionnel (ledger.engine.enabled).
+ *
+ * Les comptes sont repartis par hash du numCompte sur N shards mono-thread qui detiennent les soldes.
+ * - Transfert intra-shard : une seule commande, executee sans verrou.
+ * - Transfert inter-shards : protocole deterministe en deux etapes, debit sur le shard emetteur
+ *   puis credit sur le shard recepteur. Le recepteur est verifie avant le debit ; si le credit echoue malgre tout,
+ *   le debit est rendu a l'emetteur.
+ * - Recepteur chaud (gros marchand, voir {@link DetecteurComptesChauds}) : le credit est garde en sous-solde
+ *   sur le shard de l'emetteur, les paiements entrants sont donc traites en parallele sur tous les shards ;
+ *   les sous-soldes sont reportes sur le compte periodiquement, ou a la demande quand il doit etre debite.
+ * La persistance dans le journal est faite de facon asynchrone par {@link LedgerPersister}.
+ */
+@Slf4j
+@Component
+public class LedgerEngine {
+
+    private final boolean enabled;
+    private final LedgerShard[] shards;
+    private final LedgerPersister persister;
+    private final DetecteurComptesChauds detecteur;
+    private final Set<UUID> comptesAvecSousSoldes = ConcurrentHashMap.newKeySet();
+
+    public LedgerEngine(CompteRepository compteRepository, LedgerPersister persister, DetecteurComptesChauds detecteur,
+                        @Value("${ledger.engine.enabled:false}") boolean enabled,
+                        @Value("${ledger.engine.shards:4}") int nbShards,
+                        @Value("${ledger.engine.queue-capacity:10000}") int capacite,
+                        @Value("${ledger.engine.submit-timeout-ms:5000}") long delaiSoumissionMs) {
+        this.enabled = enabled;
+        this.persister = persister;
+        this.detecteur = detecteur;
+        this.shards = new LedgerShard[nbShards];
+        for (int i = 0; i < nbShards; i++) {
+            shards[i] = new LedgerShard(i, capacite, delaiSoumissionMs, compteRepository);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    void demarrer() {
+        if (!enabled) {
+            return;
+        }
+        persister.demarrer();
+        for (LedgerShard shard : shards) {
+            shard.demarrer();
+        }
+        log.info("Moteur ledger demarre avec {} shards", shards.length);
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        for (LedgerShard shard : shards) {
+            shard.arreter();
+        }
+        persister.arreter();
+    }
+
+    public ApiResponse effectuerTransfert(TransfertDto transfertDto) {
+        UUID uuidEmetteur = transfertDto.getCompteEmetteur();
+        UUID uuidRecepteur = transfertDto.getCompteRecepteur();
+
+        if (uuidEmetteur.equals(uuidRecepteur)) {
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.MEME_COMPTE,
+                    "Impossible d'effectuer un transfert vers le même compte.");
+        }
+
+        boolean recepteurChaud = detecteur.enregistrerCredit(uuidRecepteur);
+        try {
+            transferer(transfertDto, recepteurChaud);
+        } catch (TransfertRefuseException refus) {
+            // Une partie du solde d'un compte chaud peut etre repartie sur les autres shards : on la rapatrie puis on reessaie
+            if (refus.getMotif() != TransfertRefuseException.Motif.SOLDE_INSUFFISANT
+                    || !comptesAvecSousSoldes.contains(uuidEmetteur) && !detecteur.estChaud(uuidEmetteur)) {
+                throw refus;
+            }
+            rapatrier(uuidEmetteur);
+            transferer(transfertDto, recepteurChaud);
+        }
+
+        return new ApiResponse(
+                "La transaction a été effectuée avec succès.",
+                HttpStatus.CREATED.value(),
+                null
+        );
+    }
+
+    private void transferer(TransfertDto transfertDto, boolean recepteurChaud) {
+        long montant = transfertDto.getMontant();
+        UUID uuidEmetteur = transfertDto.getCompteEmetteur();
+        UUID uuidRecepteur = transfertDto.getCompteRecepteur();
+
+        LedgerShard shardEmetteur = shardDe(uuidEmetteur);
+        LedgerShard shardRecepteur = shardDe(uuidRecepteur);
+        LocalDateTime date = LocalDateTime.now();
+
+        if (shardEmetteur == shardRecepteur) {
+            attendre(shardEmetteur.soumettre(shard -> {
+                CompteEnMemoire emetteur = shard.compteOuErreur(uuidEmetteur, "émetteur");
+                CompteEnMemoire recepteur = shard.compteOuErreur(uuidRecepteur, "récepteur");
+                verifierStatuts(emetteur, recepteur);
+                debiter(emetteur, montant);
+                crediter(recepteur, montant);
+                persister.publierTransfert(uuidEmetteur, uuidRecepteur, montant, date);
+                return null;
+            }, false));
+        } else if (recepteurChaud) {
+            // Recepteur chaud : le credit est garde en sous-solde sur le shard de l'emetteur, en une seule commande,
+            // au lieu de passer par le shard du recepteur qui serialiserait tous ses paiements entrants
+            comptesAvecSousSoldes.add(uuidRecepteur);
+            attendre(shardEmetteur.soumettre(shard -> {
+                CompteEnMemoire emetteur = shard.compteOuErreur(uuidEmetteur, "émetteur");
+                shard.verifierPeutRecevoir(uuidRecepteur);
+                verifierStatuts(emetteur);
+                debiter(emetteur, montant);
+                shard.ajouterSousSolde(uuidRecepteur, montant);
+                persister.publierTransfert(uuidEmetteur, uuidRecepteur, montant, date);
+                return null;
+            }, false));
+        } else {
+            // Etape 0 : le recepteur existe et peut recevoir
+            attendre(shardRecepteur.soumettre(shard -> {
+                CompteEnMemoire recepteur = shard.compteOuErreur(uuidRecepteur, "récepteur");
+                verifierStatuts(recepteur);
+                return null;
+            }, false));
+            // Etape 1 : debit sur le shard emetteur
+            attendre(shardEmetteur.soumettre(shard -> {
+                CompteEnMemoire emetteur = shard.compteOuErreur(uuidEmetteur, "émetteur");
+                verifierStatuts(emetteur);
+                debiter(emetteur, montant);
+                return null;
+            }, false));
+            // Etape 2 : credit sur le shard recepteur, garanti une fois le debit effectue
+            try {
+                attendre(shardRecepteur.soumettre(shard -> {
+                    CompteEnMemoire recepteur = shard.compteOuErreur(uuidRecepteur, "récepteur");
+                    long solde = Montants.additionner(recepteur.getSolde(), montant);
+                    persister.publierTransfert(uuidEmetteur, uuidRecepteur, montant, date);
+                    recepteur.setSolde(solde);
+                    return null;
+                }, true));
+            } catch (RuntimeException echec) {
+                compenserDebit(shardEmetteur, uuidEmetteur, montant);
+                throw echec;
+            }
+        }
+    }
+
+    /**
+     * Le credit d'un transfert inter-shards a echoue (relecture du recepteur impossible, depassement de capacite) :
+     * rien n'a ete publie, le debit deja applique est donc rendu a l'emetteur.
+     */
+    private void compenserDebit(LedgerShard shardEmetteur, UUID uuidEmetteur, long montant) {
+        attendre(shardEmetteur.soumettre(shard -> {
+            crediter(shard.compteOuErreur(uuidEmetteur, "émetteur"), montant);
+            return null;
+        }, true));
+        log.warn("⚠️ Credit inter-shards echoue : debit de {} rendu au compte {}", montant, uuidEmetteur);
+    }
+
+    /**
+     * Reporte sur le shard proprietaire les sous-soldes d'un compte chaud repartis sur les autres shards
+     * (repli a la lecture, quand un debit de ce compte ne passe pas avec son seul solde principal).
+     */
+    private void rapatrier(UUID numCompte) {
+        LedgerShard proprietaire = shardDe(numCompte);
+        long total = 0;
+        for (LedgerShard shard : shards) {
+            if (shard != proprietaire) {
+                total = Montants.additionner(total, attendre(shard.soumettre(s -> s.retirerSousSolde(numCompte), true)));
+            }
+        }
+        if (total > 0) {
+            long montant = total;
+            attendre(proprietaire.soumettre(s -> {
+                crediter(s.compteOuErreur(numCompte, "émetteur"), montant);
+                return null;
+            }, true));
+        }
+    }
+
+    /**
+     * Report periodique de tous les sous-soldes sur les comptes proprietaires.
+     * Pendant le report, le montant n'est visible ni en sous-solde ni sur le compte : un debit concurrent
+     * peut etre refuse a tort, jamais accepte a tort.
+     */
+    @Scheduled(fixedDelayString = "${ledger.stripes.intervalle-report:PT1S}")
+    void reporterSousSoldes() {
+        if (!enabled) {
+            return;
+        }
+        comptesAvecSousSoldes.clear();
+        for (LedgerShard shard : shards) {
+            Map<UUID, Long> sousSoldes = attendre(shard.soumettre(LedgerShard::retirerSousSoldes, true));
+            sousSoldes.forEach((numCompte, montant) -> shardDe(numCompte).soumettre(s -> {
+                crediter(s.compteOuErreur(numCompte, "récepteur"), montant);
+                return null;
+            }, true));
+        }
+    }
+
+    /**
+     * Activation d'un compte : nouveau statut et credit d'ouverture, appliques par une commande sur le shard proprietaire.
+     * Le credit est journalise par le persister comme un transfert depuis le compte d'emission, au meme titre
+     * que les autres transferts du moteur : le compte n'est jamais relu depuis la base, ce qui ferait compter
+     * deux fois les transferts encore en file ou les sous-soldes pas encore reportes.
+     * Dans une transaction, la commande est differee apres le commit.
+     */
+    public void activerCompte(UUID numCompte, String statut, long creditOuverture) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appliquerActivation(numCompte, statut, creditOuverture);
+                }
+            });
+        } else {
+            appliquerActivation(numCompte, statut, creditOuverture);
+        }
+    }
+
+    private void appliquerActivation(UUID numCompte, String statut, long creditOuverture) {
+        LocalDateTime date = LocalDateTime.now();
+        LedgerShard proprietaire = shardDe(numCompte);
+        // Le statut garde par les autres shards (recepteur chaud) sera relu
+        for (LedgerShard shard : shards) {
+            if (shard != proprietaire) {
+                shard.soumettre(s -> { s.oublierStatut(numCompte); return null; }, true);
+            }
+        }
+        attendre(proprietaire.soumettre(shard -> {
+            CompteEnMemoire compte = shard.compteOuErreur(numCompte, "récepteur");
+            long solde = Montants.additionner(compte.getSolde(), creditOuverture);
+            persister.publierTransfert(JournalService.COMPTE_EMISSION, numCompte, creditOuverture, date);
+            compte.setSolde(solde);
+            compte.setStatus(statut);
+            return null;
+        }, true));
+    }
+
+    private LedgerShard shardDe(UUID numCompte) {
+        return shards[Math.floorMod(numCompte.hashCode(), shards.length)];
+    }
+
+    private void verifierStatuts(CompteEnMemoire... comptes) {
+        for (CompteEnMemoire compte : comptes) {
+            if (compte.isBloque()) {
+                throw new TransfertRefuseException(TransfertRefuseException.Motif.COMPTE_BLOQUE, "L'un des comptes est bloqué ou inactif.");
+            }
+        }
+    }
+
+    private void debiter(CompteEnMemoire emetteur, long montant) {
+        if (emetteur.getSolde() < montant) {
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.SOLDE_INSUFFISANT,
+                    "Solde insuffisant pour effectuer ce transfert. Solde actuel: " + emetteur.getSolde());
+        }
+        emetteur.setSolde(Montants.soustraire(emetteur.getSolde(), montant));
+    }
+
+    private void crediter(CompteEnMemoire recepteur, long montant) {
+        recepteur.setSolde(Montants.additionner(recepteur.getSolde(), montant));
+    }
+
+    /**
+     * Une commande acceptee par un shard est toujours executee : on attend donc sa fin sans delai,
+     * la contre-pression s'appliquant au moment de la soumission.
+     */
+    private <T> T attendre(CompletableFuture<T> etape) {
+        try {
+            return etape.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Transfert interrompu.");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.MessageOutboxRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
+import com.groupeisi.m2gl.trx_engine_g4.service.JournalService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ecrit de facon asynchrone, par lots, les transferts du moteur ledger dans le journal,
+ * avec l'avis de credit de chaque recepteur dans l'outbox (meme transaction que ses ecritures).
+ * Les soldes ne sont jamais ecrits : ils se deduisent du journal (snapshot + queue).
+ *
+ * Un lot n'est jamais abandonne : tant que la base le refuse, il est reessaye avec une attente croissante (plafonnee).
+ * Pendant ce temps la file se remplit, puis bloque les shards qui publient : les nouveaux transferts sont refuses
+ * a la soumission (moteur sature) au lieu d'etre acceptes sans pouvoir etre journalises.
+ */
+@Slf4j
+@Component
+class LedgerPersister {
+
+    private static final long ATTENTE_INITIALE_MS = 200;
+    private static final long ATTENTE_MAX_MS = 30_000;
+
+    private final EcritureJournalRepository ecritureJournalRepository;
+    private final MessageOutboxRepository messageOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<TransfertApplique> evenements;
+    private final int tailleLot;
+    private final Counter echecs;
+    private final Thread worker;
+    private volatile boolean actif = true;
+    // Transferts sortis de la file mais pas encore journalises
+    private volatile int enCours;
+
+    LedgerPersister(EcritureJournalRepository ecritureJournalRepository,
+                    MessageOutboxRepository messageOutboxRepository,
+                    TransactionTemplate transactionTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${ledger.engine.persist-queue-capacity:100000}") int capacite,
+                    @Value("${ledger.engine.persist-batch-size:500}") int tailleLot) {
+        this.ecritureJournalRepository = ecritureJournalRepository;
+        this.messageOutboxRepository = messageOutboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.evenements = new ArrayBlockingQueue<>(capacite);
+        this.tailleLot = tailleLot;
+        this.echecs = Counter.builder("ledger.persistance.echecs")
+                .description("Tentatives de persistance d'un lot ledger refusees par la base")
+                .register(meterRegistry);
+        Gauge.builder("ledger.persistance.en_attente", this, LedgerPersister::enAttente)
+                .description("Transferts ledger appliques en memoire et pas encore journalises")
+                .register(meterRegistry);
+        this.worker = new Thread(this::boucle, "ledger-persister");
+        this.worker.setDaemon(true);
+    }
+
+    void demarrer() {
+        worker.start();
+    }
+
+    void arreter() throws InterruptedException {
+        actif = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+        if (worker.isAlive()) {
+            log.error("❌ Persister ledger arrete avant d'avoir pu tout journaliser : {} transfert(s) non persiste(s)", enAttente());
+        }
+    }
+
+    int enAttente() {
+        return evenements.size() + enCours;
+    }
+
+    /**
+     * Appele depuis un thread de shard. Bloque si la persistance a pris trop de retard (base indisponible),
+     * ce qui arrete le shard plutot que de perdre des ecritures.
+     */
+    void publierTransfert(UUID emetteur, UUID recepteur, long montant, LocalDateTime date) {
+        try {
+            evenements.put(new TransfertApplique(emetteur, recepteur, montant, date));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Publication interrompue", e);
+        }
+    }
+
+    private void boucle() {
+        List<TransfertApplique> lot = new ArrayList<>(tailleLot);
+        while (actif) {
+            try {
+                lot.add(evenements.take());
+                evenements.drainTo(lot, tailleLot - 1);
+                enCours = lot.size();
+                persister(lot);
+                lot.clear();
+                enCours = 0;
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        evenements.drainTo(lot);
+        enCours = lot.size();
+        if (!lot.isEmpty()) {
+            persister(lot);
+        }
+        enCours = 0;
+        log.info("Persister ledger arrete");
+    }
+
+    /**
+     * Reessaie jusqu'au succes. L'arret du persister n'interrompt pas un lot en cours :
+     * arreter() attend sa fin, dans la limite de son delai.
+     */
+    private void persister(List<TransfertApplique> lot) {
+        long attente = ATTENTE_INITIALE_MS;
+        for (int tentative = 1; ; tentative++) {
+            // Entites neuves a chaque tentative : celles d'une transaction annulee ont garde leur id genere
+            List<EcritureJournal> ecritures = ecritures(lot);
+            List<MessageOutbox> avis = avisCredit(lot);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    ecritureJournalRepository.saveAll(ecritures);
+                    messageOutboxRepository.saveAll(avis);
+                });
+                if (tentative > 1) {
+                    log.info("✅ Lot ledger persiste a la tentative {} ({} transferts)", tentative, lot.size());
+                }
+                return;
+            } catch (Exception e) {
+                echecs.increment();
+                log.error("❌ Echec de persistance d'un lot ledger ({} transferts), tentative {}, nouvel essai dans {} ms : {}",
+                        lot.size(), tentative, attente, e.getMessage(), e);
+                patienter(attente);
+                attente = Math.min(attente * 2, ATTENTE_MAX_MS);
+            }
+        }
+    }
+
+    private static List<EcritureJournal> ecritures(List<TransfertApplique> lot) {
+        List<EcritureJournal> ecritures = new ArrayList<>(lot.size() * 2);
+        for (TransfertApplique t : lot) {
+            ecritures.addAll(JournalService.ecrituresTransfert(t.emetteur(), t.recepteur(), t.montant(), t.date()));
+        }
+        return ecritures;
+    }
+
+    // Pas d'avis pour un credit d'ouverture (emis par le compte d'emission), comme hors moteur
+    private static List<MessageOutbox> avisCredit(List<TransfertApplique> lot) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<MessageOutbox> avis = new ArrayList<>(lot.size());
+        for (TransfertApplique t : lot) {
+            if (!JournalService.COMPTE_EMISSION.equals(t.emetteur())) {
+                avis.add(new MessageOutbox(null, OutboxService.TYPE_CREDIT_TRANSFERT, t.recepteur().toString(),
+                        OutboxService.messageCredit(t.montant()), maintenant, maintenant, 0, false));
+            }
+        }
+        return avis;
+    }
+
+    // L'interruption signale l'arret (actif = false) : elle ne doit pas faire abandonner le lot
+    private static void patienter(long millis) {
+        long fin = System.currentTimeMillis() + millis;
+        long reste = millis;
+        while (reste > 0) {
+            try {
+                Thread.sleep(reste);
+            } catch (InterruptedException ignoree) {
+                // reprise de l'attente
+            }
+            reste = fin - System.currentTimeMillis();
+        }
+    }
+
+    private record TransfertApplique(UUID emetteur, UUID recepteur, long montant, LocalDateTime date) {}
+}
@@ -0,0 +1,158 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import com.groupeisi.m2gl.trx_engine_g4.service.Montants;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Worker mono-thread proprietaire d'une partition des comptes.
+ * Toutes les commandes d'un shard s'executent sequentiellement sur son thread :
+ * les soldes qu'il detient ne sont donc jamais accedes en concurrence et aucun verrou n'est necessaire.
+ */
+@Slf4j
+class LedgerShard {
+
+    private final int index;
+    private final BlockingQueue<Runnable> commandes;
+    private final Map<UUID, CompteEnMemoire> comptes = new HashMap<>();
+    // Credits recus pour des comptes chauds detenus par un autre shard, pas encore reportes sur leur solde
+    private final Map<UUID, Long> sousSoldes = new HashMap<>();
+    private final Map<UUID, String> statutsDistants = new HashMap<>();
+    private final CompteRepository compteRepository;
+    private final long delaiSoumissionMs;
+    private final Thread worker;
+    private volatile boolean actif = true;
+
+    LedgerShard(int index, int capacite, long delaiSoumissionMs, CompteRepository compteRepository) {
+        this.index = index;
+        this.commandes = new ArrayBlockingQueue<>(capacite);
+        this.delaiSoumissionMs = delaiSoumissionMs;
+        this.compteRepository = compteRepository;
+        this.worker = new Thread(this::boucle, "ledger-shard-" + index);
+        this.worker.setDaemon(true);
+    }
+
+    void demarrer() {
+        worker.start();
+    }
+
+    void arreter() throws InterruptedException {
+        actif = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Soumet une commande au shard.
+     * Si {@code garantie} est vrai, l'appelant attend qu'une place se libere dans la file
+     * (utilise pour le credit d'un transfert inter-shards, qui ne doit jamais etre perdu).
+     * Sinon la commande est refusee quand la file reste pleine au-dela du delai de soumission.
+     */
+    <T> CompletableFuture<T> soumettre(Function<LedgerShard, T> commande, boolean garantie) {
+        CompletableFuture<T> resultat = new CompletableFuture<>();
+        Runnable tache = () -> {
+            try {
+                resultat.complete(commande.apply(this));
+            } catch (Throwable e) {
+                resultat.completeExceptionally(e);
+            }
+        };
+        try {
+            if (garantie) {
+                commandes.put(tache);
+            } else if (!commandes.offer(tache, delaiSoumissionMs, TimeUnit.MILLISECONDS)) {
+                resultat.completeExceptionally(
+                        new TransfertRefuseException(TransfertRefuseException.Motif.MOTEUR_SATURE,
+                                "Moteur de transfert sature, veuillez reessayer."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultat.completeExceptionally(e);
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le compte detenu par ce shard, en le chargeant depuis la base au premier acces
+     * (solde courant = snapshot + journal).
+     * Ne doit etre appele que depuis le thread du shard.
+     */
+    CompteEnMemoire compteOuErreur(UUID numCompte, String type) {
+        CompteEnMemoire compte = comptes.get(numCompte);
+        if (compte == null) {
+            Optional<Compte> enBase = compteRepository.findByNumCompte(numCompte);
+            if (enBase.isEmpty()) {
+                throw new EntityNotFoundException("Compte " + type + " introuvable : " + numCompte);
+            }
+            long solde = compteRepository.findSoldeCourant(numCompte).orElseThrow();
+            compte = new CompteEnMemoire(numCompte, solde, enBase.get().getStatus());
+            comptes.put(numCompte, compte);
+        }
+        return compte;
+    }
+
+    /**
+     * Verifie qu'un compte detenu par un autre shard existe et peut recevoir (statut lu une fois puis garde).
+     */
+    void verifierPeutRecevoir(UUID numCompte) {
+        String statut = statutsDistants.get(numCompte);
+        if (statut == null) {
+            statut = compteRepository.findByNumCompte(numCompte)
+                    .orElseThrow(() -> new EntityNotFoundException("Compte récepteur introuvable : " + numCompte))
+                    .getStatus();
+            statutsDistants.put(numCompte, String.valueOf(statut));
+        }
+        if ("BLOQUE".equalsIgnoreCase(statut)) {
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.COMPTE_BLOQUE, "L'un des comptes est bloqué ou inactif.");
+        }
+    }
+
+    void ajouterSousSolde(UUID numCompte, long montant) {
+        sousSoldes.merge(numCompte, montant, Montants::additionner);
+    }
+
+    long retirerSousSolde(UUID numCompte) {
+        Long montant = sousSoldes.remove(numCompte);
+        return montant != null ? montant : 0;
+    }
+
+    Map<UUID, Long> retirerSousSoldes() {
+        Map<UUID, Long> retires = new HashMap<>(sousSoldes);
+        sousSoldes.clear();
+        return retires;
+    }
+
+    void oublierStatut(UUID numCompte) {
+        statutsDistants.remove(numCompte);
+    }
+
+    private void boucle() {
+        while (actif) {
+            try {
+                commandes.take().run();
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        // On vide la file pour que les transferts deja acceptes aillent jusqu'au bout
+        List<Runnable> restantes = new ArrayList<>();
+        commandes.drainTo(restantes);
+        restantes.forEach(Runnable::run);
+        log.info("Shard ledger {} arrete ({} commandes finales executees)", index, restantes.size());
+    }
+}
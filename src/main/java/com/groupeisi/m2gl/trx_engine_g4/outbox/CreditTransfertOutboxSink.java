@@ -0,0 +1,51 @@
+package com.groupeisi.m2gl.trx_engine_g4.outbox;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import com.groupeisi.m2gl.trx_engine_g4.service.ContrepartieCache;
+import com.groupeisi.m2gl.trx_engine_g4.service.SmsService;
+import com.groupeisi.m2gl.trx_engine_g4.sms.SmsMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Avis de credit par SMS : le telephone du recepteur est resolu pour tout le lot en une fois
+ * (cache des contreparties), hors de la transaction du transfert.
+ */
+@Component
+@RequiredArgsConstructor
+public class CreditTransfertOutboxSink implements OutboxSink {
+
+    private final ContrepartieCache contrepartieCache;
+    private final SmsService smsService;
+
+    @Override
+    public String type() {
+        return OutboxService.TYPE_CREDIT_TRANSFERT;
+    }
+
+    @Override
+    public void livrer(List<MessageOutbox> lot) {
+        Set<UUID> recepteurs = lot.stream().map(m -> UUID.fromString(m.getDestinataire())).collect(Collectors.toSet());
+        Map<UUID, ContrepartieDto> contreparties = contrepartieCache.getAll(recepteurs);
+
+        List<SmsMessage> sms = new ArrayList<>(lot.size());
+        for (MessageOutbox message : lot) {
+            ContrepartieDto recepteur = contreparties.get(UUID.fromString(message.getDestinataire()));
+            // Compte sans utilisateur ni telephone (compte technique) : rien a envoyer
+            if (recepteur != null && recepteur.getTelephone() != null) {
+                sms.add(new SmsMessage(recepteur.getTelephone(), message.getContenu()));
+            }
+        }
+        if (!sms.isEmpty()) {
+            smsService.envoyerLot(sms);
+        }
+    }
+}
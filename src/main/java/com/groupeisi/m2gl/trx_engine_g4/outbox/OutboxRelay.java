@@ -0,0 +1,212 @@
+package com.groupeisi.m2gl.trx_engine_g4.outbox;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Relais de l'outbox : des workers reservent des lots de messages avec FOR UPDATE SKIP LOCKED
+ * (plusieurs workers, ou plusieurs instances, ne se bloquent pas et ne prennent jamais le meme message).
+ * La reservation est un bail : disponible_a est repousse de outbox.relay.bail et la transaction est validee
+ * aussitot. Les messages sont livres hors transaction (aucun verrou ni connexion retenus pendant l'appel au
+ * fournisseur SMS), puis supprimes. Si le worker tombe, le bail expire et le lot est repris par un autre.
+ *
+ * Un lot en echec reste dans la table et est retente avec un delai exponentiel, puis marque abandonne.
+ * Tant qu'il reste des messages, les workers enchainent les lots sans attendre.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String SELECTION =
+            "SELECT id, type, destinataire, contenu, date_creation, disponible_a, tentatives, abandonne " +
+            "FROM message_outbox WHERE abandonne = false AND disponible_a <= ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final RowMapper<MessageOutbox> MAPPER = (rs, i) -> new MessageOutbox(
+            rs.getLong("id"),
+            rs.getString("type"),
+            rs.getString("destinataire"),
+            rs.getString("contenu"),
+            rs.getTimestamp("date_creation").toLocalDateTime(),
+            rs.getTimestamp("disponible_a").toLocalDateTime(),
+            rs.getInt("tentatives"),
+            rs.getBoolean("abandonne"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, OutboxSink> sinks;
+    private final boolean enabled;
+    private final int tailleLot;
+    private final long intervalleMs;
+    private final int maxTentatives;
+    private final Duration bail;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Counter livres;
+    private final Counter echecs;
+    private volatile boolean actif = true;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, List<OutboxSink> sinks,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${outbox.relay.workers:2}") int nbWorkers,
+                       @Value("${outbox.relay.taille-lot:500}") int tailleLot,
+                       @Value("${outbox.relay.intervalle-ms:200}") long intervalleMs,
+                       @Value("${outbox.relay.max-tentatives:10}") int maxTentatives,
+                       @Value("${outbox.relay.bail:PT2M}") Duration bail) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sinks = sinks.stream().collect(Collectors.toMap(OutboxSink::type, Function.identity()));
+        this.enabled = enabled;
+        this.tailleLot = tailleLot;
+        this.intervalleMs = intervalleMs;
+        this.maxTentatives = maxTentatives;
+        this.bail = bail;
+        for (int i = 0; i < nbWorkers; i++) {
+            Thread worker = new Thread(this::boucle, "outbox-relay-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        this.livres = meterRegistry.counter("outbox.livres");
+        this.echecs = meterRegistry.counter("outbox.echecs");
+    }
+
+    @PostConstruct
+    void demarrer() {
+        if (enabled) {
+            workers.forEach(Thread::start);
+        }
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        actif = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void boucle() {
+        while (actif) {
+            int traites;
+            try {
+                traites = traiterLot();
+            } catch (Exception e) {
+                log.error("Erreur du relais outbox : {}", e.getMessage(), e);
+                traites = 0;
+            }
+            if (traites < tailleLot) {
+                try {
+                    Thread.sleep(intervalleMs);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    int traiterLot() {
+        List<MessageOutbox> lot = reserver();
+        if (lot.isEmpty()) {
+            return 0;
+        }
+
+        List<MessageOutbox> delivres = new ArrayList<>(lot.size());
+        List<MessageOutbox> enEchec = new ArrayList<>();
+        lot.stream().collect(Collectors.groupingBy(MessageOutbox::getType)).forEach((type, messages) -> {
+            OutboxSink sink = sinks.get(type);
+            if (sink == null) {
+                log.error("Aucun sink outbox pour le type {} ({} messages)", type, messages.size());
+                enEchec.addAll(messages);
+                return;
+            }
+            try {
+                sink.livrer(messages);
+                delivres.addAll(messages);
+            } catch (RuntimeException e) {
+                log.warn("Echec de livraison de {} messages outbox de type {} : {}", messages.size(), type, e.getMessage());
+                enEchec.addAll(messages);
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            supprimer(delivres);
+            reporter(enEchec);
+        });
+        livres.increment(delivres.size());
+        echecs.increment(enEchec.size());
+        return lot.size();
+    }
+
+    /**
+     * Reserve un lot : les lignes verrouillees sont repoussees jusqu'a la fin du bail, puis la transaction
+     * est validee. Les autres workers ne les voient plus tant que le bail court.
+     */
+    private List<MessageOutbox> reserver() {
+        List<MessageOutbox> lot = transactionTemplate.execute(status -> {
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<MessageOutbox> selection = jdbcTemplate.query(SELECTION, MAPPER, Timestamp.valueOf(maintenant), tailleLot);
+            if (!selection.isEmpty()) {
+                Timestamp finBail = Timestamp.valueOf(maintenant.plus(bail));
+                jdbcTemplate.batchUpdate("UPDATE message_outbox SET disponible_a = ? WHERE id = ?",
+                        selection, selection.size(), (ps, m) -> {
+                            ps.setTimestamp(1, finBail);
+                            ps.setLong(2, m.getId());
+                        });
+            }
+            return selection;
+        });
+        return lot != null ? lot : List.of();
+    }
+
+    private void supprimer(List<MessageOutbox> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM message_outbox WHERE id = ?", messages, messages.size(),
+                (ps, m) -> ps.setLong(1, m.getId()));
+    }
+
+    private void reporter(List<MessageOutbox> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        LocalDateTime maintenant = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(
+                "UPDATE message_outbox SET tentatives = ?, disponible_a = ?, abandonne = ? WHERE id = ?",
+                messages, messages.size(),
+                (ps, m) -> {
+                    int tentatives = m.getTentatives() + 1;
+                    boolean abandonne = tentatives >= maxTentatives;
+                    if (abandonne) {
+                        log.error("❌ Message outbox {} ({}) abandonne apres {} tentatives", m.getId(), m.getType(), tentatives);
+                    }
+                    ps.setInt(1, tentatives);
+                    // Delai exponentiel : 2, 4, 8 ... secondes, plafonne a 10 minutes
+                    ps.setTimestamp(2, Timestamp.valueOf(maintenant.plusSeconds(Math.min(1L << tentatives, 600))));
+                    ps.setBoolean(3, abandonne);
+                    ps.setLong(4, m.getId());
+                });
+    }
+}
@@ -0,0 +1,47 @@
+package com.groupeisi.m2gl.trx_engine_g4.outbox;
+
+import com.groupeisi.m2gl.trx_engine_g4.Repository.MessageOutboxRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ecriture des notifications dans l'outbox. Doit etre appele dans la transaction du changement metier :
+ * la notification existe si et seulement si ce changement est valide.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    public static final String TYPE_SMS = "SMS";
+    public static final String TYPE_CREDIT_TRANSFERT = "CREDIT_TRANSFERT";
+
+    private final MessageOutboxRepository messageOutboxRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publierSms(String telephone, String message) {
+        publier(TYPE_SMS, telephone, message);
+    }
+
+    /**
+     * Avis de credit au recepteur d'un transfert ; son telephone est resolu au moment de la livraison.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publierCreditTransfert(UUID recepteur, long montant) {
+        publier(TYPE_CREDIT_TRANSFERT, recepteur.toString(), messageCredit(montant));
+    }
+
+    public static String messageCredit(long montant) {
+        return String.format("Vous avez reçu %d FCFA.", montant);
+    }
+
+    private void publier(String type, String destinataire, String contenu) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        messageOutboxRepository.save(new MessageOutbox(null, type, destinataire, contenu, maintenant, maintenant, 0, false));
+    }
+}
@@ -0,0 +1,17 @@
+package com.groupeisi.m2gl.trx_engine_g4.outbox;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+
+import java.util.List;
+
+/**
+ * Destination des messages de l'outbox d'un type donne.
+ * Recoit un lot ; une exception signale l'echec du lot entier, qui sera retente plus tard.
+ * La livraison est au moins une fois : un meme message peut etre recu deux fois apres une panne.
+ */
+public interface OutboxSink {
+
+    String type();
+
+    void livrer(List<MessageOutbox> lot);
+}
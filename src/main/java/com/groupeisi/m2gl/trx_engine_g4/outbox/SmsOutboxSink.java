@@ -0,0 +1,28 @@
+package com.groupeisi.m2gl.trx_engine_g4.outbox;
+
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import com.groupeisi.m2gl.trx_engine_g4.service.SmsService;
+import com.groupeisi.m2gl.trx_engine_g4.sms.SmsMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class SmsOutboxSink implements OutboxSink {
+
+    private final SmsService smsService;
+
+    @Override
+    public String type() {
+        return OutboxService.TYPE_SMS;
+    }
+
+    @Override
+    public void livrer(List<MessageOutbox> lot) {
+        smsService.envoyerLot(lot.stream()
+                .map(m -> new SmsMessage(m.getDestinataire(), m.getContenu()))
+                .toList());
+    }
+}
@@ -0,0 +1,111 @@
+package com.groupeisi.m2gl.trx_engine_g4.reactif;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * Chemin de lecture reactif, a cote des controleurs MVC : un serveur Netty sur son propre port
+ * (lecture.reactive.port) sert les deux lectures les plus sollicitees, aux memes chemins que l'API MVC :
+ * GET /api/compte/by-phone/{telephone} et GET /api/transferts/user/{phoneNumber}.
+ *
+ * Un petit nombre fixe de threads d'event loop et un pool R2DBC borne servent des milliers de clients
+ * en polling : une requete en attente de la base ne retient ni thread ni connexion.
+ * Les deux lectures sont publiques cote MVC ; elles le restent ici.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "lecture.reactive.enabled", havingValue = "true")
+public class LectureReactiveConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool lectureConnectionPool(@Value("${lecture.reactive.r2dbc.url}") String url,
+                                                @Value("${spring.datasource.username}") String utilisateur,
+                                                @Value("${spring.datasource.password}") String motDePasse,
+                                                @Value("${lecture.reactive.r2dbc.pool-size:8}") int taillePool) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, utilisateur)
+                .option(ConnectionFactoryOptions.PASSWORD, motDePasse)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(2, taillePool))
+                .maxSize(taillePool)
+                .maxIdleTime(Duration.ofMinutes(10))
+                .maxAcquireTime(Duration.ofSeconds(5))
+                .name("lecture-reactive")
+                .build());
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> lectureReactiveRoutes(ConnectionPool lectureConnectionPool) {
+        LectureReactiveHandler handler = new LectureReactiveHandler(
+                new LectureReactiveRepository(DatabaseClient.create(lectureConnectionPool)));
+        return RouterFunctions.route()
+                .route(GET("/api/compte/by-phone/{telephone}"), handler::getCompteByPhone)
+                .route(GET("/api/transferts/user/{phoneNumber}"), handler::getTransfertsByUser)
+                .build();
+    }
+
+    /**
+     * Le serveur est demarre et arrete avec le contexte Spring (apres le serveur MVC).
+     */
+    @Bean
+    public SmartLifecycle lectureReactiveServeur(RouterFunction<ServerResponse> lectureReactiveRoutes, ObjectMapper objectMapper,
+                                                 @Value("${lecture.reactive.port:8090}") int port,
+                                                 @Value("${lecture.reactive.event-loop-threads:4}") int threads) {
+        // Meme configuration JSON que l'API MVC : les ApiResponse sont serialisees a l'identique
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory(port);
+        factory.addServerCustomizers(serveur -> serveur.runOn(LoopResources.create("lecture-reactive", threads, true)));
+        WebServer serveur = factory.getWebServer(RouterFunctions.toHttpHandler(lectureReactiveRoutes, strategies));
+
+        return new SmartLifecycle() {
+            private volatile boolean demarre;
+
+            @Override
+            public void start() {
+                serveur.start();
+                demarre = true;
+                log.info("⚡ Lecture reactive (soldes, historique) sur le port {}", serveur.getPort());
+            }
+
+            @Override
+            public void stop() {
+                serveur.stop();
+                demarre = false;
+            }
+
+            @Override
+            public boolean isRunning() {
+                return demarre;
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.groupeisi.m2gl.trx_engine_g4.reactif;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.service.TransfertService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Solde et historique en lecture non bloquante. Les reponses ont la meme forme (ApiResponse, memes cles,
+ * memes messages) que CompteController.getCompteByPhone et TransfertController.getTransfertsByUser.
+ */
+@Slf4j
+class LectureReactiveHandler {
+
+    private final LectureReactiveRepository repository;
+
+    LectureReactiveHandler(LectureReactiveRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Comme le controleur MVC : le statut HTTP reprend le statusCode de l'ApiResponse.
+     */
+    Mono<ServerResponse> getCompteByPhone(ServerRequest request) {
+        String telephone = request.pathVariable("telephone");
+        return repository.findCompteByTelephone(telephone)
+                .map(compte -> {
+                    if (compte.numCompte() == null) {
+                        return new ApiResponse("Aucun compte trouve pour cet utilisateur", 404, false);
+                    }
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("numCompte", compte.numCompte().toString());
+                    data.put("solde", compte.solde());
+                    data.put("typeCompte", compte.typeCompte());
+                    data.put("status", compte.status());
+                    data.put("dateCreation", compte.dateCreation() != null ? compte.dateCreation().toString() : null);
+                    return new ApiResponse("Compte recupere avec succes", 200, data);
+                })
+                .defaultIfEmpty(new ApiResponse("Utilisateur non trouve avec ce numero de telephone", 404, false))
+                .onErrorResume(e -> {
+                    log.error("❌ Erreur lors de la recuperation du compte: {}", e.getMessage(), e);
+                    return Mono.just(new ApiResponse("Erreur lors de la recuperation du compte: " + e.getMessage(), 500, false));
+                })
+                .flatMap(reponse -> ServerResponse.status(reponse.getStatusCode())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(reponse));
+    }
+
+    /**
+     * Comme le controleur MVC : toujours HTTP 200, le statut metier est dans l'ApiResponse.
+     */
+    Mono<ServerResponse> getTransfertsByUser(ServerRequest request) {
+        String phoneNumber = request.pathVariable("phoneNumber");
+        long curseur = request.queryParam("curseur").map(Long::parseLong).orElse(Long.MAX_VALUE);
+        int taille = request.queryParam("taille").map(Integer::parseInt).orElse(TransfertService.TAILLE_PAGE_PAR_DEFAUT);
+        int tailleBornee = Math.min(Math.max(taille, 1), TransfertService.TAILLE_PAGE_MAX);
+
+        Mono<ApiResponse> reponse = repository.findCompteByTelephone(phoneNumber)
+                .flatMap(compte -> {
+                    if (compte.numCompte() == null) {
+                        return Mono.just(new ApiResponse("Aucun compte trouve", 404, false));
+                    }
+                    return repository.findEcrituresAvant(compte.numCompte(), curseur, tailleBornee)
+                            .map(LectureReactiveHandler::ligneHistorique)
+                            .collectList()
+                            .map(transactions -> new ApiResponse("Historique recupere avec succes", 200, transactions));
+                })
+                .defaultIfEmpty(new ApiResponse("Utilisateur non trouve", 404, false))
+                .onErrorResume(e -> {
+                    log.error("❌ Erreur lors de la recuperation de l'historique: {}", e.getMessage(), e);
+                    return Mono.just(new ApiResponse("Erreur: " + e.getMessage(), 500, false));
+                });
+        return reponse.flatMap(r -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(r));
+    }
+
+    private static Map<String, Object> ligneHistorique(LectureReactiveRepository.EcritureLue e) {
+        boolean isDebit = e.montant() < 0;
+        ContrepartieDto autre = e.contrepartie();
+
+        Map<String, Object> transaction = new HashMap<>();
+        transaction.put("id", e.id());
+        transaction.put("montant", Math.abs(e.montant()));
+        transaction.put("date", e.dateEcriture().toString());
+        transaction.put("isDebit", isDebit);
+        transaction.put("type", isDebit ? "SORTIE" : "ENTREE");
+        transaction.put("autreNom", autre != null ? autre.getNomAffiche() : "Inconnu");
+        transaction.put("autreTelephone", autre != null ? autre.getTelephone() : "");
+        transaction.put("curseur", e.id());
+        return transaction;
+    }
+}
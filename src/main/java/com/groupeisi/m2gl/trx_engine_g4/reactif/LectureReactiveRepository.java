@@ -0,0 +1,78 @@
+package com.groupeisi.m2gl.trx_engine_g4.reactif;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Requetes de lecture non bloquantes (R2DBC) des soldes et de l'historique.
+ * Memes requetes que le chemin JPA (CompteRepository.findSoldeCourant, EcritureJournalRepository.findByNumCompteAvant),
+ * ecrites en SQL ; les contreparties de l'historique sont jointes dans la meme requete.
+ */
+class LectureReactiveRepository {
+
+    /**
+     * Utilisateur trouve par telephone ; numCompte est null s'il n'a pas encore de compte.
+     */
+    record CompteLu(UUID numCompte, String typeCompte, String status, LocalDate dateCreation, long solde, String nomUtilisateur) {
+    }
+
+    record EcritureLue(long id, long montant, LocalDateTime dateEcriture, ContrepartieDto contrepartie) {
+    }
+
+    private final DatabaseClient databaseClient;
+
+    LectureReactiveRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    Mono<CompteLu> findCompteByTelephone(String telephone) {
+        return databaseClient.sql("SELECT u.nom_utilisateur, c.num_compte, c.type_compte, c.status, c.date_creation, " +
+                        "c.solde + COALESCE((SELECT SUM(e.montant) FROM ecriture_journal e " +
+                        "WHERE e.num_compte = c.num_compte AND e.compactee = FALSE), 0) AS solde_courant " +
+                        "FROM app_user u LEFT JOIN compte c ON c.id = u.compte_id " +
+                        "WHERE u.telephone = :telephone LIMIT 1")
+                .bind("telephone", telephone)
+                .map((row, meta) -> {
+                    Long solde = row.get("solde_courant", Long.class);
+                    return new CompteLu(
+                            row.get("num_compte", UUID.class),
+                            row.get("type_compte", String.class),
+                            row.get("status", String.class),
+                            row.get("date_creation", LocalDate.class),
+                            solde != null ? solde : 0L,
+                            row.get("nom_utilisateur", String.class));
+                })
+                .one();
+    }
+
+    Flux<EcritureLue> findEcrituresAvant(UUID numCompte, long curseur, int taille) {
+        return databaseClient.sql("SELECT e.id, e.montant, e.date_ecriture, e.contrepartie, " +
+                        "u.prenom, u.nom, u.nom_utilisateur, u.telephone " +
+                        "FROM ecriture_journal e " +
+                        "LEFT JOIN compte c ON c.num_compte = e.contrepartie " +
+                        "LEFT JOIN app_user u ON u.compte_id = c.id " +
+                        "WHERE e.num_compte = :numCompte AND e.id < :curseur " +
+                        "ORDER BY e.id DESC LIMIT :taille")
+                .bind("numCompte", numCompte)
+                .bind("curseur", curseur)
+                .bind("taille", taille)
+                .map((row, meta) -> {
+                    String nomUtilisateur = row.get("nom_utilisateur", String.class);
+                    ContrepartieDto contrepartie = nomUtilisateur == null && row.get("telephone", String.class) == null ? null
+                            : new ContrepartieDto(row.get("contrepartie", UUID.class), row.get("prenom", String.class),
+                            row.get("nom", String.class), nomUtilisateur, row.get("telephone", String.class));
+                    return new EcritureLue(
+                            row.get("id", Long.class),
+                            row.get("montant", Long.class),
+                            row.get("date_ecriture", LocalDateTime.class),
+                            contrepartie);
+                })
+                .all();
+    }
+}
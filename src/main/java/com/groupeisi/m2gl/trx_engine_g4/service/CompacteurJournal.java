@@ -0,0 +1,84 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Integre periodiquement la queue du journal dans le snapshot de solde des comptes,
+ * pour que le calcul du solde courant ne parcoure que quelques ecritures.
+ *
+ * Les ecritures integrees sont marquees compactee dans la meme transaction que la mise a jour des soldes.
+ * Seules les lignes deja validees sont vues : une ecriture validee plus tard, meme d'id inferieur, reste
+ * dans la queue et est integree au passage suivant. Aucune borne d'id ni hypothese sur la duree des transactions.
+ */
+@Slf4j
+@Component
+public class CompacteurJournal {
+
+    // Lignes verrouillees : un second compacteur (autre instance) attend, puis ne les voit plus non compactees
+    private static final String SELECTION =
+            "SELECT id, num_compte, montant FROM ecriture_journal WHERE compactee = FALSE ORDER BY id LIMIT ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int tailleLot;
+
+    public CompacteurJournal(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             @Value("${journal.compaction.taille-lot:10000}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tailleLot = tailleLot;
+    }
+
+    @Scheduled(fixedDelayString = "${journal.compaction.intervalle:PT1M}")
+    public void compacter() {
+        long ecritures = 0;
+        int lot;
+        do {
+            lot = compacterLot();
+            ecritures += lot;
+        } while (lot == tailleLot);
+        if (ecritures > 0) {
+            log.info("🗜️ Journal compacte : {} ecriture(s) integree(s) aux soldes", ecritures);
+        }
+    }
+
+    /**
+     * Un lot, en une transaction : variation de solde de chaque compte concerne, puis marquage des lignes.
+     */
+    int compacterLot() {
+        Integer compactees = transactionTemplate.execute(status -> {
+            List<Ligne> lignes = jdbcTemplate.query(SELECTION,
+                    (rs, i) -> new Ligne(rs.getLong("id"), rs.getObject("num_compte", UUID.class), rs.getLong("montant")),
+                    tailleLot);
+            if (lignes.isEmpty()) {
+                return 0;
+            }
+            // Comptes mis a jour toujours dans le meme ordre : deux compacteurs ne peuvent pas s'interbloquer
+            Map<UUID, Long> variations = new TreeMap<>();
+            lignes.forEach(ligne -> variations.merge(ligne.numCompte(), ligne.montant(), Long::sum));
+            jdbcTemplate.batchUpdate("UPDATE compte SET solde = solde + ? WHERE num_compte = ?",
+                    new ArrayList<>(variations.entrySet()), variations.size(), (ps, variation) -> {
+                        ps.setLong(1, variation.getValue());
+                        ps.setObject(2, variation.getKey());
+                    });
+            jdbcTemplate.batchUpdate("UPDATE ecriture_journal SET compactee = TRUE WHERE id = ?",
+                    lignes, lignes.size(), (ps, ligne) -> ps.setLong(1, ligne.id()));
+            return lignes.size();
+        });
+        return compactees != null ? compactees : 0;
+    }
+
+    private record Ligne(long id, UUID numCompte, long montant) {
+    }
+}
@@ -5,40 +5,88 @@ import com.groupeisi.m2gl.trx_engine_g4.entities.User;
 import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
 import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
 import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
+import com.groupeisi.m2gl.trx_engine_g4.ledger.LedgerEngine;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 public class CompteService {
 
+    // Lectures de solde (fort debit) : logger distinct, echantillonnable (logging.echantillonnage)
+    private static final Logger LECTURES = LoggerFactory.getLogger(CompteService.class.getName() + ".lectures");
+
     private final CompteRepository compteRepository;
     private final UserRepository userRepository;
-    private final SmsService smsService;
+    private final OutboxService outboxService;
+    private final JournalService journalService;
+    private final LedgerEngine ledgerEngine;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public CompteService(CompteRepository compteRepository, UserRepository userRepository,
-                         SmsService smsService) {
+                         OutboxService outboxService, JournalService journalService, LedgerEngine ledgerEngine,
+                         MeterRegistry meterRegistry) {
         this.compteRepository = compteRepository;
         this.userRepository = userRepository;
-        this.smsService = smsService;
+        this.outboxService = outboxService;
+        this.journalService = journalService;
+        this.ledgerEngine = ledgerEngine;
+        this.meterRegistry = meterRegistry;
+    }
+
+    static final long OTP_EXPIRATION_SECONDS = 300;
+    // Credit d'ouverture d'un compte client active
+    static final long CREDIT_OUVERTURE = 500_000L;
+
+    /**
+     * Duree d'un parcours OTP (timer compte.otp, tags operation et resultat : succes, refus ou erreur).
+     * La mesure est prise dans la transaction : le commit n'y figure pas.
+     */
+    private ApiResponse mesurerOtp(String operation, Supplier<ApiResponse> parcours) {
+        Timer.Sample debut = Timer.start(meterRegistry);
+        String resultat = "erreur";
+        try {
+            ApiResponse reponse = parcours.get();
+            resultat = reponse.isSuccess() ? "succes" : "refus";
+            return reponse;
+        } finally {
+            debut.stop(meterRegistry.timer("compte.otp", "operation", operation, "resultat", resultat));
+        }
     }
 
-    private static final long OTP_EXPIRATION_SECONDS = 300;
+    /**
+     * Refus de validation d'un OTP, compte par motif (compteur compte.otp.refus).
+     */
+    private ApiResponse refuserOtp(String motif, String message, int statut) {
+        meterRegistry.counter("compte.otp.refus", "motif", motif).increment();
+        return new ApiResponse(message, statut, false);
+    }
 
     @Transactional
     public ApiResponse createUniqueCompteAndSendOtp(User user) {
+        return mesurerOtp("creation_client", () -> creerCompteClient(user));
+    }
+
+    private ApiResponse creerCompteClient(User user) {
         Compte compte = new Compte();
         compte.setNumCompte(UUID.randomUUID());
-        compte.setSolde(0.0f);
+        compte.setSolde(0L);
         compte.setTypeCompte("CLIENT");
         compte.setStatus("DISABLE");
 
@@ -53,71 +101,86 @@ public class CompteService {
         log.info("✅ Compte unique cree pour l'utilisateur ID: {} avec statut DISABLE.", user.getId());
 
         String message = String.format("Votre code d'activation est : %s. Il expire dans 5 minutes.", otp);
-        smsService.sendSms(user.getTelephone(), message);
-        log.info("📧 Code OTP envoye au numero : {}", user.getTelephone());
+        // Ecrit dans l'outbox avec le compte : envoye par le relais seulement si la transaction est validee
+        outboxService.publierSms(user.getTelephone(), message);
+        log.info("📧 Code OTP mis en file pour le numero : {}", user.getTelephone());
 
         return new ApiResponse("Compte cree (DISABLE) et OTP envoye.", 201, compte.getNumCompte().toString()); 
     }
 
     @Transactional
     public ApiResponse validateOtpAndEnableCompte(String telephone, String otp) {
+        return mesurerOtp("validation", () -> validerOtp(telephone, otp));
+    }
+
+    private ApiResponse validerOtp(String telephone, String otp) {
 
         Optional<User> userOpt = userRepository.findByTelephone(telephone);
         if (userOpt.isEmpty()) {
-            return new ApiResponse("Utilisateur non trouve.", 404, false); 
+            return refuserOtp("utilisateur_inconnu", "Utilisateur non trouve.", 404);
         }
 
         User user = userOpt.get();
 
         Compte compte = user.getCompte();
         if (compte == null) {
-            return new ApiResponse("Compte associe non trouve.", 404, false); 
+            return refuserOtp("compte_inconnu", "Compte associe non trouve.", 404);
         }
 
         // Vérifier si le compte est déjà activé
         if ("ENABLE".equals(compte.getStatus())) {
-            return new ApiResponse("Le compte est deja active.", 400, false); 
+            return refuserOtp("deja_active", "Le compte est deja active.", 400);
         }
 
         // Vérifier si un OTP existe (si le compte a déjà été activé, l'OTP serait null)
         if (compte.getOtpCode() == null || compte.getOtpExpiryTime() == null) {
-            return new ApiResponse("Aucun code OTP en attente de validation. Le compte a peut-etre deja ete active.", 400, false); 
+            return refuserOtp("aucun_otp", "Aucun code OTP en attente de validation. Le compte a peut-etre deja ete active.", 400);
         }
 
         long now = Instant.now().getEpochSecond();
 
         if (now > compte.getOtpExpiryTime()) {
-            return new ApiResponse("Le code OTP a expire.", 400, false); 
+            return refuserOtp("expire", "Le code OTP a expire.", 400);
         }
 
         if (!otp.equals(compte.getOtpCode())) {
-            return new ApiResponse("Code OTP invalide.", 400, false); 
+            return refuserOtp("invalide", "Code OTP invalide.", 400);
         }
 
         compte.setStatus("ENABLE");
         compte.setOtpCode(null);
         compte.setOtpExpiryTime(null);
-        compte.setSolde(500000);
         compte.setDateCreation(LocalDate.now());
 
         compteRepository.save(compte);
+        if (ledgerEngine.isEnabled()) {
+            // Le moteur ledger detient le solde : le credit passe par le shard du compte, qui le journalise
+            ledgerEngine.activerCompte(compte.getNumCompte(), compte.getStatus(), CREDIT_OUVERTURE);
+        } else {
+            // Credit d'ouverture ecrit au journal : le snapshot de solde reste la propriete du compacteur
+            journalService.crediterOuverture(compte.getNumCompte(), CREDIT_OUVERTURE, LocalDateTime.now());
+        }
 
         log.info("🎉 Compte active pour l'utilisateur ID: {}", user.getId());
 
         return new ApiResponse("Compte active avec succes.", 200, null); 
     }
 
-    private String generateOtp() {
+    static String generateOtp() {
         Random random = new Random();
         return String.format("%06d", random.nextInt(1000000));
     }
 
     @Transactional
     public ApiResponse createMerchantCompteAndSendOtp(User user) {
+        return mesurerOtp("creation_marchand", () -> creerCompteMarchand(user));
+    }
+
+    private ApiResponse creerCompteMarchand(User user) {
 
         Compte compte = new Compte();
         compte.setNumCompte(UUID.randomUUID());
-        compte.setSolde(0.0f);
+        compte.setSolde(0L);
         compte.setStatus("DISABLE");
         compte.setTypeCompte("MARCHANT");
         compte.setCodeMarchant(generateCodeMarchant());
@@ -133,7 +196,7 @@ public class CompteService {
 
         compteRepository.save(compte);
 
-        smsService.sendSms(user.getTelephone(),
+        outboxService.publierSms(user.getTelephone(),
                 String.format("Votre OTP marchant est : %s (expire dans 5 minutes)", otp));
 
         log.info("🔥 Compte marchant cree pour user ID {} avec statut DISABLE", user.getId());
@@ -148,6 +211,10 @@ public class CompteService {
 
     @Transactional
     public ApiResponse createMerchantCompte(String telephone) {
+        return mesurerOtp("creation_marchand", () -> creerCompteMarchandParTelephone(telephone));
+    }
+
+    private ApiResponse creerCompteMarchandParTelephone(String telephone) {
 
         User user = userRepository.findByTelephone(telephone)
                 .orElseThrow(() ->
@@ -155,7 +222,7 @@ public class CompteService {
 
         Compte compte = new Compte();
         compte.setNumCompte(UUID.randomUUID());
-        compte.setSolde(0f);
+        compte.setSolde(0L);
         compte.setTypeCompte("MARCHAND");
         compte.setStatus("DISABLE");
         compte.setCodeMarchant(generateCodeMarchant());
@@ -169,7 +236,7 @@ public class CompteService {
 
         compteRepository.save(compte);
 
-        smsService.sendSms(
+        outboxService.publierSms(
                 user.getTelephone(),
                 "Votre OTP marchand est : " + otp
         );
@@ -178,8 +245,7 @@ public class CompteService {
     }
 
     public ApiResponse getCompteByPhone(String telephone) {
-        log.info("🔍 Recherche du compte pour le numero: {}", telephone);
-
+        long debut = System.nanoTime();
         try {
             Optional<User> userOptional = userRepository.findByTelephone(telephone);
 
@@ -204,14 +270,20 @@ public class CompteService {
             }
 
             Compte compte = user.getCompte();
-            log.info("✅ Compte trouve: {} - Solde: {} CFA", compte.getNumCompte(), compte.getSolde());
+            // Solde courant : snapshot du compte + ecritures du journal non encore compactees
+            long solde = compteRepository.findSoldeCourant(compte.getNumCompte()).orElse(compte.getSolde());
+            LECTURES.atInfo()
+                    .addKeyValue("compte", compte.getNumCompte())
+                    .addKeyValue("solde", solde)
+                    .addKeyValue("dureeUs", (System.nanoTime() - debut) / 1_000)
+                    .log("✅ Compte trouve");
 
             return new ApiResponse(
                     "Compte recupere avec succes",
                     200,
                     java.util.Map.of(  
                             "numCompte", compte.getNumCompte().toString(),
-                            "solde", compte.getSolde(),
+                            "solde", solde,
                             "typeCompte", compte.getTypeCompte(),
                             "status", compte.getStatus(),
                             "dateCreation", compte.getDateCreation() != null ? compte.getDateCreation().toString() : null
@@ -0,0 +1,75 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Cache borne (taille + TTL) des contreparties affichees dans l'historique, indexe par numCompte.
+ * Les absents sont charges en une seule requete ; les statistiques (hits, misses, evictions)
+ * sont publiees dans Micrometer sous le nom de cache "contreparties".
+ */
+@Component
+public class ContrepartieCache {
+
+    private final UserRepository userRepository;
+    private final Cache<UUID, ContrepartieDto> cache;
+
+    public ContrepartieCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                             @Value("${contreparties.cache.max-size:10000}") long tailleMax,
+                             @Value("${contreparties.cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "contreparties");
+    }
+
+    /**
+     * Retourne les contreparties connues parmi {@code numComptes} ; les comptes inconnus sont absents du resultat.
+     */
+    public Map<UUID, ContrepartieDto> getAll(Set<UUID> numComptes) {
+        if (numComptes.isEmpty()) {
+            return Map.of();
+        }
+        return cache.getAll(numComptes, manquants ->
+                userRepository.findContrepartiesByNumCompteIn(List.copyOf(manquants)).stream()
+                        .collect(Collectors.toMap(ContrepartieDto::getNumCompte, c -> c, (a, b) -> a)));
+    }
+
+    /**
+     * A appeler quand le nom ou le telephone du titulaire change ; dans une transaction,
+     * l'eviction est differee apres le commit pour ne pas recharger l'ancienne valeur.
+     */
+    public void invalider(UUID numCompte) {
+        if (numCompte == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(numCompte);
+                }
+            });
+        } else {
+            cache.invalidate(numCompte);
+        }
+    }
+}
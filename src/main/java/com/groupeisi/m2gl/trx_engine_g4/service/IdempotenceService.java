@@ -0,0 +1,184 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CleIdempotenceRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.CleIdempotence;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stockage a deux niveaux des reponses de transfert par cle Idempotency-Key :
+ * une map memoire bornee devant une table a index unique, purgee apres expiration (TTL).
+ * Une requete rejouee recoit la reponse d'origine sans relire ni modifier aucun compte.
+ *
+ * Les cles sont propres a chaque compte emetteur : deux clients qui generent la meme cle ne se voient pas.
+ * L'empreinte de la requete est memorisee avec la cle : la meme cle reutilisee pour une autre requete est refusee (422).
+ * Une reservation restee en cours au-dela de idempotence.reservation-timeout (crash entre reserver et completer
+ * sur le chemin ledger) est reprise par le nouvel essai au lieu de lui repondre 409 jusqu'a la purge.
+ */
+@Slf4j
+@Service
+public class IdempotenceService {
+
+    private final CleIdempotenceRepository cleIdempotenceRepository;
+    private final Cache<String, ReponseMemorisee> reponses;
+    private final Duration ttl;
+    private final Duration delaiReservation;
+
+    public IdempotenceService(CleIdempotenceRepository cleIdempotenceRepository, MeterRegistry meterRegistry,
+                              @Value("${idempotence.ttl:24h}") Duration ttl,
+                              @Value("${idempotence.reservation-timeout:PT5M}") Duration delaiReservation,
+                              @Value("${idempotence.cache.max-size:100000}") long tailleMax) {
+        this.cleIdempotenceRepository = cleIdempotenceRepository;
+        this.ttl = ttl;
+        this.delaiReservation = delaiReservation;
+        this.reponses = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, reponses, "idempotence");
+    }
+
+    /**
+     * Empreinte SHA-256 des champs de la requete, comparee a chaque rejeu de la cle.
+     */
+    public static String empreinte(Object... champs) {
+        StringBuilder texte = new StringBuilder();
+        for (Object champ : champs) {
+            texte.append(champ).append('|');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(texte.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Reponse deja produite pour cette cle de l'emetteur, d'abord en memoire puis en base.
+     * Une cle en cours de traitement donne un 409, une cle deja utilisee pour une autre requete un 422.
+     * Une reservation en cours depuis plus longtemps que le delai de reservation est supprimee :
+     * la reponse est alors vide et l'appelant peut reserver la cle a nouveau.
+     */
+    public Optional<ApiResponse> rejouer(UUID emetteur, String cle, String empreinte) {
+        ReponseMemorisee enMemoire = reponses.getIfPresent(cleCache(emetteur, cle));
+        if (enMemoire != null) {
+            return Optional.of(verifier(enMemoire, empreinte));
+        }
+        Optional<CleIdempotence> enBase = cleIdempotenceRepository.findByCompteEmetteurAndCle(emetteur, cle);
+        if (enBase.isEmpty()) {
+            return Optional.empty();
+        }
+        CleIdempotence enregistrement = enBase.get();
+        if (!enregistrement.getEmpreinte().equals(empreinte)) {
+            return Optional.of(requeteDifferente());
+        }
+        if (enregistrement.getStatusCode() == 0) {
+            if (reprendre(enregistrement)) {
+                return Optional.empty();
+            }
+            return Optional.of(new ApiResponse("Une requête avec cette clé d'idempotence est déjà en cours de traitement.", 409, false));
+        }
+        ApiResponse reponse = new ApiResponse(enregistrement.getMessage(), enregistrement.getStatusCode(), null);
+        reponses.put(cleCache(emetteur, cle), new ReponseMemorisee(enregistrement.getEmpreinte(), reponse));
+        return Optional.of(reponse);
+    }
+
+    // Seul l'essai qui supprime la ligne la reprend : un essai concurrent retombe sur la nouvelle reservation (409)
+    private boolean reprendre(CleIdempotence reservation) {
+        LocalDateTime limite = LocalDateTime.now().minus(delaiReservation);
+        if (!reservation.getDateCreation().isBefore(limite)) {
+            return false;
+        }
+        boolean reprise = cleIdempotenceRepository.deleteReservationExpiree(
+                reservation.getCompteEmetteur(), reservation.getCle(), limite) > 0;
+        if (reprise) {
+            log.warn("⚠️ Reservation d'idempotence abandonnee depuis {} reprise (emetteur {}, cle {})",
+                    reservation.getDateCreation(), reservation.getCompteEmetteur(), reservation.getCle());
+        }
+        return reprise;
+    }
+
+    /**
+     * Reserve la cle de l'emetteur dans la transaction courante. Une requete concurrente avec la meme cle
+     * bloque sur l'index unique puis echoue (DataIntegrityViolationException) une fois la premiere validee.
+     */
+    public CleIdempotence reserver(UUID emetteur, String cle, String empreinte) {
+        return cleIdempotenceRepository.saveAndFlush(
+                new CleIdempotence(null, emetteur, cle, empreinte, null, 0, LocalDateTime.now()));
+    }
+
+    public void completer(CleIdempotence reservation, ApiResponse reponse) {
+        reservation.setMessage(reponse.getMessage());
+        reservation.setStatusCode(reponse.getStatusCode());
+        cleIdempotenceRepository.save(reservation);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    memoriser(reservation, reponse);
+                }
+            });
+        } else {
+            memoriser(reservation, reponse);
+        }
+    }
+
+    /**
+     * Libere une cle reservee dont le traitement a echoue, pour qu'un nouvel essai puisse etre fait.
+     */
+    @Transactional
+    public void liberer(UUID emetteur, String cle) {
+        cleIdempotenceRepository.deleteByCompteEmetteurAndCle(emetteur, cle);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${idempotence.purge-interval:PT1H}")
+    public void purger() {
+        int supprimees = cleIdempotenceRepository.deleteByDateCreationBefore(LocalDateTime.now().minus(ttl));
+        if (supprimees > 0) {
+            log.info("🧹 {} cle(s) d'idempotence expiree(s) supprimee(s)", supprimees);
+        }
+    }
+
+    private void memoriser(CleIdempotence reservation, ApiResponse reponse) {
+        reponses.put(cleCache(reservation.getCompteEmetteur(), reservation.getCle()),
+                new ReponseMemorisee(reservation.getEmpreinte(), reponse));
+    }
+
+    private static ApiResponse verifier(ReponseMemorisee memorisee, String empreinte) {
+        return memorisee.empreinte().equals(empreinte) ? memorisee.reponse() : requeteDifferente();
+    }
+
+    private static ApiResponse requeteDifferente() {
+        return new ApiResponse("Cette clé d'idempotence a déjà été utilisée pour une requête différente.", 422, false);
+    }
+
+    private static String cleCache(UUID emetteur, String cle) {
+        return emetteur + ":" + cle;
+    }
+
+    private record ReponseMemorisee(String empreinte, ApiResponse reponse) {
+    }
+}
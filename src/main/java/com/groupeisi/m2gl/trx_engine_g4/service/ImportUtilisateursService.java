@@ -0,0 +1,539 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.UserDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.ImportJobRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.ImportLigneRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.ImportJob;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
+import com.groupeisi.m2gl.trx_engine_g4.request.RegisterRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Import en masse d'utilisateurs clients (base d'un partenaire) depuis un flux CSV ou NDJSON.
+ *
+ * Le flux est lu ligne par ligne et decoupe en lots de import.taille-lot lignes, traites par au plus
+ * import.parallelisme lots a la fois. Par lot : une requete pour les telephones et noms deja presents,
+ * un seul appel Keycloak (partialImport, role inclus), puis une transaction JDBC batch pour les comptes,
+ * les utilisateurs, les OTP (outbox) et le rapport ligne par ligne.
+ *
+ * Reprise : le job retient la derniere ligne au-dela de laquelle aucun lot n'est encore valide. Un import
+ * interrompu est relance avec le meme fichier et l'id du job ; les lignes deja validees sont sautees. Chaque
+ * utilisateur cree dans Keycloak est trace (CREE_KEYCLOAK) des la reponse, avant la transaction du lot : a la reprise,
+ * un utilisateur ignore par partialImport (deja present) n'est repris que si son id a ete cree par ce job.
+ * Tout autre compte Keycloak existant est rejete, jamais rattache a un nouvel utilisateur local.
+ * Il n'y a donc pas de compensation Keycloak en cas d'echec d'un lot.
+ */
+@Slf4j
+@Service
+public class ImportUtilisateursService {
+
+    public static final String STATUT_IMPORTE = "IMPORTE";
+    public static final String STATUT_DEJA_PRESENT = "DEJA_PRESENT";
+    public static final String STATUT_REJETE = "REJETE";
+    // Trace d'une creation Keycloak par le job, hors rapport
+    public static final String STATUT_CREE_KEYCLOAK = "CREE_KEYCLOAK";
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportLigneRepository importLigneRepository;
+    private final UserRepository userRepository;
+    private final KeycloakService keycloakService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor importExecutor;
+    private final int tailleLot;
+    private final int parallelisme;
+
+    public ImportUtilisateursService(ImportJobRepository importJobRepository, ImportLigneRepository importLigneRepository,
+                                     UserRepository userRepository, KeycloakService keycloakService, UserService userService,
+                                     JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                     @Qualifier("importExecutor") Executor importExecutor,
+                                     @Value("${import.taille-lot:500}") int tailleLot,
+                                     @Value("${import.parallelisme:4}") int parallelisme) {
+        this.importJobRepository = importJobRepository;
+        this.importLigneRepository = importLigneRepository;
+        this.userRepository = userRepository;
+        this.keycloakService = keycloakService;
+        this.userService = userService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importExecutor = importExecutor;
+        this.tailleLot = tailleLot;
+        this.parallelisme = parallelisme;
+    }
+
+    /**
+     * Ligne prete a etre traitee : requete validee, ou motif de rejet determine a la lecture.
+     */
+    private record Candidat(long numero, RegisterRequest requete, String motifRejet) {
+    }
+
+    /**
+     * Resultat d'une ligne, tel qu'ecrit dans le rapport.
+     */
+    private record Resultat(long numero, String telephone, String nomUtilisateur, String statut, String motif, String keycloakId) {
+    }
+
+    private record BilanLot(long derniereLigne, long importes, long dejaPresents, long rejetes) {
+    }
+
+    /**
+     * Lance (reprise == null) ou reprend un import. Rend le bilan du job a la fin de la lecture du flux.
+     */
+    public ApiResponse importer(InputStream flux, String format, Long reprise) {
+        ImportJob job;
+        if (reprise == null) {
+            job = importJobRepository.save(new ImportJob(null, format, "EN_COURS", LocalDateTime.now(), null, 0, 0, 0, 0));
+        } else {
+            Optional<ImportJob> existant = importJobRepository.findById(reprise);
+            if (existant.isEmpty()) {
+                return new ApiResponse("Import introuvable : " + reprise, 404, false);
+            }
+            job = existant.get();
+            if ("TERMINE".equals(job.getStatut())) {
+                return new ApiResponse("Cet import est déjà terminé.", 200, bilan(job));
+            }
+            long pointDeReprise = job.getDerniereLigneValidee();
+            transactionTemplate.executeWithoutResult(status -> importLigneRepository.supprimerApres(reprise, pointDeReprise));
+            job.setStatut("EN_COURS");
+            job.setFormat(format);
+            job = importJobRepository.save(job);
+        }
+        log.info("📥 Import {} : début (format {}, reprise après la ligne {})", job.getId(), format, job.getDerniereLigneValidee());
+
+        Avancement avancement = new Avancement(job.getId());
+        Semaphore lotsEnCours = new Semaphore(parallelisme);
+        AtomicReference<Throwable> echec = new AtomicReference<>();
+        List<CompletableFuture<Void>> lots = new ArrayList<>();
+        Set<String> telephonesVus = new HashSet<>();
+        Set<String> nomsVus = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8))) {
+            LecteurImport lecteur = new LecteurImport(reader, format);
+            List<Candidat> lot = new ArrayList<>(tailleLot);
+            while (echec.get() == null && lecteur.hasNext()) {
+                LecteurImport.LigneImport ligne = lecteur.next();
+                if (ligne.numero() <= job.getDerniereLigneValidee()) {
+                    continue;
+                }
+                lot.add(preparer(ligne, telephonesVus, nomsVus));
+                if (lot.size() == tailleLot) {
+                    lots.add(soumettre(lot, avancement, lotsEnCours, echec));
+                    lot = new ArrayList<>(tailleLot);
+                }
+            }
+            if (!lot.isEmpty() && echec.get() == null) {
+                lots.add(soumettre(lot, avancement, lotsEnCours, echec));
+            }
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            echec.compareAndSet(null, e);
+        }
+        CompletableFuture.allOf(lots.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+
+        ImportJob termine = importJobRepository.findById(job.getId()).orElseThrow();
+        termine.setDateFin(LocalDateTime.now());
+        if (echec.get() != null) {
+            termine.setStatut("INTERROMPU");
+            importJobRepository.save(termine);
+            log.error("💥 Import {} interrompu après la ligne {} : {}", termine.getId(), termine.getDerniereLigneValidee(), echec.get().getMessage());
+            return new ApiResponse("Import interrompu : " + echec.get().getMessage()
+                    + ". Relancez le même fichier avec reprise=" + termine.getId() + ".", 500, bilan(termine));
+        }
+        termine.setStatut("TERMINE");
+        importJobRepository.save(termine);
+        log.info("✅ Import {} terminé : {} importé(s), {} déjà présent(s), {} rejeté(s)",
+                termine.getId(), termine.getImportes(), termine.getDejaPresents(), termine.getRejetes());
+        return new ApiResponse("Import terminé.", 201, bilan(termine));
+    }
+
+    public ApiResponse getImport(Long jobId) {
+        return importJobRepository.findById(jobId)
+                .map(job -> new ApiResponse("Import trouvé", 200, bilan(job)))
+                .orElseGet(() -> new ApiResponse("Import introuvable : " + jobId, 404, false));
+    }
+
+    /**
+     * Rapport ligne par ligne en CSV, lu en flux depuis la base (jamais charge en entier).
+     */
+    public void ecrireRapport(Long jobId, Writer writer) throws IOException {
+        writer.write("ligne,telephone,nomUtilisateur,statut,motif,keycloakId\n");
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement("SELECT numero_ligne, telephone, nom_utilisateur, statut, motif, keycloak_id " +
+                            "FROM import_ligne WHERE job_id = ? AND statut <> ? ORDER BY numero_ligne");
+                    ps.setLong(1, jobId);
+                    ps.setString(2, STATUT_CREE_KEYCLOAK);
+                    ps.setFetchSize(1000);
+                    return ps;
+                },
+                rs -> {
+                    try {
+                        writer.write(rs.getLong(1) + "," + csv(rs.getString(2)) + "," + csv(rs.getString(3)) + ","
+                                + rs.getString(4) + "," + csv(rs.getString(5)) + "," + csv(rs.getString(6)) + "\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        writer.flush();
+    }
+
+    private static String csv(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        return valeur.contains(",") || valeur.contains("\"") ? "\"" + valeur.replace("\"", "\"\"") + "\"" : valeur;
+    }
+
+    private Map<String, Object> bilan(ImportJob job) {
+        Map<String, Object> bilan = new LinkedHashMap<>();
+        bilan.put("importId", job.getId());
+        bilan.put("statut", job.getStatut());
+        bilan.put("derniereLigneValidee", job.getDerniereLigneValidee());
+        bilan.put("importes", job.getImportes());
+        bilan.put("dejaPresents", job.getDejaPresents());
+        bilan.put("rejetes", job.getRejetes());
+        return bilan;
+    }
+
+    /**
+     * Validation et detection des doublons du fichier, sur le thread de lecture (dans l'ordre du fichier).
+     */
+    private Candidat preparer(LecteurImport.LigneImport ligne, Set<String> telephonesVus, Set<String> nomsVus) {
+        if (ligne.erreur() != null) {
+            return new Candidat(ligne.numero(), null, ligne.erreur());
+        }
+        RegisterRequest requete = ligne.requete();
+        ApiResponse validation = userService.validateRegistrationData(requete);
+        if (!validation.isSuccess()) {
+            return new Candidat(ligne.numero(), requete, validation.getMessage());
+        }
+        if (requete.getRoleName() == null) {
+            requete.setRoleName("user");
+        }
+        if (!keycloakService.roleExists(requete.getRoleName())) {
+            return new Candidat(ligne.numero(), requete, "Le rôle '" + requete.getRoleName() + "' n'existe pas.");
+        }
+        if (!telephonesVus.add(requete.getTelephone())) {
+            return new Candidat(ligne.numero(), requete, "Téléphone en double dans le fichier.");
+        }
+        if (!nomsVus.add(requete.getNomUtilisateur())) {
+            return new Candidat(ligne.numero(), requete, "Nom d'utilisateur en double dans le fichier.");
+        }
+        return new Candidat(ligne.numero(), requete, null);
+    }
+
+    private CompletableFuture<Void> soumettre(List<Candidat> lot, Avancement avancement, Semaphore lotsEnCours,
+                                              AtomicReference<Throwable> echec) {
+        int rang = avancement.reserverRang();
+        lotsEnCours.acquireUninterruptibly();
+        return CompletableFuture.runAsync(() -> avancement.terminer(rang, traiterLot(avancement.jobId, lot)), importExecutor)
+                .whenComplete((ok, e) -> {
+                    lotsEnCours.release();
+                    if (e != null) {
+                        echec.compareAndSet(null, e.getCause() != null ? e.getCause() : e);
+                    }
+                });
+    }
+
+    private BilanLot traiterLot(Long jobId, List<Candidat> lot) {
+        List<Resultat> resultats = new ArrayList<>(lot.size());
+        List<Candidat> aCreer = new ArrayList<>(lot.size());
+        for (Candidat candidat : lot) {
+            if (candidat.motifRejet() != null) {
+                resultats.add(resultat(candidat, STATUT_REJETE, candidat.motifRejet(), null));
+            } else {
+                aCreer.add(candidat);
+            }
+        }
+
+        // 1. Telephones et noms deja en base (import precedent, inscription classique) : une requete chacun
+        if (!aCreer.isEmpty()) {
+            Set<String> telephonesPris = new HashSet<>(userRepository.findTelephonesExistants(
+                    aCreer.stream().map(c -> c.requete().getTelephone()).collect(Collectors.toList())));
+            Set<String> nomsPris = new HashSet<>(userRepository.findNomsUtilisateurExistants(
+                    aCreer.stream().map(c -> c.requete().getNomUtilisateur()).collect(Collectors.toList())));
+            List<Candidat> restants = new ArrayList<>(aCreer.size());
+            for (Candidat candidat : aCreer) {
+                if (telephonesPris.contains(candidat.requete().getTelephone())) {
+                    resultats.add(resultat(candidat, STATUT_DEJA_PRESENT, "Numéro de téléphone déjà enregistré.", null));
+                } else if (nomsPris.contains(candidat.requete().getNomUtilisateur())) {
+                    resultats.add(resultat(candidat, STATUT_REJETE, "Nom d'utilisateur déjà pris.", null));
+                } else {
+                    restants.add(candidat);
+                }
+            }
+            aCreer = restants;
+        }
+
+        // 2. Keycloak : un seul appel pour le lot, puis trace durable des utilisateurs crees
+        Map<String, KeycloakService.UtilisateurImporte> dansKeycloak = aCreer.isEmpty() ? Map.of() : creerDansKeycloak(aCreer);
+        tracerCreations(jobId, aCreer, dansKeycloak);
+        Set<String> reprisables = reprisables(jobId, dansKeycloak.values());
+
+        // 3. Base locale : comptes, utilisateurs, OTP et rapport en batch, dans une transaction
+        List<Candidat> crees = new ArrayList<>(aCreer.size());
+        List<String> ids = new ArrayList<>(aCreer.size());
+        for (Candidat candidat : aCreer) {
+            KeycloakService.UtilisateurImporte importe = dansKeycloak.get(candidat.requete().getNomUtilisateur());
+            if (importe == null || importe.id() == null) {
+                resultats.add(resultat(candidat, STATUT_REJETE, "Création Keycloak échouée.", null));
+            } else if (!importe.cree() && !reprisables.contains(importe.id())) {
+                // Compte Keycloak existant qui n'a pas ete cree par ce job : il ne doit pas etre rattache
+                resultats.add(resultat(candidat, STATUT_REJETE, "Nom d'utilisateur déjà pris dans Keycloak.", null));
+            } else {
+                crees.add(candidat);
+                ids.add(importe.id());
+                resultats.add(resultat(candidat, STATUT_IMPORTE, null, importe.id()));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> enregistrer(jobId, crees, ids, resultats));
+
+        long importes = crees.size();
+        long dejaPresents = resultats.stream().filter(r -> STATUT_DEJA_PRESENT.equals(r.statut())).count();
+        return new BilanLot(lot.get(lot.size() - 1).numero(), importes, dejaPresents, resultats.size() - importes - dejaPresents);
+    }
+
+    /**
+     * Trace les utilisateurs crees dans Keycloak par le lot, validee avant la transaction du lot :
+     * si celle-ci echoue, la reprise sait que ces utilisateurs appartiennent au job.
+     */
+    private void tracerCreations(Long jobId, List<Candidat> candidats, Map<String, KeycloakService.UtilisateurImporte> importes) {
+        List<Resultat> creations = new ArrayList<>();
+        for (Candidat candidat : candidats) {
+            KeycloakService.UtilisateurImporte importe = importes.get(candidat.requete().getNomUtilisateur());
+            if (importe != null && importe.cree() && importe.id() != null) {
+                creations.add(resultat(candidat, STATUT_CREE_KEYCLOAK, null, importe.id()));
+            }
+        }
+        if (!creations.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> insererLignes(jobId, creations));
+        }
+    }
+
+    /**
+     * Ids des utilisateurs ignores par Keycloak (deja presents) qui ont ete crees par ce job lors d'un lot non valide.
+     */
+    private Set<String> reprisables(Long jobId, Collection<KeycloakService.UtilisateurImporte> importes) {
+        List<String> existants = importes.stream()
+                .filter(importe -> !importe.cree() && importe.id() != null)
+                .map(KeycloakService.UtilisateurImporte::id)
+                .collect(Collectors.toList());
+        return existants.isEmpty() ? Set.of() : new HashSet<>(importLigneRepository.findIdsKeycloakCrees(jobId, existants));
+    }
+
+    /**
+     * Un appel partialImport pour le lot ; s'il echoue (une ligne refusee par Keycloak fait echouer tout le lot),
+     * creation une par une pour isoler les lignes en cause.
+     */
+    private Map<String, KeycloakService.UtilisateurImporte> creerDansKeycloak(List<Candidat> candidats) {
+        List<UserDto> utilisateurs = candidats.stream().map(c -> versUserDto(c.requete())).collect(Collectors.toList());
+        try {
+            return keycloakService.importerUtilisateurs(utilisateurs);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Import Keycloak du lot refusé ({}), création ligne par ligne", e.getMessage());
+        }
+        Map<String, KeycloakService.UtilisateurImporte> ids = new HashMap<>();
+        for (UserDto utilisateur : utilisateurs) {
+            try {
+                ids.putAll(keycloakService.importerUtilisateurs(List.of(utilisateur)));
+            } catch (RuntimeException e) {
+                log.warn("   ❌ Utilisateur {} refusé par Keycloak : {}", utilisateur.getNomUtilisateur(), e.getMessage());
+            }
+        }
+        return ids;
+    }
+
+    private static UserDto versUserDto(RegisterRequest requete) {
+        UserDto userDto = new UserDto();
+        userDto.setNomUtilisateur(requete.getNomUtilisateur());
+        userDto.setTelephone(requete.getTelephone());
+        userDto.setPrenom(requete.getPrenom());
+        userDto.setNom(requete.getNom());
+        userDto.setRoleName(requete.getRoleName());
+        userDto.setPassword(requete.getPassword());
+        return userDto;
+    }
+
+    private static Resultat resultat(Candidat candidat, String statut, String motif, String keycloakId) {
+        RegisterRequest requete = candidat.requete();
+        return new Resultat(candidat.numero(), requete != null ? requete.getTelephone() : null,
+                requete != null ? requete.getNomUtilisateur() : null, statut, motif, keycloakId);
+    }
+
+    /**
+     * Comptes (DISABLE avec OTP, comme a l'inscription), utilisateurs rattaches par numCompte,
+     * SMS d'activation dans l'outbox et rapport du lot : quatre requetes batch.
+     */
+    private void enregistrer(Long jobId, List<Candidat> crees, List<String> idsKeycloak, List<Resultat> resultats) {
+        if (!crees.isEmpty()) {
+            List<UUID> numComptes = new ArrayList<>(crees.size());
+            List<String> otps = new ArrayList<>(crees.size());
+            for (int i = 0; i < crees.size(); i++) {
+                numComptes.add(UUID.randomUUID());
+                otps.add(CompteService.generateOtp());
+            }
+            long expiration = Instant.now().getEpochSecond() + CompteService.OTP_EXPIRATION_SECONDS;
+            Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO compte (num_compte, solde, type_compte, status, otp_code, otp_expiry_time) " +
+                            "VALUES (?, 0, 'CLIENT', 'DISABLE', ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setObject(1, numComptes.get(i));
+                            ps.setString(2, otps.get(i));
+                            ps.setLong(3, expiration);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return numComptes.size();
+                        }
+                    });
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO app_user (keycloak_id, nom, prenom, nom_utilisateur, telephone, nin, role_name, compte_id) " +
+                            "SELECT ?, ?, ?, ?, ?, ?, ?, c.id FROM compte c WHERE c.num_compte = ?",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            RegisterRequest requete = crees.get(i).requete();
+                            ps.setString(1, idsKeycloak.get(i));
+                            ps.setString(2, requete.getNom());
+                            ps.setString(3, requete.getPrenom());
+                            ps.setString(4, requete.getNomUtilisateur());
+                            ps.setString(5, requete.getTelephone());
+                            ps.setObject(6, requete.getNin());
+                            ps.setString(7, requete.getRoleName());
+                            ps.setObject(8, numComptes.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return crees.size();
+                        }
+                    });
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO message_outbox (type, destinataire, contenu, date_creation, disponible_a, tentatives, abandonne) " +
+                            "VALUES (?, ?, ?, ?, ?, 0, false)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, OutboxService.TYPE_SMS);
+                            ps.setString(2, crees.get(i).requete().getTelephone());
+                            ps.setString(3, String.format("Votre code d'activation est : %s. Il expire dans 5 minutes.", otps.get(i)));
+                            ps.setTimestamp(4, maintenant);
+                            ps.setTimestamp(5, maintenant);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return crees.size();
+                        }
+                    });
+        }
+        insererLignes(jobId, resultats);
+    }
+
+    private void insererLignes(Long jobId, List<Resultat> resultats) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO import_ligne (job_id, numero_ligne, telephone, nom_utilisateur, statut, motif, keycloak_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                resultats, resultats.size(),
+                (ps, r) -> {
+                    ps.setLong(1, jobId);
+                    ps.setLong(2, r.numero());
+                    ps.setString(3, r.telephone());
+                    ps.setString(4, r.nomUtilisateur());
+                    ps.setString(5, r.statut());
+                    ps.setString(6, r.motif());
+                    ps.setString(7, r.keycloakId());
+                });
+    }
+
+    /**
+     * Point de reprise d'un job : les lots se terminent dans le desordre, mais le point de reprise
+     * n'avance que sur une suite continue de lots valides.
+     */
+    private final class Avancement {
+        private final Long jobId;
+        private final TreeMap<Integer, BilanLot> termines = new TreeMap<>();
+        // Verrou explicite plutot que synchronized : la mise a jour du job (JDBC) se fait verrou tenu
+        private final ReentrantLock verrou = new ReentrantLock();
+        private int prochainRang;
+        private int rangAValider;
+
+        private Avancement(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        private int reserverRang() {
+            verrou.lock();
+            try {
+                return prochainRang++;
+            } finally {
+                verrou.unlock();
+            }
+        }
+
+        private void terminer(int rang, BilanLot bilan) {
+            verrou.lock();
+            try {
+                avancer(rang, bilan);
+            } finally {
+                verrou.unlock();
+            }
+        }
+
+        private void avancer(int rang, BilanLot bilan) {
+            termines.put(rang, bilan);
+            long derniereLigne = -1;
+            long importes = 0;
+            long dejaPresents = 0;
+            long rejetes = 0;
+            while (termines.containsKey(rangAValider)) {
+                BilanLot suivant = termines.remove(rangAValider++);
+                derniereLigne = suivant.derniereLigne();
+                importes += suivant.importes();
+                dejaPresents += suivant.dejaPresents();
+                rejetes += suivant.rejetes();
+            }
+            if (derniereLigne >= 0) {
+                long ligne = derniereLigne;
+                long i = importes;
+                long d = dejaPresents;
+                long r = rejetes;
+                transactionTemplate.executeWithoutResult(status -> importJobRepository.avancer(jobId, ligne, i, d, r));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Acces au journal en partie double, source de verite des soldes.
+ */
+@Service
+@RequiredArgsConstructor
+public class JournalService {
+
+    // Compte technique d'emission, sans ligne dans compte : contrepartie des credits d'ouverture
+    public static final UUID COMPTE_EMISSION = new UUID(0L, 0L);
+
+    private final EcritureJournalRepository ecritureJournalRepository;
+    private final CompteRepository compteRepository;
+
+    /**
+     * Les deux lignes d'un transfert : debit sur l'emetteur, credit sur le recepteur.
+     */
+    public static List<EcritureJournal> ecrituresTransfert(UUID emetteur, UUID recepteur, long montant, LocalDateTime date) {
+        UUID reference = UUID.randomUUID();
+        return List.of(
+                new EcritureJournal(null, emetteur, recepteur, -montant, date, reference, false),
+                new EcritureJournal(null, recepteur, emetteur, montant, date, reference, false)
+        );
+    }
+
+    public void enregistrerTransfert(UUID emetteur, UUID recepteur, long montant, LocalDateTime date) {
+        ecritureJournalRepository.saveAll(ecrituresTransfert(emetteur, recepteur, montant, date));
+    }
+
+    /**
+     * Credit d'ouverture d'un compte, en partie double : debit du compte d'emission, credit du compte.
+     */
+    public void crediterOuverture(UUID numCompte, long montant, LocalDateTime date) {
+        ecritureJournalRepository.saveAll(ecrituresTransfert(COMPTE_EMISSION, numCompte, montant, date));
+    }
+
+    public long soldeCourant(UUID numCompte) {
+        return compteRepository.findSoldeCourant(numCompte)
+                .orElseThrow(() -> new EntityNotFoundException("Compte introuvable : " + numCompte));
+    }
+}
@@ -1,13 +1,19 @@
 package com.groupeisi.m2gl.trx_engine_g4.service;
 
 import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.Response;
-import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.admin.client.KeycloakBuilder;
 import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,8 +21,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import com.groupeisi.m2gl.trx_engine_g4.DTOs.UserDto;
 
@@ -24,65 +37,176 @@ import com.groupeisi.m2gl.trx_engine_g4.DTOs.UserDto;
 public class KeycloakService {
     private final Keycloak keycloak;
     private final String realm;
+    private final MeterRegistry meterRegistry;
+
+    // Roles du realm par nom : relus en arriere-plan apres keycloak.cache.refresh, expires apres keycloak.cache.ttl.
+    // Cache asynchrone : l'appel HTTP de chargement ne se fait pas sous le verrou interne du cache,
+    // ce qui bloquerait (pinning) le thread porteur d'un thread virtuel.
+    private final AsyncLoadingCache<String, Map<String, RoleRepresentation>> rolesParRealm;
 
     @Autowired
     public KeycloakService(
-            @Value("${keycloak.auth-server-url}") String serverUrl,
+            Keycloak keycloak,
             @Value("${keycloak.realm}") String realm,
-            @Value("${keycloak.admin.username}") String adminUsername,
-            @Value("${keycloak.admin.password}") String adminPassword) {
-
-        this.keycloak = KeycloakBuilder.builder()
-                .serverUrl(serverUrl)
-                .realm("master")
-                .clientId("admin-cli")
-                .username(adminUsername)
-                .password(adminPassword)
-                .grantType(OAuth2Constants.PASSWORD)
-                .build();
+            @Value("${keycloak.cache.refresh:5m}") Duration rafraichissement,
+            @Value("${keycloak.cache.ttl:30m}") Duration ttl,
+            MeterRegistry meterRegistry) {
 
+        // Client admin partage (KeycloakAdminConfig) : pool de connexions et jeton reutilises
+        this.keycloak = keycloak;
         this.realm = realm;
+        this.meterRegistry = meterRegistry;
+
+        this.rolesParRealm = Caffeine.newBuilder()
+                .refreshAfterWrite(rafraichissement)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync(this::chargerRoles);
+        CaffeineCacheMetrics.monitor(meterRegistry, rolesParRealm, "keycloak.roles");
     }
 
-    public String createUser(UserDto userDTO) {
-        UserRepresentation userRepresentation = getUserRepresentation(userDTO);
-        Response response = keycloak.realm(realm).users().create(userRepresentation);
-        if (response.getStatus() != 201) {
-            throw new RuntimeException("Failed to create user in Keycloak. Status: " + response.getStatus());
+    /**
+     * Duree d'une operation du service (timer keycloak.service), lectures du cache de roles et appels HTTP enchaines
+     * compris ; chaque appel HTTP est aussi mesure seul par keycloak.admin.appels.
+     * Les operations rendent leurs erreurs dans l'ApiResponse plutot qu'en exception : le timer est donc tague
+     * par le statusCode et le success de la reponse (statut = exception si l'operation a leve une exception).
+     */
+    private <T> T mesurer(String operation, Supplier<T> appel) {
+        Timer.Sample debut = Timer.start(meterRegistry);
+        String statut = "exception";
+        boolean succes = false;
+        try {
+            T resultat = appel.get();
+            if (resultat instanceof ApiResponse reponse) {
+                statut = String.valueOf(reponse.getStatusCode());
+                succes = reponse.isSuccess();
+            } else {
+                statut = "ok";
+                succes = true;
+            }
+            return resultat;
+        } finally {
+            debut.stop(meterRegistry.timer("keycloak.service",
+                    "operation", operation, "statut", statut, "succes", String.valueOf(succes)));
         }
-        URI location = response.getLocation();
-        return location.getPath().replaceAll(".*/([^/]+)$", "$1");
     }
 
-    public ApiResponse updateUser(String userId, UserDto userDTO) {
+    private Map<String, RoleRepresentation> chargerRoles(String nomRealm) {
+        return keycloak.realm(nomRealm).roles().list().stream()
+                .collect(Collectors.toUnmodifiableMap(RoleRepresentation::getName, Function.identity(), (a, b) -> a));
+    }
+
+    /**
+     * Role du realm, depuis le cache. Un role absent du cache (cree depuis le dernier chargement)
+     * est lu directement dans Keycloak puis le cache est recharge ; un role inexistant n'est pas memorise.
+     */
+    private Optional<RoleRepresentation> getRole(String roleName) {
+        RoleRepresentation role = rolesParRealm.synchronous().get(realm).get(roleName);
+        if (role != null) {
+            return Optional.of(role);
+        }
         try {
-            UserResource userResource = keycloak.realm(realm).users().get(userId);
-            if (userResource == null) {
-                return new ApiResponse("Utilisateur non trouve dans Keycloak", 404, false); 
-            }
+            role = keycloak.realm(realm).roles().get(roleName).toRepresentation();
+        } catch (NotFoundException e) {
+            return Optional.empty();
+        }
+        rolesParRealm.synchronous().refresh(realm);
+        return Optional.of(role);
+    }
+
+    /**
+     * Eviction manuelle des metadonnees du realm (apres creation ou suppression de roles dans Keycloak).
+     */
+    public void invaliderCacheRealm() {
+        rolesParRealm.synchronous().invalidateAll();
+    }
+
+    public String createUser(UserDto userDTO) {
+        return mesurer("creation_utilisateur", () -> {
             UserRepresentation userRepresentation = getUserRepresentation(userDTO);
-            userResource.update(userRepresentation);
-            return new ApiResponse("Utilisateur mis a jour avec succes dans Keycloak", 200, null); 
+            try (Response response = keycloak.realm(realm).users().create(userRepresentation)) {
+                if (response.getStatus() != 201) {
+                    throw new RuntimeException("Failed to create user in Keycloak. Status: " + response.getStatus());
+                }
+                URI location = response.getLocation();
+                return location.getPath().replaceAll(".*/([^/]+)$", "$1");
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            return new ApiResponse("Erreur lors de la mise a jour de l'utilisateur dans Keycloak : " + e.getMessage(), 500, false); 
-        }
+    /**
+     * Utilisateur d'un lot partialImport : id Keycloak, et cree = false s'il existait deja (ignore par Keycloak).
+     */
+    public record UtilisateurImporte(String id, boolean cree) {
     }
 
-    public ApiResponse addRoleToUser(String keycloakUserId, String roleName) {
-        try {
-            RoleRepresentation role = null;
+    /**
+     * Creation d'un lot d'utilisateurs, avec leur role de realm, en un seul appel (partialImport).
+     * Les noms d'utilisateur deja presents dans Keycloak sont ignores sans erreur et rendus avec cree = false :
+     * l'appelant decide s'il peut reprendre cet utilisateur existant (voir ImportUtilisateursService).
+     * Keycloak traite le lot en une transaction : une ligne invalide fait echouer tout le lot (exception).
+     */
+    public Map<String, UtilisateurImporte> importerUtilisateurs(List<UserDto> utilisateurs) {
+        return mesurer("import_utilisateurs", () -> {
+            PartialImportRepresentation lot = new PartialImportRepresentation();
+            lot.setIfResourceExists(PartialImportRepresentation.Policy.SKIP.name());
+            lot.setUsers(utilisateurs.stream().map(userDTO -> {
+                UserRepresentation representation = getUserRepresentation(userDTO);
+                if (userDTO.getPassword() == null) {
+                    // Pas de mot de passe par defaut pour un import : l'utilisateur le definira lui-meme
+                    representation.setCredentials(null);
+                }
+                representation.setRealmRoles(Collections.singletonList(userDTO.getRoleName()));
+                return representation;
+            }).collect(Collectors.toList()));
+
+            try (Response response = keycloak.realm(realm).partialImport(lot)) {
+                if (response.getStatus() != 200) {
+                    throw new RuntimeException("Echec de l'import du lot dans Keycloak. Status: " + response.getStatus());
+                }
+                Map<String, UtilisateurImporte> ids = new HashMap<>();
+                for (JsonNode resultat : response.readEntity(JsonNode.class).path("results")) {
+                    if ("USER".equals(resultat.path("resourceType").asText())) {
+                        ids.put(resultat.path("resourceName").asText(), new UtilisateurImporte(
+                                resultat.path("id").asText(null), "ADDED".equals(resultat.path("action").asText())));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    public ApiResponse updateUser(String userId, UserDto userDTO) {
+        return mesurer("mise_a_jour_utilisateur", () -> {
             try {
-                role = keycloak.realm(realm).roles().get(roleName).toRepresentation();
+                UserResource userResource = keycloak.realm(realm).users().get(userId);
+                if (userResource == null) {
+                    return new ApiResponse("Utilisateur non trouve dans Keycloak", 404, false); 
+                }
+                UserRepresentation userRepresentation = getUserRepresentation(userDTO);
+                userResource.update(userRepresentation);
+                return new ApiResponse("Utilisateur mis a jour avec succes dans Keycloak", 200, null); 
+
             } catch (Exception e) {
-                return new ApiResponse("Le role '" + roleName + "' n'existe pas.", 404, false); 
+                return new ApiResponse("Erreur lors de la mise a jour de l'utilisateur dans Keycloak : " + e.getMessage(), 500, false); 
             }
+        });
+    }
 
-            keycloak.realm(realm).users().get(keycloakUserId).roles().realmLevel().add(Collections.singletonList(role));
-            return new ApiResponse("Role ajoute avec succes a l'utilisateur.", 200, null); 
-        } catch (Exception e) {
-            return new ApiResponse("Erreur lors de l'ajout du role a l'utilisateur : " + e.getMessage(), 500, false); 
-        }
+    public ApiResponse addRoleToUser(String keycloakUserId, String roleName) {
+        return mesurer("ajout_role", () -> {
+            try {
+                Optional<RoleRepresentation> role = getRole(roleName);
+                if (role.isEmpty()) {
+                    return new ApiResponse("Le role '" + roleName + "' n'existe pas.", 404, false); 
+                }
+
+                keycloak.realm(realm).users().get(keycloakUserId).roles().realmLevel().add(Collections.singletonList(role.get()));
+                return new ApiResponse("Role ajoute avec succes a l'utilisateur.", 200, null); 
+            } catch (Exception e) {
+                return new ApiResponse("Erreur lors de l'ajout du role a l'utilisateur : " + e.getMessage(), 500, false); 
+            }
+        });
     }
 
     private UserRepresentation getUserRepresentation(UserDto userDTO) {
@@ -102,57 +226,63 @@ public class KeycloakService {
     }
 
     public ApiResponse usernameExists(String username) {
-        UsersResource usersResource = keycloak.realm(realm).users();
-        try {
-            List<UserRepresentation> usersByUsername = usersResource.search(username, true);
-            if (!usersByUsername.isEmpty()) {
-                return new ApiResponse("Username '" + username + "' already exists.", 409, false); 
+        return mesurer("recherche_username", () -> {
+            UsersResource usersResource = keycloak.realm(realm).users();
+            try {
+                List<UserRepresentation> usersByUsername = usersResource.search(username, true);
+                if (!usersByUsername.isEmpty()) {
+                    return new ApiResponse("Username '" + username + "' already exists.", 409, false); 
+                }
+                return new ApiResponse("Username '" + username + "' is available.", 200, null); 
+            } catch (Exception e) {
+                return new ApiResponse("An error occurred while checking the username: " + e.getMessage(), 500, false);
             }
-            return new ApiResponse("Username '" + username + "' is available.", 200, null); 
-        } catch (Exception e) {
-            return new ApiResponse("An error occurred while checking the username.", 500, e.getMessage()); 
-        }
+        });
     }
 
     public ApiResponse emailExists(String email) {
-        UsersResource usersResource = keycloak.realm(realm).users();
+        return mesurer("recherche_email", () -> {
+            UsersResource usersResource = keycloak.realm(realm).users();
 
-        try {
-            List<UserRepresentation> usersByEmail = usersResource.search(email, null, null, null);
-            if (!usersByEmail.isEmpty()) {
-                return new ApiResponse("Email '" + email + "' is already registered.", 409, false); 
+            try {
+                List<UserRepresentation> usersByEmail = usersResource.search(email, null, null, null);
+                if (!usersByEmail.isEmpty()) {
+                    return new ApiResponse("Email '" + email + "' is already registered.", 409, false); 
+                }
+                return new ApiResponse("Email '" + email + "' is available.", 200, null); 
+            } catch (Exception e) {
+                return new ApiResponse("An error occurred while checking the email: " + e.getMessage(), 500, false);
             }
-            return new ApiResponse("Email '" + email + "' is available.", 200, null); 
-        } catch (Exception e) {
-            return new ApiResponse("An error occurred while checking the email.", 500, e.getMessage()); 
-        }
+        });
     }
 
     public Boolean roleExists(String roleName) {
-        try {
-            List<RoleRepresentation> roles = keycloak.realm(realm).roles().list();
-            boolean roleExists = roles.stream().anyMatch(role -> role.getName().equals(roleName));
-            return roleExists; // ✅ Simplifié
-        } catch (Exception e) {
-            return false;
-        }
+        return mesurer("lecture_role", () -> {
+            try {
+                return getRole(roleName).isPresent();
+            } catch (Exception e) {
+                return false;
+            }
+        });
     }
 
     public ApiResponse deleteUser(String keycloakUserId) {
-        try {
-            UsersResource usersResource = keycloak.realm(realm).users();
-            Response response = usersResource.delete(keycloakUserId);
+        return mesurer("suppression_utilisateur", () -> {
+            try {
+                UsersResource usersResource = keycloak.realm(realm).users();
+                try (Response response = usersResource.delete(keycloakUserId)) {
+                    if (response.getStatus() == 204) {
+                        return new ApiResponse("Utilisateur Keycloak supprime avec succes.", 204, null); 
+                    } else if (response.getStatus() == 404) {
+                        return new ApiResponse("Utilisateur Keycloak non trouve pour la suppression.", 404, false); 
+                    } else {
+                        return new ApiResponse("Echec de la suppression Keycloak. Code: " + response.getStatus(), response.getStatus(), false); 
+                    }
+                }
 
-            if (response.getStatus() == 204) {
-                return new ApiResponse("Utilisateur Keycloak supprime avec succes.", 204, null); 
-            } else if (response.getStatus() == 404) {
-                return new ApiResponse("Utilisateur Keycloak non trouve pour la suppression.", 404, false); 
-            } else {
-                return new ApiResponse("Echec de la suppression Keycloak. Code: " + response.getStatus(), response.getStatus(), false); 
+            } catch (Exception e) {
+                return new ApiResponse("Erreur inattendue lors de la suppression Keycloak : " + e.getMessage(), 500, false); 
             }
-
-        } catch (Exception e) {
-            return new ApiResponse("Erreur inattendue lors de la suppression Keycloak : " + e.getMessage(), 500, false); 
-        }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.groupeisi.m2gl.trx_engine_g4.request.RegisterRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lecture en flux d'un fichier d'import, une ligne a la fois : le fichier n'est jamais charge en memoire.
+ *
+ * CSV : premiere ligne d'en-tete avec les noms des champs de RegisterRequest (prenom, nom, nomUtilisateur,
+ * telephone, password, roleName, nin), dans n'importe quel ordre ; champs entre guillemets acceptes.
+ * NDJSON : un objet RegisterRequest par ligne.
+ * Les lignes vides sont ignorees ; une ligne illisible est rendue avec son erreur, sans interrompre la lecture.
+ */
+class LecteurImport implements Iterator<LecteurImport.LigneImport> {
+
+    public static final String FORMAT_CSV = "CSV";
+    public static final String FORMAT_NDJSON = "NDJSON";
+
+    private static final ObjectReader LECTEUR_JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(RegisterRequest.class);
+
+    record LigneImport(long numero, RegisterRequest requete, String erreur) {
+    }
+
+    private final BufferedReader reader;
+    private final String format;
+    private Map<String, Integer> colonnes;
+    private long numeroLigne;
+    private LigneImport suivante;
+
+    LecteurImport(BufferedReader reader, String format) {
+        this.reader = reader;
+        this.format = format;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (suivante == null) {
+            suivante = lire();
+        }
+        return suivante != null;
+    }
+
+    @Override
+    public LigneImport next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LigneImport ligne = suivante;
+        suivante = null;
+        return ligne;
+    }
+
+    private LigneImport lire() {
+        try {
+            String texte;
+            while ((texte = reader.readLine()) != null) {
+                numeroLigne++;
+                if (texte.isBlank()) {
+                    continue;
+                }
+                if (FORMAT_CSV.equals(format) && colonnes == null) {
+                    lireEnTete(texte);
+                    continue;
+                }
+                try {
+                    RegisterRequest requete = FORMAT_CSV.equals(format) ? depuisCsv(texte) : LECTEUR_JSON.readValue(texte);
+                    return new LigneImport(numeroLigne, requete, null);
+                } catch (IOException | RuntimeException e) {
+                    return new LigneImport(numeroLigne, null, "Ligne illisible : " + e.getMessage());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void lireEnTete(String texte) {
+        colonnes = new HashMap<>();
+        List<String> noms = decouper(texte);
+        for (int i = 0; i < noms.size(); i++) {
+            colonnes.put(noms.get(i).trim(), i);
+        }
+        if (!colonnes.containsKey("telephone") || !colonnes.containsKey("nomUtilisateur")) {
+            throw new IllegalArgumentException("En-tête CSV invalide : les colonnes 'telephone' et 'nomUtilisateur' sont obligatoires.");
+        }
+    }
+
+    private RegisterRequest depuisCsv(String texte) {
+        List<String> valeurs = decouper(texte);
+        RegisterRequest requete = new RegisterRequest();
+        requete.setPrenom(valeur(valeurs, "prenom"));
+        requete.setNom(valeur(valeurs, "nom"));
+        requete.setNomUtilisateur(valeur(valeurs, "nomUtilisateur"));
+        requete.setTelephone(valeur(valeurs, "telephone"));
+        requete.setPassword(valeur(valeurs, "password"));
+        requete.setRoleName(valeur(valeurs, "roleName"));
+        String nin = valeur(valeurs, "nin");
+        requete.setNin(nin != null ? Long.valueOf(nin) : null);
+        return requete;
+    }
+
+    private String valeur(List<String> valeurs, String colonne) {
+        Integer index = colonnes.get(colonne);
+        if (index == null || index >= valeurs.size()) {
+            return null;
+        }
+        String valeur = valeurs.get(index).trim();
+        return valeur.isEmpty() ? null : valeur;
+    }
+
+    /**
+     * Decoupe une ligne CSV sur les virgules ; les guillemets protegent les virgules, "" vaut un guillemet.
+     */
+    static List<String> decouper(String ligne) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreGuillemets = false;
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == ',') {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+}
@@ -0,0 +1,108 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metriques des transferts :
+ * - transfert.etapes (tag etape) : duree de chaque etape du chemin JPA, commit compris ;
+ * - transfert.duree (tags chemin, resultat) : duree totale, chemin JPA ou moteur ledger ;
+ * - transfert.echecs (tag motif) : transferts refuses ou en erreur, par motif ;
+ * - transfert.rejeux : requetes Idempotency-Key servies avec la reponse d'origine, sans transfert.
+ * Les histogrammes de percentiles sont actives par management.metrics.distribution.percentiles-histogram.transfert.
+ */
+@Component
+public class MetriquesTransfert {
+
+    private final MeterRegistry meterRegistry;
+    // Timers et compteurs crees a la premiere utilisation, puis reutilises sans recherche dans le registre
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> echecs = new ConcurrentHashMap<>();
+    private final Counter rejeux;
+
+    public MetriquesTransfert(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.rejeux = Counter.builder("transfert.rejeux")
+                .description("Requetes Idempotency-Key servies avec la reponse d'origine")
+                .register(meterRegistry);
+    }
+
+    public Chrono demarrer(String chemin) {
+        return new Chrono(chemin);
+    }
+
+    /**
+     * Compte un echec selon son motif. Les deux chemins (JPA et ledger) levent les memes exceptions metier,
+     * dont le motif est porte par le type (TransfertRefuseException, EntityNotFoundException) et non par le message.
+     */
+    public void echec(RuntimeException e) {
+        String motif = motif(e);
+        echecs.computeIfAbsent(motif, m -> Counter.builder("transfert.echecs")
+                        .description("Transferts refuses ou en erreur, par motif")
+                        .tag("motif", m)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void rejeu() {
+        rejeux.increment();
+    }
+
+    static String motif(RuntimeException e) {
+        if (e instanceof TransfertRefuseException refus) {
+            return refus.getMotif().getCode();
+        }
+        if (e instanceof EntityNotFoundException) {
+            return "compte_inconnu";
+        }
+        return "autre";
+    }
+
+    private Timer timer(String nom, String description, String... tags) {
+        return timers.computeIfAbsent(nom + String.join(",", tags), cle -> Timer.builder(nom)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Chronometre d'un transfert : chaque appel a etape() mesure le temps ecoule depuis l'etape precedente.
+     * Utilise par un seul thread (celui de la requete).
+     */
+    public final class Chrono {
+        private final String chemin;
+        private final long debut;
+        private long precedente;
+
+        private Chrono(String chemin) {
+            this.chemin = chemin;
+            this.debut = System.nanoTime();
+            this.precedente = debut;
+        }
+
+        public void etape(String etape) {
+            long maintenant = System.nanoTime();
+            timer("transfert.etapes", "Duree d'une etape du transfert", "etape", etape)
+                    .record(maintenant - precedente, TimeUnit.NANOSECONDS);
+            precedente = maintenant;
+        }
+
+        /**
+         * Enregistre la duree totale et la renvoie (en nanosecondes).
+         */
+        public long terminer(boolean reussi) {
+            long duree = System.nanoTime() - debut;
+            timer("transfert.duree", "Duree totale d'un transfert", "chemin", chemin, "resultat", reussi ? "succes" : "echec")
+                    .record(duree, TimeUnit.NANOSECONDS);
+            return duree;
+        }
+    }
+}
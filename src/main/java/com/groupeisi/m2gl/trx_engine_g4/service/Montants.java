@@ -0,0 +1,35 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+/**
+ * Arithmetique des montants en unites mineures (long).
+ * Le franc CFA n'a pas de subdivision (exposant ISO 4217 = 0) : 1 unite = 1 FCFA.
+ * Les operations sont exactes et controlent le depassement de capacite, sans allocation.
+ */
+public final class Montants {
+
+    private Montants() {
+    }
+
+    public static long additionner(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Montant hors limites : dépassement de capacité du solde.");
+        }
+    }
+
+    public static long soustraire(long a, long b) {
+        try {
+            return Math.subtractExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Montant hors limites : dépassement de capacité du solde.");
+        }
+    }
+
+    /**
+     * Solde maximal qu'un compte peut avoir avant de recevoir {@code montant} sans depasser Long.MAX_VALUE.
+     */
+    public static long plafondAvantCredit(long montant) {
+        return Long.MAX_VALUE - Math.max(montant, 0);
+    }
+}
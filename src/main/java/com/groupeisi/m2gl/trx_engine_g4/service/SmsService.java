@@ -1,20 +1,39 @@
 package com.groupeisi.m2gl.trx_engine_g4.service;
 
+import com.groupeisi.m2gl.trx_engine_g4.sms.SmsMessage;
+import com.groupeisi.m2gl.trx_engine_g4.sms.SmsProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
-import lombok.extern.slf4j.Slf4j;
 
-@Slf4j
+import java.util.List;
+
+/**
+ * Envoi des SMS par le fournisseur. Les SMS ne sont envoyes que depuis l'outbox (SmsOutboxSink, CreditTransfertOutboxSink) :
+ * le relais (OutboxRelay) les livre par lots apres le commit et reessaie les lots en echec.
+ */
 @Service
 public class SmsService {
+
+    private final SmsProvider provider;
+    private final Timer dureeEnvoi;
+    private final Counter envoyes;
+
+    public SmsService(SmsProvider provider, MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.dureeEnvoi = Timer.builder("sms.envoi")
+                .description("Duree d'un appel au fournisseur SMS (un lot)")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.envoyes = meterRegistry.counter("sms.envoyes");
+    }
+
     /**
-     * Simule l'envoi d'un SMS
+     * Envoi immediat d'un lot de SMS ; leve une exception si le fournisseur echoue.
      */
-    public boolean sendSms(String to, String message) {
-        log.info("--- SMS SIMULÉ ---");
-        log.info("À : {}", to);
-        log.info("Message : {}", message);
-        log.info("--- FIN SIMULATION ---");
-        // Dans une application réelle, ceci appellerait un service comme Twilio, AfricasTalking, etc.
-        return true;
+    public void envoyerLot(List<SmsMessage> lot) {
+        dureeEnvoi.record(() -> provider.envoyer(lot));
+        envoyes.increment(lot.size());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.LigneTransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertBatchDto;
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import com.groupeisi.m2gl.trx_engine_g4.ledger.LedgerEngine;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Paiements groupes : un emetteur, plusieurs recepteurs, dans une seule transaction.
+ *
+ * L'emetteur est verrouille et son solde courant lu une seule fois ; le lot est valide ligne par ligne
+ * contre ce solde, puis ecrit dans le journal en une seule requete JDBC batch (debit + credit par ligne)
+ * au lieu d'une transaction complete par ligne. Les recepteurs ne sont ni verrouilles ni modifies.
+ *
+ * Metriques : la duree du lot est mesuree par transfert.duree (chemin lot_jpa ou lot_ledger),
+ * et chaque ligne rejetee est comptee dans transfert.echecs avec son motif, comme un transfert unitaire.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransfertBatchService {
+
+    private final CompteRepository compteRepository;
+    private final JournalService journalService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerEngine ledgerEngine;
+    private final MetriquesTransfert metriquesTransfert;
+
+    public ApiResponse effectuerTransfertsBatch(TransfertBatchDto batchDto) {
+        if (ledgerEngine.isEnabled()) {
+            MetriquesTransfert.Chrono chrono = metriquesTransfert.demarrer("lot_ledger");
+            ApiResponse reponse = traiterViaLedger(batchDto);
+            chrono.terminer(true);
+            return reponse;
+        }
+        MetriquesTransfert.Chrono chrono = metriquesTransfert.demarrer("lot_jpa");
+        try {
+            ApiResponse reponse = transactionTemplate.execute(status -> traiterLot(batchDto));
+            chrono.terminer(true);
+            return reponse;
+        } catch (RuntimeException e) {
+            // Lot refuse en entier (emetteur introuvable ou bloque)
+            chrono.terminer(false);
+            metriquesTransfert.echec(e);
+            throw e;
+        }
+    }
+
+    private ApiResponse traiterLot(TransfertBatchDto batchDto) {
+        UUID uuidEmetteur = batchDto.getCompteEmetteur();
+        List<LigneTransfertDto> lignes = batchDto.getLignes();
+
+        // 1. Emetteur (verrouille) et recepteurs lus en deux requetes
+        Compte emetteur = compteRepository.findByNumCompteForUpdate(uuidEmetteur)
+                .orElseThrow(() -> new EntityNotFoundException("Compte émetteur introuvable : " + uuidEmetteur));
+        if ("BLOQUE".equalsIgnoreCase(emetteur.getStatus())) {
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.COMPTE_BLOQUE, "Le compte émetteur est bloqué.");
+        }
+        Set<UUID> numsRecepteurs = lignes.stream().map(LigneTransfertDto::getCompteRecepteur).collect(Collectors.toSet());
+        Map<UUID, Compte> recepteurs = compteRepository.findByNumCompteIn(numsRecepteurs).stream()
+                .collect(Collectors.toMap(Compte::getNumCompte, c -> c));
+
+        // 2. Validation de chaque ligne contre le solde disponible restant
+        long disponible = journalService.soldeCourant(uuidEmetteur);
+        List<LigneTransfertDto> acceptees = new ArrayList<>();
+        List<Map<String, Object>> resultats = new ArrayList<>(lignes.size());
+
+        for (int i = 0; i < lignes.size(); i++) {
+            LigneTransfertDto ligne = lignes.get(i);
+            RuntimeException refus = valider(ligne, uuidEmetteur, recepteurs.get(ligne.getCompteRecepteur()), disponible);
+            if (refus == null) {
+                disponible -= ligne.getMontant();
+                acceptees.add(ligne);
+            } else {
+                metriquesTransfert.echec(refus);
+            }
+            resultats.add(resultat(i, ligne, refus == null ? null : refus.getMessage()));
+        }
+
+        // 3. Ecriture groupee dans le journal, et des avis de credit dans l'outbox
+        if (!acceptees.isEmpty()) {
+            enregistrerEcritures(uuidEmetteur, acceptees);
+            enregistrerAvisCredit(acceptees);
+        }
+
+        log.info("📦 Lot de {} lignes traite pour {} : {} effectues, {} rejetes",
+                lignes.size(), uuidEmetteur, acceptees.size(), lignes.size() - acceptees.size());
+
+        return new ApiResponse(
+                "Lot traité : " + acceptees.size() + " transfert(s) effectué(s), " + (lignes.size() - acceptees.size()) + " rejeté(s).",
+                HttpStatus.CREATED.value(),
+                Map.of(
+                        "effectues", acceptees.size(),
+                        "rejetes", lignes.size() - acceptees.size(),
+                        "resultats", resultats
+                )
+        );
+    }
+
+    /**
+     * Motif de rejet d'une ligne, sous la forme de l'exception qu'aurait levee un transfert unitaire
+     * (non levee : la ligne est rejetee et le lot continue), ou null si la ligne est acceptee.
+     */
+    private RuntimeException valider(LigneTransfertDto ligne, UUID uuidEmetteur, Compte recepteur, long disponible) {
+        if (ligne.getCompteRecepteur().equals(uuidEmetteur)) {
+            return new TransfertRefuseException(TransfertRefuseException.Motif.MEME_COMPTE,
+                    "Impossible d'effectuer un transfert vers le même compte.");
+        }
+        if (recepteur == null) {
+            return new EntityNotFoundException("Compte récepteur introuvable : " + ligne.getCompteRecepteur());
+        }
+        if ("BLOQUE".equalsIgnoreCase(recepteur.getStatus())) {
+            return new TransfertRefuseException(TransfertRefuseException.Motif.COMPTE_BLOQUE,
+                    "Le compte récepteur est bloqué ou inactif.");
+        }
+        if (disponible < ligne.getMontant()) {
+            return new TransfertRefuseException(TransfertRefuseException.Motif.SOLDE_INSUFFISANT,
+                    "Solde insuffisant pour cette ligne. Solde restant: " + disponible);
+        }
+        return null;
+    }
+
+    private Map<String, Object> resultat(int index, LigneTransfertDto ligne, String motif) {
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("index", index);
+        resultat.put("compteRecepteur", ligne.getCompteRecepteur());
+        resultat.put("montant", ligne.getMontant());
+        resultat.put("statut", motif == null ? "EFFECTUE" : "REJETE");
+        if (motif != null) {
+            resultat.put("motif", motif);
+        }
+        return resultat;
+    }
+
+    /**
+     * Deux ecritures par ligne acceptee (debit emetteur, credit recepteur), inserees en un seul batch.
+     */
+    private void enregistrerEcritures(UUID uuidEmetteur, List<LigneTransfertDto> acceptees) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<EcritureJournal> ecritures = new ArrayList<>(acceptees.size() * 2);
+        for (LigneTransfertDto ligne : acceptees) {
+            ecritures.addAll(JournalService.ecrituresTransfert(uuidEmetteur, ligne.getCompteRecepteur(), ligne.getMontant(), maintenant));
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO ecriture_journal (num_compte, contrepartie, montant, date_ecriture, reference_operation) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        EcritureJournal ecriture = ecritures.get(i);
+                        ps.setObject(1, ecriture.getNumCompte());
+                        ps.setObject(2, ecriture.getContrepartie());
+                        ps.setLong(3, ecriture.getMontant());
+                        ps.setObject(4, ecriture.getDateEcriture());
+                        ps.setObject(5, ecriture.getReferenceOperation());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return ecritures.size();
+                    }
+                });
+    }
+
+    private void enregistrerAvisCredit(List<LigneTransfertDto> acceptees) {
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO message_outbox (type, destinataire, contenu, date_creation, disponible_a, tentatives, abandonne) " +
+                        "VALUES (?, ?, ?, ?, ?, 0, false)",
+                acceptees, acceptees.size(),
+                (ps, ligne) -> {
+                    ps.setString(1, OutboxService.TYPE_CREDIT_TRANSFERT);
+                    ps.setString(2, ligne.getCompteRecepteur().toString());
+                    ps.setString(3, OutboxService.messageCredit(ligne.getMontant()));
+                    ps.setTimestamp(4, maintenant);
+                    ps.setTimestamp(5, maintenant);
+                });
+    }
+
+    /**
+     * Avec le moteur ledger, les soldes vivent en memoire : chaque ligne passe par le moteur,
+     * sans aller-retour base de donnees.
+     */
+    private ApiResponse traiterViaLedger(TransfertBatchDto batchDto) {
+        List<LigneTransfertDto> lignes = batchDto.getLignes();
+        List<Map<String, Object>> resultats = new ArrayList<>(lignes.size());
+        int effectues = 0;
+        for (int i = 0; i < lignes.size(); i++) {
+            LigneTransfertDto ligne = lignes.get(i);
+            String motif = null;
+            try {
+                ledgerEngine.effectuerTransfert(
+                        new TransfertDto(ligne.getMontant(), batchDto.getCompteEmetteur(), ligne.getCompteRecepteur()));
+                effectues++;
+            } catch (RuntimeException e) {
+                metriquesTransfert.echec(e);
+                motif = e.getMessage();
+            }
+            resultats.add(resultat(i, ligne, motif));
+        }
+        return new ApiResponse(
+                "Lot traité : " + effectues + " transfert(s) effectué(s), " + (lignes.size() - effectues) + " rejeté(s).",
+                HttpStatus.CREATED.value(),
+                Map.of(
+                        "effectues", effectues,
+                        "rejetes", lignes.size() - effectues,
+                        "resultats", resultats
+                )
+        );
+    }
+}
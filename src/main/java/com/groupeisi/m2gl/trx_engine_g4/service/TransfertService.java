@@ -1,22 +1,31 @@
 package com.groupeisi.m2gl.trx_engine_g4.service;
 
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.ContrepartieDto;
 import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.entities.CleIdempotence;
 import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
-import com.groupeisi.m2gl.trx_engine_g4.entities.DetailsTransaction;
-import com.groupeisi.m2gl.trx_engine_g4.entities.Transfert;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
 import com.groupeisi.m2gl.trx_engine_g4.entities.User;
 import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
-import com.groupeisi.m2gl.trx_engine_g4.Repository.TransfertRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
 import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
 import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import com.groupeisi.m2gl.trx_engine_g4.ledger.LedgerEngine;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,45 +33,187 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TransfertService {
 
+    // Lectures d'historique (fort debit) : logger distinct, echantillonnable (logging.echantillonnage)
+    private static final Logger LECTURES = LoggerFactory.getLogger(TransfertService.class.getName() + ".lectures");
+
+    public static final int TAILLE_PAGE_PAR_DEFAUT = 20;
+    public static final int TAILLE_PAGE_MAX = 100;
+
     private final CompteRepository compteRepository;
-    private final TransfertRepository transfertRepository;
+    private final EcritureJournalRepository ecritureJournalRepository;
     private final UserRepository userRepository;
+    private final LedgerEngine ledgerEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ContrepartieCache contrepartieCache;
+    private final IdempotenceService idempotenceService;
+    private final JournalService journalService;
+    private final OutboxService outboxService;
+    private final MetriquesTransfert metriquesTransfert;
 
-    @Transactional
+    /**
+     * Point d'entree des transferts : passe par le moteur ledger en memoire s'il est active,
+     * sinon par le chemin JPA transactionnel.
+     */
     public ApiResponse effectuerTransfert(TransfertDto transfertDto) {
+        if (ledgerEngine.isEnabled()) {
+            return mesurer(metriquesTransfert.demarrer("ledger"), transfertDto, false, () -> ledgerEngine.effectuerTransfert(transfertDto));
+        }
+        MetriquesTransfert.Chrono chrono = metriquesTransfert.demarrer("jpa");
+        return mesurer(chrono, transfertDto, false, () -> {
+            ApiResponse reponse = transactionTemplate.execute(status -> effectuerTransfertJpa(transfertDto, chrono));
+            chrono.etape("commit");
+            return reponse;
+        });
+    }
+
+    /**
+     * Variante avec cle Idempotency-Key : une requete rejouee (retry reseau) recoit la reponse d'origine
+     * sans que le transfert soit execute une seconde fois. La cle est propre au compte emetteur.
+     */
+    public ApiResponse effectuerTransfert(TransfertDto transfertDto, String cleIdempotence) {
+        if (cleIdempotence == null || cleIdempotence.isBlank()) {
+            return effectuerTransfert(transfertDto);
+        }
+        if (cleIdempotence.length() > 100) {
+            throw new IllegalArgumentException("La clé d'idempotence ne doit pas dépasser 100 caractères.");
+        }
+
+        UUID emetteur = transfertDto.getCompteEmetteur();
+        String empreinte = IdempotenceService.empreinte(
+                transfertDto.getMontant(), emetteur, transfertDto.getCompteRecepteur());
+        Optional<ApiResponse> reponseExistante = idempotenceService.rejouer(emetteur, cleIdempotence, empreinte);
+        if (reponseExistante.isPresent()) {
+            metriquesTransfert.rejeu();
+            return reponseExistante.get();
+        }
+
+        try {
+            if (ledgerEngine.isEnabled()) {
+                return mesurer(metriquesTransfert.demarrer("ledger"), transfertDto, true,
+                        () -> effectuerTransfertLedgerIdempotent(transfertDto, cleIdempotence, empreinte));
+            }
+            // La cle est reservee dans la meme transaction que le transfert : tout ou rien
+            MetriquesTransfert.Chrono chrono = metriquesTransfert.demarrer("jpa");
+            return mesurer(chrono, transfertDto, true, () -> {
+                ApiResponse resultat = transactionTemplate.execute(status -> {
+                    CleIdempotence reservation = idempotenceService.reserver(emetteur, cleIdempotence, empreinte);
+                    chrono.etape("idempotence_reservation");
+                    ApiResponse reponse = effectuerTransfertJpa(transfertDto, chrono);
+                    idempotenceService.completer(reservation, reponse);
+                    chrono.etape("idempotence_completion");
+                    return reponse;
+                });
+                chrono.etape("commit");
+                return resultat;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Une requete concurrente avec la meme cle a ete validee avant celle-ci : on rejoue sa reponse
+            Optional<ApiResponse> reponseConcurrente = idempotenceService.rejouer(emetteur, cleIdempotence, empreinte);
+            if (reponseConcurrente.isEmpty()) {
+                metriquesTransfert.echec(e);
+                throw e;
+            }
+            metriquesTransfert.rejeu();
+            log.atInfo()
+                    .addKeyValue("emetteur", emetteur)
+                    .addKeyValue("cle", cleIdempotence)
+                    .log("🔁 Transfert rejoue (requete concurrente)");
+            return reponseConcurrente.get();
+        }
+    }
+
+    /**
+     * Le moteur ledger n'est pas transactionnel : la cle est reservee et validee avant le transfert,
+     * puis completee apres, ou liberee si le transfert echoue.
+     */
+    private ApiResponse effectuerTransfertLedgerIdempotent(TransfertDto transfertDto, String cleIdempotence, String empreinte) {
+        UUID emetteur = transfertDto.getCompteEmetteur();
+        CleIdempotence reservation = transactionTemplate.execute(
+                status -> idempotenceService.reserver(emetteur, cleIdempotence, empreinte));
+        ApiResponse reponse;
+        try {
+            reponse = ledgerEngine.effectuerTransfert(transfertDto);
+        } catch (RuntimeException e) {
+            idempotenceService.liberer(emetteur, cleIdempotence);
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> idempotenceService.completer(reservation, reponse));
+        return reponse;
+    }
+
+    /**
+     * Duree totale du transfert et, s'il echoue, comptage de l'echec par motif.
+     * Une ligne de log par transfert, en champs structures (comptes, montant, duree) plutot qu'en texte formate.
+     * Avec une cle d'idempotence, un conflit sur la cle n'est ni un succes ni un refus : l'appelant le compte (rejeu ou echec).
+     */
+    private ApiResponse mesurer(MetriquesTransfert.Chrono chrono, TransfertDto transfertDto, boolean idempotent,
+                                Supplier<ApiResponse> transfert) {
+        try {
+            ApiResponse reponse = transfert.get();
+            long nanos = chrono.terminer(true);
+            log.atInfo()
+                    .addKeyValue("emetteur", transfertDto.getCompteEmetteur())
+                    .addKeyValue("recepteur", transfertDto.getCompteRecepteur())
+                    .addKeyValue("montant", transfertDto.getMontant())
+                    .addKeyValue("dureeUs", nanos / 1_000)
+                    .log("💸 Transfert effectue");
+            return reponse;
+        } catch (RuntimeException e) {
+            if (idempotent && e instanceof DataIntegrityViolationException) {
+                throw e;
+            }
+            long nanos = chrono.terminer(false);
+            metriquesTransfert.echec(e);
+            log.atInfo()
+                    .addKeyValue("emetteur", transfertDto.getCompteEmetteur())
+                    .addKeyValue("recepteur", transfertDto.getCompteRecepteur())
+                    .addKeyValue("montant", transfertDto.getMontant())
+                    .addKeyValue("motif", MetriquesTransfert.motif(e))
+                    .addKeyValue("dureeUs", nanos / 1_000)
+                    .log("⛔ Transfert refuse");
+            throw e;
+        }
+    }
+
+    private ApiResponse effectuerTransfertJpa(TransfertDto transfertDto, MetriquesTransfert.Chrono chrono) {
         // 1. Extraction des données simplifiée
-        float montant = transfertDto.getMontant();
+        long montant = transfertDto.getMontant();
         UUID uuidEmetteur = transfertDto.getCompteEmetteur();
         UUID uuidRecepteur = transfertDto.getCompteRecepteur();
 
         // 2. Validations de base
         if (uuidEmetteur.equals(uuidRecepteur)) {
-            throw new IllegalArgumentException("Impossible d'effectuer un transfert vers le même compte.");
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.MEME_COMPTE,
+                    "Impossible d'effectuer un transfert vers le même compte.");
         }
 
-        // 3. Récupération des comptes
-        // Les exceptions sont levées ici (EntityNotFoundException, etc.)
-        Compte emetteur = getCompteOrThrow(uuidEmetteur, "émetteur");
+        // 3. Récupération des comptes : seul l'emetteur est verrouille, le recepteur n'est que lu
+        Compte emetteur = compteRepository.findByNumCompteForUpdate(uuidEmetteur)
+                .orElseThrow(() -> new EntityNotFoundException("Compte émetteur introuvable : " + uuidEmetteur));
+        chrono.etape("verrou_emetteur");
         Compte recepteur = getCompteOrThrow(uuidRecepteur, "récepteur");
+        chrono.etape("lecture_recepteur");
 
         // 4. Validations métier
         if ("BLOQUE".equalsIgnoreCase(emetteur.getStatus()) || "BLOQUE".equalsIgnoreCase(recepteur.getStatus())) {
-            throw new IllegalStateException("L'un des comptes est bloqué ou inactif.");
-        }
-        if (emetteur.getSolde() < montant) {
-            throw new IllegalArgumentException("Solde insuffisant pour effectuer ce transfert. Solde actuel: " + emetteur.getSolde());
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.COMPTE_BLOQUE, "L'un des comptes est bloqué ou inactif.");
         }
+        chrono.etape("validation");
 
-        // 5. Opération de transfert
-        emetteur.setSolde(emetteur.getSolde() - montant);
-        recepteur.setSolde(recepteur.getSolde() + montant);
-
-        // Sauvegarde des comptes mis à jour
-        compteRepository.save(emetteur);
-        compteRepository.save(recepteur);
+        // 5. Solde courant de l'emetteur (snapshot + journal), stable tant que le verrou est tenu
+        long solde = journalService.soldeCourant(uuidEmetteur);
+        chrono.etape("solde");
+        if (solde < montant) {
+            throw new TransfertRefuseException(TransfertRefuseException.Motif.SOLDE_INSUFFISANT,
+                    "Solde insuffisant pour effectuer ce transfert. Solde actuel: " + solde);
+        }
 
-        // 6. Enregistrement de l'historique
-        Transfert nouveauTransfert = enregistrerTransfert(transfertDto);
+        // 6. Opération de transfert : deux insertions dans le journal, aucune ligne de solde modifiee,
+        //    et l'avis de credit au recepteur dans l'outbox (meme transaction)
+        journalService.enregistrerTransfert(uuidEmetteur, uuidRecepteur, montant, LocalDateTime.now());
+        chrono.etape("journal");
+        outboxService.publierCreditTransfert(uuidRecepteur, montant);
+        chrono.etape("outbox");
 
         // 7. Retourne l'ApiResponse formaté
         return new ApiResponse(
@@ -77,24 +228,18 @@ public class TransfertService {
                 .orElseThrow(() -> new EntityNotFoundException("Compte " + type + " introuvable : " + numCompte));
     }
 
-    private Transfert enregistrerTransfert(TransfertDto dto) {
-        DetailsTransaction details = new DetailsTransaction();
-        details.setCompteEmetteur(dto.getCompteEmetteur());
-        details.setCompteRecepteur(dto.getCompteRecepteur());
-        Transfert transfert = new Transfert();
-        transfert.setMontant(dto.getMontant());
-        transfert.setDateTransfert(LocalDateTime.now());
-        transfert.setDetailsTransaction(details);
-
-        return transfertRepository.save(transfert);
+    private Map<UUID, ContrepartieDto> chargerContreparties(List<EcritureJournal> page) {
+        Set<UUID> autresComptes = page.stream().map(EcritureJournal::getContrepartie).collect(Collectors.toSet());
+        return contrepartieCache.getAll(autresComptes);
     }
 
     /**
-     * Récupère l'historique des transactions d'un utilisateur par son numéro de téléphone
+     * Récupère une page de l'historique des transactions d'un utilisateur par son numéro de téléphone.
+     * Les transactions sont triees de la plus recente a la plus ancienne ; chaque ligne porte un "curseur"
+     * a renvoyer pour obtenir la page suivante (null pour la premiere page).
      */
-    public ApiResponse getTransfertsByUser(String phoneNumber) {
-        log.info("📋 Recuperation de l'historique pour: {}", phoneNumber);
-
+    public ApiResponse getTransfertsByUser(String phoneNumber, Long curseur, int taille) {
+        long debut = System.nanoTime();
         try {
             // 1. Récupérer l'utilisateur
             Optional<User> userOptional = userRepository.findByTelephone(phoneNumber);
@@ -117,55 +262,42 @@ public class TransfertService {
 
             UUID numCompte = user.getCompte().getNumCompte();
 
-            // 2. Récupérer tous les transferts
-            List<Transfert> allTransferts = transfertRepository.findAll();
-
-            // 3. Filtrer les transferts où l'utilisateur est émetteur ou récepteur
-            List<Map<String, Object>> transactions = allTransferts.stream()
-                    .filter(t -> t.getDetailsTransaction() != null &&
-                            (t.getDetailsTransaction().getCompteEmetteur().equals(numCompte) ||
-                                    t.getDetailsTransaction().getCompteRecepteur().equals(numCompte)))
-                    .sorted((t1, t2) -> t2.getDateTransfert().compareTo(t1.getDateTransfert()))
-                    .map(t -> {
-                        boolean isDebit = t.getDetailsTransaction().getCompteEmetteur().equals(numCompte);
-                        UUID autreCompteId = isDebit
-                                ? t.getDetailsTransaction().getCompteRecepteur()
-                                : t.getDetailsTransaction().getCompteEmetteur();
-
-                        // Récupérer les infos de l'autre compte
-                        Optional<Compte> autreCompteOpt = compteRepository.findByNumCompte(autreCompteId);
-                        String autreNom = "Inconnu";
-                        String autreTelephone = "";
-
-                        if (autreCompteOpt.isPresent()) {
-                            Compte autreCompte = autreCompteOpt.get();
-                            // Récupérer l'utilisateur associé
-                            Optional<User> autreUserOpt = userRepository.findAll().stream()
-                                    .filter(u -> u.getCompte() != null && u.getCompte().getId().equals(autreCompte.getId()))
-                                    .findFirst();
-
-                            if (autreUserOpt.isPresent()) {
-                                User autreUser = autreUserOpt.get();
-                                autreNom = (autreUser.getPrenom() != null && autreUser.getNom() != null)
-                                        ? autreUser.getPrenom() + " " + autreUser.getNom()
-                                        : autreUser.getNomUtilisateur();
-                                autreTelephone = autreUser.getTelephone();
-                            }
-                        }
+            // 2. Récupérer la page : les ecritures du compte avant le curseur, par un seul parcours d'index
+            List<EcritureJournal> page = ecritureJournalRepository.findByNumCompteAvant(
+                    numCompte, curseur != null ? curseur : Long.MAX_VALUE,
+                    PageRequest.of(0, Math.min(Math.max(taille, 1), TAILLE_PAGE_MAX)));
+
+            // 3. Résoudre les contreparties de la page (cache, puis une seule requête pour les absents)
+            Map<UUID, ContrepartieDto> contreparties = chargerContreparties(page);
+
+            // 4. Construire les lignes d'historique
+            List<Map<String, Object>> transactions = page.stream()
+                    .map(e -> {
+                        boolean isDebit = e.getMontant() < 0;
+
+                        ContrepartieDto autre = contreparties.get(e.getContrepartie());
+                        String autreNom = autre != null ? autre.getNomAffiche() : "Inconnu";
+                        String autreTelephone = autre != null ? autre.getTelephone() : "";
 
                         Map<String, Object> transaction = new HashMap<>();
-                        transaction.put("id", t.getId());
-                        transaction.put("montant", t.getMontant());
-                        transaction.put("date", t.getDateTransfert().toString());
+                        transaction.put("id", e.getId());
+                        transaction.put("montant", Math.abs(e.getMontant()));
+                        transaction.put("date", e.getDateEcriture().toString());
                         transaction.put("isDebit", isDebit);
                         transaction.put("type", isDebit ? "SORTIE" : "ENTREE");
                         transaction.put("autreNom", autreNom);
                         transaction.put("autreTelephone", autreTelephone);
+                        transaction.put("curseur", e.getId());
                         return transaction;
                     })
                     .collect(Collectors.toList());
 
-            log.info("✅ {} transactions trouvees", transactions.size());
+            LECTURES.atInfo()
+                    .addKeyValue("compte", numCompte)
+                    .addKeyValue("transactions", transactions.size())
+                    .addKeyValue("curseur", curseur)
+                    .addKeyValue("dureeUs", (System.nanoTime() - debut) / 1_000)
+                    .log("📋 Historique recupere");
 
             return new ApiResponse(
                     "Historique recupere avec succes",
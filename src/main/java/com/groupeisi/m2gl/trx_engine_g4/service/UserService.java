@@ -9,11 +9,15 @@ import com.groupeisi.m2gl.trx_engine_g4.request.RegisterRequest;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -27,21 +31,29 @@ public class UserService {
     private final org.modelmapper.ModelMapper modelMapper;
     private static final Pattern PHONE_PATTERN = Pattern.compile("^\\+[1-9]\\d{1,14}$");
     private final CompteService compteService;
+    private final ContrepartieCache contrepartieCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor inscriptionExecutor;
 
     @Autowired
     public UserService(PlatformTransactionManager transactionManager, KeycloakService keycloakService,
                        UserRepository userRepository, org.modelmapper.ModelMapper modelMapper,
-                       CompteService compteService) {
+                       CompteService compteService, ContrepartieCache contrepartieCache,
+                       @Qualifier("inscriptionExecutor") Executor inscriptionExecutor) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inscriptionExecutor = inscriptionExecutor;
         this.keycloakService = keycloakService;
         this.userRepository = userRepository;
         this.modelMapper = modelMapper;
         this.compteService = compteService;
+        this.contrepartieCache = contrepartieCache;
     }
 
     /**
-     * Fonction d'inscription simplifiée type Wave
+     * Fonction d'inscription simplifiée type Wave.
+     * Les vérifications indépendantes tournent en parallèle et les appels Keycloak sont faits hors transaction DB :
+     * la transaction ne couvre que l'écriture locale, et un échec déclenche la compensation Keycloak.
      */
-    @Transactional // La transaction DB va gérer le rollback local, nous gérons le rollback Keycloak.
     public ApiResponse registerUser(RegisterRequest registerRequest) {
         log.info("➡️ Début inscription utilisateur : {}", registerRequest.getNomUtilisateur());
 
@@ -55,26 +67,12 @@ public class UserService {
                 return validationResponse;
             }
 
-            // 2. Vérification du téléphone (DB locale)
-            if (phoneExists(registerRequest.getTelephone())) {
-                return new ApiResponse("Ce numéro de téléphone est déjà enregistré", 409,false );
+            // 2-3. Vérifications du téléphone (DB locale) et du nom d'utilisateur (Keycloak), en parallèle
+            ApiResponse disponibilite = verifierDisponibilite(registerRequest);
+            if (disponibilite != null) {
+                return disponibilite;
             }
-
-            // 3. Vérification du nom d'utilisateur (Keycloak)
             String username = registerRequest.getNomUtilisateur();
-            log.info("🔍 Vérification disponibilité username : {}", username);
-
-            ApiResponse usernameCheck = keycloakService.usernameExists(username);
-
-            if (!usernameCheck.isSuccess() && usernameCheck.getStatusCode() == 409) {
-                log.warn("❌ Username '{}' déjà pris.", username);
-                return new ApiResponse("Le nom d'utilisateur '" + username + "' est déjà pris ou indisponible.", 409,false);
-            }
-
-            if (!usernameCheck.isSuccess() && usernameCheck.getStatusCode() >= 500) {
-                log.error("💥 ERREUR Keycloak - Problème d'authentification/serveur : Code {}", usernameCheck.getStatusCode());
-                return new ApiResponse("Erreur de connexion au serveur d'identité Keycloak (vérifiez les logs KeycloakService).", usernameCheck.getStatusCode(), false);
-            }
 
             // 4. Création DTO
             UserDto userDTO = createUserDtoFromRequest(registerRequest, username);
@@ -93,19 +91,17 @@ public class UserService {
                 throw new RuntimeException("Erreur lors de l'attribution du rôle: " + roleResponse.getMessage());
             }
 
-            // 7. Sauvegarde en DB locale (Étape critique 2 - L'échec précédent était ici)
+            // 7. Sauvegarde en DB locale, compte et OTP : seule partie transactionnelle, apres les appels Keycloak
             userDTO.setRoleName(roleName);
-            ApiResponse saveResponse = saveUserInDatabase(userDTO, keycloakUserId);
-            if (!saveResponse.isSuccess()) {
-                throw new RuntimeException("Erreur de validation ou de persistance DB: " + saveResponse.getMessage());
-            }
-
-            User savedUser = (User) saveResponse.getData();
-            ApiResponse compteResponse = compteService.createUniqueCompteAndSendOtp(savedUser);
-
-            if (!compteResponse.isSuccess()) {
-                throw new RuntimeException("Erreur lors de la création du compte/OTP: " + compteResponse.getMessage());
-            }
+            String idKeycloak = keycloakUserId;
+            ApiResponse compteResponse = transactionTemplate.execute(status -> {
+                User savedUser = sauvegarderOuEchouer(userDTO, idKeycloak);
+                ApiResponse reponse = compteService.createUniqueCompteAndSendOtp(savedUser);
+                if (!reponse.isSuccess()) {
+                    throw new RuntimeException("Erreur lors de la création du compte/OTP: " + reponse.getMessage());
+                }
+                return reponse;
+            });
             return new ApiResponse(
                     "Inscription réussie. Veuillez valider votre compte en utilisant le code OTP envoyé par SMS.",
                     201,
@@ -136,10 +132,53 @@ public class UserService {
             return new ApiResponse("Erreur technique: " + e.getMessage(), false, 500, null);
         }
     }
+    /**
+     * Lance en parallèle la vérification du téléphone (base locale) et celle du nom d'utilisateur (Keycloak),
+     * et lit le rôle demandé pour que le cache des rôles soit chaud au moment de l'attribution.
+     * Retourne la première erreur dans l'ordre habituel des vérifications, ou null si tout est disponible.
+     */
+    private ApiResponse verifierDisponibilite(RegisterRequest registerRequest) {
+        String username = registerRequest.getNomUtilisateur();
+        log.info("🔍 Vérification disponibilité téléphone et username : {}", username);
+
+        CompletableFuture<Boolean> telephonePris =
+                CompletableFuture.supplyAsync(() -> phoneExists(registerRequest.getTelephone()), inscriptionExecutor);
+        CompletableFuture<ApiResponse> usernameCheckFuture =
+                CompletableFuture.supplyAsync(() -> keycloakService.usernameExists(username), inscriptionExecutor);
+        String roleName = registerRequest.getRoleName() != null ? registerRequest.getRoleName() : "user";
+        CompletableFuture.runAsync(() -> keycloakService.roleExists(roleName), inscriptionExecutor);
+
+        if (telephonePris.join()) {
+            return new ApiResponse("Ce numéro de téléphone est déjà enregistré", 409, false);
+        }
+
+        ApiResponse usernameCheck = usernameCheckFuture.join();
+        if (!usernameCheck.isSuccess() && usernameCheck.getStatusCode() == 409) {
+            log.warn("❌ Username '{}' déjà pris.", username);
+            return new ApiResponse("Le nom d'utilisateur '" + username + "' est déjà pris ou indisponible.", 409, false);
+        }
+        if (!usernameCheck.isSuccess() && usernameCheck.getStatusCode() >= 500) {
+            log.error("💥 ERREUR Keycloak - Problème d'authentification/serveur : Code {}", usernameCheck.getStatusCode());
+            return new ApiResponse("Erreur de connexion au serveur d'identité Keycloak (vérifiez les logs KeycloakService).", usernameCheck.getStatusCode(), false);
+        }
+        return null;
+    }
+
+    /**
+     * Sauvegarde locale dans la transaction courante ; lève une exception en cas d'échec pour l'annuler.
+     */
+    private User sauvegarderOuEchouer(UserDto userDTO, String keycloakUserId) {
+        ApiResponse saveResponse = saveUserInDatabase(userDTO, keycloakUserId);
+        if (!saveResponse.isSuccess()) {
+            throw new RuntimeException("Erreur de validation ou de persistance DB: " + saveResponse.getMessage());
+        }
+        return (User) saveResponse.getData();
+    }
+
     /**
      * Validation des données d'inscription
      */
-    private ApiResponse validateRegistrationData(RegisterRequest request) {
+    ApiResponse validateRegistrationData(RegisterRequest request) {
         // Vérification du téléphone
         if (request.getTelephone() == null || request.getTelephone().trim().isEmpty()) {
             return new ApiResponse("Le numéro de téléphone est obligatoire",400, false);
@@ -330,6 +369,7 @@ public class UserService {
                 existingUser.setKeycloakId(savedKeycloakId);
                 existingUser.setId(savedUserId);
                 userRepository.save(existingUser);
+                invaliderContrepartie(existingUser);
 
                 return new ApiResponse("Utilisateur mis à jour avec succès",  200, true);
             } else {
@@ -354,9 +394,8 @@ public class UserService {
     }
 
     /**
-     * Fonction d'inscription Marchant
+     * Fonction d'inscription Marchant (même enchaînement que registerUser)
      */
-    @Transactional
     public ApiResponse registerUserMarchant(RegisterRequest registerRequest) {
         log.info("➡️ Début inscription utilisateur : {}", registerRequest.getNomUtilisateur());
 
@@ -370,26 +409,12 @@ public class UserService {
                 return validationResponse;
             }
 
-            // 2. Vérification du téléphone (DB locale)
-            if (phoneExists(registerRequest.getTelephone())) {
-                return new ApiResponse("Ce numéro de téléphone est déjà enregistré",  409, false);
+            // 2-3. Vérifications du téléphone (DB locale) et du nom d'utilisateur (Keycloak), en parallèle
+            ApiResponse disponibilite = verifierDisponibilite(registerRequest);
+            if (disponibilite != null) {
+                return disponibilite;
             }
-
-            // 3. Vérification du nom d'utilisateur (Keycloak)
             String username = registerRequest.getNomUtilisateur();
-            log.info("🔍 Vérification disponibilité username : {}", username);
-
-            ApiResponse usernameCheck = keycloakService.usernameExists(username);
-
-            if (!usernameCheck.isSuccess() && usernameCheck.getStatusCode() == 409) {
-                log.warn("❌ Username '{}' déjà pris.", username);
-                return new ApiResponse("Le nom d'utilisateur '" + username + "' est déjà pris ou indisponible.",  409, false);
-            }
-
-            if (!usernameCheck.isSuccess() && usernameCheck.getStatusCode() >= 500) {
-                log.error("💥 ERREUR Keycloak - Problème d'authentification/serveur : Code {}", usernameCheck.getStatusCode());
-                return new ApiResponse("Erreur de connexion au serveur d'identité Keycloak (vérifiez les logs KeycloakService).",  usernameCheck.getStatusCode(), false);
-            }
 
             // 4. Création DTO
             UserDto userDTO = createUserDtoFromRequest(registerRequest, username);
@@ -408,14 +433,10 @@ public class UserService {
                 throw new RuntimeException("Erreur lors de l'attribution du rôle: " + roleResponse.getMessage());
             }
 
-            // 7. Sauvegarde en DB locale (Étape critique 2 - L'échec précédent était ici)
+            // 7. Sauvegarde en DB locale, dans une transaction courte apres les appels Keycloak
             userDTO.setRoleName(roleName);
-            ApiResponse saveResponse = saveUserInDatabase(userDTO, keycloakUserId);
-            if (!saveResponse.isSuccess()) {
-                throw new RuntimeException("Erreur de validation ou de persistance DB: " + saveResponse.getMessage());
-            }
-
-            User savedUser = (User) saveResponse.getData();
+            String idKeycloak = keycloakUserId;
+            User savedUser = transactionTemplate.execute(status -> sauvegarderOuEchouer(userDTO, idKeycloak));
             //ApiResponse compteResponse = compteService.createMerchantCompteAndSendOtp(savedUser);
 
             /*if (!compteResponse.isSuccess()) {
@@ -455,6 +476,15 @@ public class UserService {
         }
     }
 
+    /**
+     * Le nom et le telephone affiches dans l'historique des autres utilisateurs sont mis en cache par numCompte.
+     */
+    private void invaliderContrepartie(User user) {
+        if (user.getCompte() != null) {
+            contrepartieCache.invalider(user.getCompte().getNumCompte());
+        }
+    }
+
     /**
      * Complète le profil utilisateur après validation OTP
      * Endpoint public - pas besoin d'authentification
@@ -492,6 +522,7 @@ public class UserService {
 
             // 3. Sauvegarder dans la base de données
             User updatedUser = userRepository.save(user);
+            invaliderContrepartie(updatedUser);
             log.info("✅ Profil mis à jour avec succès: {} {}", updatedUser.getPrenom(), updatedUser.getNom());
 
             // 4. Retourner le profil mis à jour
@@ -0,0 +1,46 @@
+package com.groupeisi.m2gl.trx_engine_g4.sms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fournisseur simule : journalise les SMS au lieu de les envoyer.
+ * La latence et le taux d'echec sont configurables pour tester le relais de l'outbox en charge.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "sms.provider", havingValue = "fake", matchIfMissing = true)
+public class FakeSmsProvider implements SmsProvider {
+
+    private final long latenceMs;
+    private final double tauxEchec;
+
+    public FakeSmsProvider(@Value("${sms.fake.latence-ms:0}") long latenceMs,
+                           @Value("${sms.fake.taux-echec:0}") double tauxEchec) {
+        this.latenceMs = latenceMs;
+        this.tauxEchec = tauxEchec;
+    }
+
+    @Override
+    public void envoyer(List<SmsMessage> lot) {
+        if (latenceMs > 0) {
+            try {
+                Thread.sleep(latenceMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Envoi SMS interrompu", e);
+            }
+        }
+        if (tauxEchec > 0 && ThreadLocalRandom.current().nextDouble() < tauxEchec) {
+            throw new IllegalStateException("Echec simule du fournisseur SMS");
+        }
+        for (SmsMessage sms : lot) {
+            log.info("--- SMS SIMULÉ --- À : {} | Message : {}", sms.destinataire(), sms.contenu());
+        }
+    }
+}
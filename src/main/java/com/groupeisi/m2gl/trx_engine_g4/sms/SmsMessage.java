@@ -0,0 +1,4 @@
+package com.groupeisi.m2gl.trx_engine_g4.sms;
+
+public record SmsMessage(String destinataire, String contenu) {
+}
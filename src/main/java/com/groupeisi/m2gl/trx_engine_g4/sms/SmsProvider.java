@@ -0,0 +1,12 @@
+package com.groupeisi.m2gl.trx_engine_g4.sms;
+
+import java.util.List;
+
+/**
+ * Fournisseur d'envoi de SMS (Twilio, AfricasTalking, ...).
+ * Recoit un lot de messages par appel ; une exception signale l'echec du lot entier, qui sera reessaye.
+ */
+public interface SmsProvider {
+
+    void envoyer(List<SmsMessage> lot);
+}
@@ -0,0 +1,87 @@
+-- Schema de base, premiere migration : Hibernate ne fait plus que le valider (ddl-auto=validate).
+-- Sur une base neuve, les tables des entites sont creees ici, avant les migrations suivantes qui les font evoluer.
+-- Sur une base deja creee par Hibernate (ddl-auto=update, prise en version 0), tout est deja en place et rien n'est modifie.
+CREATE TABLE IF NOT EXISTS compte (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    num_compte      UUID         NOT NULL UNIQUE,
+    solde           BIGINT       NOT NULL,
+    type_compte     VARCHAR(255),
+    status          VARCHAR(255),
+    code_marchant   INTEGER,
+    date_creation   DATE,
+    otp_code        VARCHAR(255),
+    otp_expiry_time BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS app_user (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    keycloak_id     VARCHAR(255),
+    nom             VARCHAR(255),
+    prenom          VARCHAR(255),
+    nom_utilisateur VARCHAR(255),
+    telephone       VARCHAR(255),
+    nin             BIGINT,
+    role_name       VARCHAR(255),
+    compte_id       INTEGER UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS details_transaction (
+    id               INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    compte_emetteur  UUID,
+    compte_recepteur UUID
+);
+
+CREATE TABLE IF NOT EXISTS transfert (
+    id                     INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    montant                BIGINT NOT NULL,
+    date_transfert         TIMESTAMP(6),
+    details_transaction_id INTEGER UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS cle_idempotence (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    compte_emetteur UUID         NOT NULL,
+    cle             VARCHAR(100) NOT NULL,
+    empreinte       VARCHAR(64)  NOT NULL,
+    message         VARCHAR(255),
+    status_code     INTEGER      NOT NULL,
+    date_creation   TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS import_job (
+    id                     BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    format                 VARCHAR(10) NOT NULL,
+    statut                 VARCHAR(20) NOT NULL,
+    date_debut             TIMESTAMP(6),
+    date_fin               TIMESTAMP(6),
+    derniere_ligne_validee BIGINT      NOT NULL,
+    importes               BIGINT      NOT NULL,
+    deja_presents          BIGINT      NOT NULL,
+    rejetes                BIGINT      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS import_ligne (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    job_id          BIGINT       NOT NULL,
+    numero_ligne    BIGINT       NOT NULL,
+    telephone       VARCHAR(255),
+    nom_utilisateur VARCHAR(255),
+    statut          VARCHAR(20)  NOT NULL,
+    motif           VARCHAR(500),
+    keycloak_id     VARCHAR(255)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cle_idempotence_emetteur_cle ON cle_idempotence (compte_emetteur, cle);
+CREATE INDEX IF NOT EXISTS idx_cle_idempotence_date ON cle_idempotence (date_creation);
+CREATE INDEX IF NOT EXISTS idx_import_ligne_job ON import_ligne (job_id, numero_ligne);
+
+-- Cles etrangeres sous les noms generes par Hibernate : une base creee par update les a deja
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fkmw2unrrdu7oqyxrhcj0hacq8f') THEN
+        ALTER TABLE app_user ADD CONSTRAINT fkmw2unrrdu7oqyxrhcj0hacq8f FOREIGN KEY (compte_id) REFERENCES compte;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk31s2p2e6fhnkd7yd51r7b9g41') THEN
+        ALTER TABLE transfert ADD CONSTRAINT fk31s2p2e6fhnkd7yd51r7b9g41 FOREIGN KEY (details_transaction_id) REFERENCES details_transaction;
+    END IF;
+END $$;
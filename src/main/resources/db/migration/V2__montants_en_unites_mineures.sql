@@ -0,0 +1,8 @@
+-- Montants en unites mineures : le franc CFA n'a pas de subdivision, 1 unite = 1 FCFA.
+-- Les valeurs float existantes sont arrondies a l'unite la plus proche.
+-- Sur une base neuve, V1 les a deja creees en BIGINT : la conversion est sans effet.
+ALTER TABLE IF EXISTS compte
+    ALTER COLUMN solde TYPE BIGINT USING ROUND(solde)::BIGINT;
+
+ALTER TABLE IF EXISTS transfert
+    ALTER COLUMN montant TYPE BIGINT USING ROUND(montant)::BIGINT;
@@ -0,0 +1,46 @@
+-- Journal en partie double, source de verite des soldes.
+-- La table est creee ici (et non par Hibernate) pour pouvoir y reprendre l'historique existant.
+CREATE TABLE IF NOT EXISTS ecriture_journal (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    num_compte          UUID         NOT NULL,
+    contrepartie        UUID         NOT NULL,
+    montant             BIGINT       NOT NULL,
+    date_ecriture       TIMESTAMP(6) NOT NULL,
+    reference_operation UUID         NOT NULL,
+    -- Deja integree au snapshot de solde du compte (marquee par CompacteurJournal)
+    compactee           BOOLEAN      NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX IF NOT EXISTS idx_ecriture_compte_id ON ecriture_journal (num_compte, id);
+
+-- Queue du journal d'un compte (solde courant) : seules les lignes non compactees sont indexees
+CREATE INDEX IF NOT EXISTS idx_ecriture_non_compactee ON ecriture_journal (num_compte) WHERE compactee = FALSE;
+
+-- Reprise de l'historique Transfert/DetailsTransaction : deux ecritures par transfert, dans l'ordre d'origine.
+-- Les soldes des comptes integrent deja ces transferts : les ecritures reprises sont donc inserees deja compactees.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'transfert')
+       AND EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'details_transaction') THEN
+
+        INSERT INTO ecriture_journal (num_compte, contrepartie, montant, date_ecriture, reference_operation, compactee)
+        SELECT l.num_compte, l.contrepartie, l.montant, x.date_transfert, x.reference, TRUE
+        FROM (
+            SELECT t.id, t.montant, COALESCE(t.date_transfert, now()) AS date_transfert,
+                   d.compte_emetteur, d.compte_recepteur, gen_random_uuid() AS reference
+            FROM transfert t
+            JOIN details_transaction d ON d.id = t.details_transaction_id
+            WHERE d.compte_emetteur IS NOT NULL AND d.compte_recepteur IS NOT NULL
+        ) x
+        CROSS JOIN LATERAL (VALUES
+            (x.compte_emetteur, x.compte_recepteur, -x.montant, 0),
+            (x.compte_recepteur, x.compte_emetteur, x.montant, 1)
+        ) AS l(num_compte, contrepartie, montant, rang)
+        ORDER BY x.id, l.rang;
+    END IF;
+END $$;
+
+-- L'historique est desormais lu dans le journal : les index par compte de details_transaction
+-- (crees par l'ancien ddl-auto=update) ne servent plus et ralentiraient seulement les ecritures
+DROP INDEX IF EXISTS idx_details_emetteur_id;
+DROP INDEX IF EXISTS idx_details_recepteur_id;
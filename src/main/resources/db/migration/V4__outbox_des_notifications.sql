@@ -0,0 +1,23 @@
+-- Outbox des notifications (MessageOutbox), lue et ecrite en SQL natif par OutboxRelay et les insertions par lots.
+-- Une base deja creee par Hibernate a une colonne disponiblea (nom derive sans separateur) : elle est renommee.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'message_outbox' AND column_name = 'disponiblea') THEN
+        ALTER TABLE message_outbox RENAME COLUMN disponiblea TO disponible_a;
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS message_outbox (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type          VARCHAR(30)   NOT NULL,
+    destinataire  VARCHAR(100)  NOT NULL,
+    contenu       VARCHAR(1000) NOT NULL,
+    date_creation TIMESTAMP(6)  NOT NULL,
+    disponible_a  TIMESTAMP(6)  NOT NULL,
+    tentatives    INTEGER       NOT NULL DEFAULT 0,
+    abandonne     BOOLEAN       NOT NULL DEFAULT FALSE
+);
+
+-- Selection du relais : messages non abandonnes dont la date de disponibilite est passee
+CREATE INDEX IF NOT EXISTS idx_outbox_disponible ON message_outbox (disponible_a) WHERE abandonne = FALSE;
@@ -0,0 +1,16 @@
+-- Cles d'idempotence propres au compte emetteur, avec l'empreinte de la requete d'origine.
+-- Sur une base neuve, V1 a deja cree la table sous cette forme : seules la purge et l'index s'appliquent.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'cle_idempotence') THEN
+        -- Les cles existantes ne portent ni emetteur ni empreinte : elles ne peuvent plus etre rejouees
+        -- sans risque de confusion entre clients, et expirent de toute facon sous 24 h.
+        DELETE FROM cle_idempotence;
+
+        ALTER TABLE cle_idempotence ADD COLUMN IF NOT EXISTS compte_emetteur UUID NOT NULL;
+        ALTER TABLE cle_idempotence ADD COLUMN IF NOT EXISTS empreinte VARCHAR(64) NOT NULL;
+
+        DROP INDEX IF EXISTS uk_cle_idempotence_cle;
+        CREATE UNIQUE INDEX IF NOT EXISTS uk_cle_idempotence_emetteur_cle ON cle_idempotence (compte_emetteur, cle);
+    END IF;
+END $$;
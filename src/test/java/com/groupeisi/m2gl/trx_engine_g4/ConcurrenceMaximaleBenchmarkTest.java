@@ -0,0 +1,165 @@
+package com.groupeisi.m2gl.trx_engine_g4;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Benchmark de concurrence maximale soutenable : thread par requete (pool Tomcat) contre threads virtuels.
+ *
+ * L'application est demarree deux fois (profil h2), avec puis sans spring.threads.virtual.enabled.
+ * Un endpoint de test bloque ATTENTE_MS par requete, comme un appel JDBC ou Keycloak. Des clients concurrents
+ * de plus en plus nombreux l'appellent en boucle ; un palier est soutenu si aucune requete n'echoue et si
+ * le p99 reste sous SEUIL_P99_MS. Le dernier palier soutenu de chaque mode est affiche et compare.
+ * Lancement : mvn -Pbenchmark,java21 test
+ */
+@Tag("benchmark")
+class ConcurrenceMaximaleBenchmarkTest {
+
+    private static final long ATTENTE_MS = 50;
+    private static final long SEUIL_P99_MS = 4 * ATTENTE_MS;
+    private static final int[] PALIERS = {50, 100, 200, 400, 800, 1600, 3200};
+    private static final Duration DUREE_PALIER = Duration.ofSeconds(5);
+
+    /**
+     * Appel distant simule : le thread de la requete bloque pendant ATTENTE_MS.
+     */
+    @RestController
+    static class AttenteController {
+        @GetMapping("/public/benchmark/attente")
+        String attendre() throws InterruptedException {
+            Thread.sleep(ATTENTE_MS);
+            return "ok";
+        }
+    }
+
+    @Test
+    void threadsVirtuelsSoutiennentPlusDeConcurrence() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Les threads virtuels necessitent Java 21 (profil java21)");
+
+        Map<Integer, long[]> plateforme = mesurer(false);
+        Map<Integer, long[]> virtuels = mesurer(true);
+
+        System.out.println("\n=== Concurrence maximale soutenable (attente " + ATTENTE_MS + " ms, p99 < " + SEUIL_P99_MS + " ms) ===");
+        System.out.printf("%8s | %14s %10s | %14s %10s%n", "clients", "plateforme r/s", "p99 ms", "virtuels r/s", "p99 ms");
+        for (int clients : PALIERS) {
+            long[] p = plateforme.get(clients);
+            long[] v = virtuels.get(clients);
+            System.out.printf("%8d | %14s %10s | %14s %10s%n", clients,
+                    p != null ? p[0] : "-", p != null ? p[1] : "-", v != null ? v[0] : "-", v != null ? v[1] : "-");
+        }
+        int maxPlateforme = dernierPalierSoutenu(plateforme);
+        int maxVirtuels = dernierPalierSoutenu(virtuels);
+        System.out.println("Palier soutenu max : plateforme = " + maxPlateforme + ", virtuels = " + maxVirtuels);
+
+        assertTrue(maxVirtuels >= maxPlateforme, "Les threads virtuels doivent soutenir au moins autant de clients");
+    }
+
+    /**
+     * Demarre l'application dans le mode demande et monte les paliers jusqu'au premier non soutenu.
+     * Resultat par palier : {requetes par seconde, p99 en ms, erreurs}.
+     */
+    private Map<Integer, long[]> mesurer(boolean threadsVirtuels) throws Exception {
+        Map<Integer, long[]> resultats = new LinkedHashMap<>();
+        try (ConfigurableApplicationContext contexte = new SpringApplicationBuilder(TrxEngineG4Application.class, AttenteController.class)
+                .profiles("h2")
+                // Arguments de ligne de commande : ils l'emportent sur application.properties
+                // (les proprietes par defaut du builder passeraient apres)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.threads.virtual.enabled=" + threadsVirtuels,
+                        "--server.tomcat.max-connections=20000",
+                        "--server.tomcat.accept-count=10000",
+                        "--outbox.relay.enabled=false",
+                        "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) contexte).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/public/benchmark/attente");
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            // Echauffement (JIT, pool de connexions)
+            charger(client, uri, 50, Duration.ofSeconds(2));
+
+            for (int clients : PALIERS) {
+                long[] mesure = charger(client, uri, clients, DUREE_PALIER);
+                resultats.put(clients, mesure);
+                if (!soutenu(mesure)) {
+                    break;
+                }
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * clients boucles asynchrones, chacune enchainant une requete apres l'autre pendant la duree donnee.
+     */
+    private long[] charger(HttpClient client, URI uri, int clients, Duration duree) {
+        HttpRequest requete = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        ConcurrentLinkedQueue<Long> latences = new ConcurrentLinkedQueue<>();
+        AtomicInteger erreurs = new AtomicInteger();
+        long fin = System.nanoTime() + duree.toNanos();
+
+        List<CompletableFuture<Void>> boucles = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            boucles.add(boucle(client, requete, fin, latences, erreurs));
+        }
+        CompletableFuture.allOf(boucles.toArray(new CompletableFuture[0])).join();
+
+        long[] triees = latences.stream().mapToLong(Long::longValue).sorted().toArray();
+        long p99 = triees.length == 0 ? Long.MAX_VALUE : triees[(int) Math.min(triees.length - 1, Math.ceil(triees.length * 0.99) - 1)] / 1_000_000;
+        long debit = triees.length / Math.max(1, duree.toSeconds());
+        return new long[]{debit, p99, erreurs.get()};
+    }
+
+    private CompletableFuture<Void> boucle(HttpClient client, HttpRequest requete, long fin,
+                                          ConcurrentLinkedQueue<Long> latences, AtomicInteger erreurs) {
+        if (System.nanoTime() >= fin) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long debut = System.nanoTime();
+        return client.sendAsync(requete, HttpResponse.BodyHandlers.discarding())
+                .handle((reponse, e) -> {
+                    if (e != null || reponse.statusCode() != 200) {
+                        erreurs.incrementAndGet();
+                    } else {
+                        latences.add(System.nanoTime() - debut);
+                    }
+                    return null;
+                })
+                .thenCompose(ignore -> boucle(client, requete, fin, latences, erreurs));
+    }
+
+    private static boolean soutenu(long[] mesure) {
+        return mesure[2] == 0 && mesure[1] < SEUIL_P99_MS;
+    }
+
+    private static int dernierPalierSoutenu(Map<Integer, long[]> resultats) {
+        return Arrays.stream(PALIERS)
+                .filter(clients -> resultats.containsKey(clients) && soutenu(resultats.get(clients)))
+                .max()
+                .orElse(0);
+    }
+}
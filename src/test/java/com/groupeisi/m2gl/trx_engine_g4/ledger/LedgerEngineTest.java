@@ -0,0 +1,234 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException.Motif;
+import com.groupeisi.m2gl.trx_engine_g4.service.JournalService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Moteur ledger sans base : comptes lus depuis un depot simule, persistance remplacee par un releve des transferts publies.
+ * Le solde en memoire d'un compte est verifie par un transfert de tout son solde (accepte), puis d'une unite (refuse).
+ */
+class LedgerEngineTest {
+
+    private static final long SOLDE_INITIAL = 10_000L;
+
+    private final CompteRepository compteRepository = mock(CompteRepository.class);
+    private final LedgerPersister persister = mock(LedgerPersister.class);
+    private final Map<UUID, Long> publies = new ConcurrentHashMap<>();
+    private DetecteurComptesChauds detecteur;
+    private LedgerEngine engine;
+
+    private LedgerEngine demarrer(boolean stripes) {
+        doAnswer(invocation -> {
+            UUID emetteur = invocation.getArgument(0);
+            UUID recepteur = invocation.getArgument(1);
+            long montant = invocation.getArgument(2);
+            publies.merge(emetteur, -montant, Long::sum);
+            publies.merge(recepteur, montant, Long::sum);
+            return null;
+        }).when(persister).publierTransfert(any(), any(), anyLong(), any());
+        detecteur = new DetecteurComptesChauds(stripes, 10);
+        engine = new LedgerEngine(compteRepository, persister, detecteur,
+                true, 4, 1000, 5000);
+        engine.demarrer();
+        return engine;
+    }
+
+    @AfterEach
+    void arreter() throws InterruptedException {
+        if (engine != null) {
+            engine.arreter();
+        }
+    }
+
+    @Test
+    void unTransfertDebiteEtCrediteLesDeuxComptes() {
+        demarrer(false);
+        UUID emetteur = compte("ENABLE");
+        UUID recepteur = compte("ENABLE");
+
+        assertEquals(201, engine.effectuerTransfert(new TransfertDto(4_000L, emetteur, recepteur)).getStatusCode());
+
+        assertEquals(-4_000L, publies.get(emetteur));
+        assertEquals(4_000L, publies.get(recepteur));
+        verifierSolde(emetteur, SOLDE_INITIAL - 4_000L);
+        verifierSolde(recepteur, SOLDE_INITIAL + 4_000L);
+    }
+
+    @Test
+    void unTransfertRefuseNeModifieRienEtNEstPasPublie() {
+        demarrer(false);
+        UUID emetteur = compte("ENABLE");
+        UUID recepteur = compte("ENABLE");
+        UUID bloque = compte("BLOQUE");
+
+        assertEquals(Motif.SOLDE_INSUFFISANT, refus(new TransfertDto(SOLDE_INITIAL + 1, emetteur, recepteur)));
+        assertEquals(Motif.COMPTE_BLOQUE, refus(new TransfertDto(100L, emetteur, bloque)));
+        assertThrows(EntityNotFoundException.class,
+                () -> engine.effectuerTransfert(new TransfertDto(100L, emetteur, UUID.randomUUID())));
+        assertEquals(Motif.MEME_COMPTE, refus(new TransfertDto(100L, emetteur, emetteur)));
+
+        verify(persister, never()).publierTransfert(any(), any(), anyLong(), any());
+        verifierSolde(emetteur, SOLDE_INITIAL);
+    }
+
+    @Test
+    void unCreditInterShardsEnEchecRendLeDebitALEmetteur() {
+        demarrer(false);
+        UUID emetteur = compte("ENABLE");
+        UUID recepteur;
+        do {
+            recepteur = compte("ENABLE");
+        } while (Math.floorMod(recepteur.hashCode(), 4) == Math.floorMod(emetteur.hashCode(), 4));
+        // Recepteur au plafond : le credit de l'etape 2 deborde apres le debit de l'emetteur
+        when(compteRepository.findSoldeCourant(recepteur)).thenReturn(Optional.of(Long.MAX_VALUE));
+
+        TransfertDto transfert = new TransfertDto(1_000L, emetteur, recepteur);
+        assertThrows(IllegalStateException.class, () -> engine.effectuerTransfert(transfert));
+
+        verify(persister, never()).publierTransfert(any(), any(), anyLong(), any());
+        verifierSolde(emetteur, SOLDE_INITIAL);
+    }
+
+    @Test
+    void unCompteChaudPeutDepenserSesSousSoldes() {
+        demarrer(true);
+        UUID marchand = compte("ENABLE");
+        List<UUID> clients = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            clients.add(compte("ENABLE"));
+        }
+
+        for (UUID client : clients) {
+            engine.effectuerTransfert(new TransfertDto(1_000L, client, marchand));
+        }
+        // Fin de fenetre : au-dela du seuil, les credits suivants du marchand sont gardes en sous-soldes sur les shards des clients
+        detecteur.basculerFenetre();
+        for (UUID client : clients) {
+            engine.effectuerTransfert(new TransfertDto(1_000L, client, marchand));
+        }
+
+        // Le debit de tout le solde passe par le rapatriement des sous-soldes
+        verifierSolde(marchand, SOLDE_INITIAL + 40 * 1_000L);
+        for (UUID client : clients) {
+            verifierSolde(client, SOLDE_INITIAL - 2_000L);
+        }
+    }
+
+    @Test
+    void leCreditDOuvertureSAjouteAuxSousSoldesSansLesCompterDeuxFois() {
+        demarrer(true);
+        UUID marchand = compte("ENABLE");
+        List<UUID> clients = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            clients.add(compte("ENABLE"));
+        }
+        for (UUID client : clients) {
+            engine.effectuerTransfert(new TransfertDto(1_000L, client, marchand));
+        }
+        detecteur.basculerFenetre();
+        for (UUID client : clients) {
+            engine.effectuerTransfert(new TransfertDto(1_000L, client, marchand));
+        }
+
+        // Activation pendant que des credits du marchand sont encore en sous-soldes, puis report
+        engine.activerCompte(marchand, "ENABLE", 500L);
+        engine.reporterSousSoldes();
+
+        assertEquals(-500L, publies.get(JournalService.COMPTE_EMISSION));
+        verifierSolde(marchand, SOLDE_INITIAL + 40 * 1_000L + 500L);
+    }
+
+    @Test
+    void aucuneMiseAJourPerdueSousConcurrence() throws Exception {
+        demarrer(false);
+        List<UUID> comptes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            comptes.add(compte("ENABLE"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<?>> taches = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Random random = new Random(t);
+            taches.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    UUID emetteur = comptes.get(random.nextInt(comptes.size()));
+                    UUID recepteur = comptes.get(random.nextInt(comptes.size()));
+                    if (!emetteur.equals(recepteur)) {
+                        try {
+                            engine.effectuerTransfert(new TransfertDto(1L + random.nextInt(500), emetteur, recepteur));
+                        } catch (TransfertRefuseException soldeInsuffisant) {
+                            // refus attendu, sans effet
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        pool.shutdown();
+
+        // Les soldes en memoire sont exactement ceux du journal publie, et la somme est conservee
+        Map<UUID, Long> attendus = new HashMap<>();
+        for (UUID numCompte : comptes) {
+            attendus.put(numCompte, SOLDE_INITIAL + publies.getOrDefault(numCompte, 0L));
+        }
+        assertEquals(comptes.size() * SOLDE_INITIAL, attendus.values().stream().mapToLong(Long::longValue).sum());
+        attendus.forEach(this::verifierSolde);
+    }
+
+    private Motif refus(TransfertDto transfert) {
+        return assertThrows(TransfertRefuseException.class, () -> engine.effectuerTransfert(transfert)).getMotif();
+    }
+
+    private void verifierSolde(UUID numCompte, long solde) {
+        UUID puits = compte("ENABLE");
+        assertEquals(Motif.SOLDE_INSUFFISANT, refus(new TransfertDto(solde + 1, numCompte, puits)));
+        if (solde > 0) {
+            assertDoesNotThrow(() -> engine.effectuerTransfert(new TransfertDto(solde, numCompte, puits)));
+        }
+    }
+
+    private UUID compte(String statut) {
+        UUID numCompte = UUID.randomUUID();
+        Compte compte = new Compte();
+        compte.setNumCompte(numCompte);
+        compte.setSolde(SOLDE_INITIAL);
+        compte.setTypeCompte("CLIENT");
+        compte.setStatus(statut);
+        when(compteRepository.findByNumCompte(numCompte)).thenReturn(Optional.of(compte));
+        when(compteRepository.findSoldeCourant(numCompte)).thenReturn(Optional.of(SOLDE_INITIAL));
+        return numCompte;
+    }
+}
@@ -0,0 +1,148 @@
+package com.groupeisi.m2gl.trx_engine_g4.ledger;
+
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.MessageOutboxRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import com.groupeisi.m2gl.trx_engine_g4.entities.MessageOutbox;
+import com.groupeisi.m2gl.trx_engine_g4.service.JournalService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Persister ledger sans base : les depots sont simules et celui du journal peut refuser les lots.
+ */
+class LedgerPersisterTest {
+
+    private final EcritureJournalRepository repository = mock(EcritureJournalRepository.class);
+    private final MessageOutboxRepository outboxRepository = mock(MessageOutboxRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<EcritureJournal> journal = new CopyOnWriteArrayList<>();
+    private final List<MessageOutbox> outbox = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean baseDisponible = new AtomicBoolean(true);
+    private final AtomicInteger tentatives = new AtomicInteger();
+    private LedgerPersister persister;
+
+    private LedgerPersister demarrer(int capacite, int tailleLot) {
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            tentatives.incrementAndGet();
+            List<EcritureJournal> ecritures = invocation.getArgument(0);
+            // Une entite deja passee par une transaction annulee porterait son id : elle ne doit pas etre renvoyee
+            ecritures.forEach(e -> assertNull(e.getId()));
+            ecritures.forEach(e -> e.setId((long) tentatives.get()));
+            if (!baseDisponible.get()) {
+                throw new DataAccessResourceFailureException("Base indisponible");
+            }
+            journal.addAll(ecritures);
+            return ecritures;
+        });
+        when(outboxRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<MessageOutbox> avis = invocation.getArgument(0);
+            outbox.addAll(avis);
+            return avis;
+        });
+        persister = new LedgerPersister(repository, outboxRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                meterRegistry, capacite, tailleLot);
+        persister.demarrer();
+        return persister;
+    }
+
+    @AfterEach
+    void arreter() throws InterruptedException {
+        baseDisponible.set(true);
+        if (persister != null) {
+            persister.arreter();
+        }
+    }
+
+    @Test
+    void unLotRefuseEstReessayeJusquAuSucces() throws Exception {
+        baseDisponible.set(false);
+        demarrer(100, 10);
+
+        for (int i = 0; i < 5; i++) {
+            persister.publierTransfert(UUID.randomUUID(), UUID.randomUUID(), 100, LocalDateTime.now());
+        }
+        attendre(() -> tentatives.get() >= 3);
+        assertTrue(journal.isEmpty());
+        assertEquals(5, persister.enAttente());
+
+        baseDisponible.set(true);
+        // Le lot n'est plus en attente qu'une fois sa transaction terminee (journal et outbox)
+        attendre(() -> persister.enAttente() == 0);
+        assertEquals(10, journal.size());
+        assertTrue(meterRegistry.counter("ledger.persistance.echecs").count() >= 3);
+        // Chaque transfert en partie double : un debit et un credit de meme reference
+        assertEquals(0, journal.stream().mapToLong(EcritureJournal::getMontant).sum());
+        // Un avis de credit par transfert, ecrit avec le lot qui a fini par passer
+        assertEquals(5, outbox.size());
+    }
+
+    @Test
+    void uneFilePleineBloqueLaPublicationAuLieuDePerdreDesTransferts() throws Exception {
+        baseDisponible.set(false);
+        demarrer(2, 1);
+
+        // Un transfert en cours de persistance, deux dans la file : la publication suivante attend
+        for (int i = 0; i < 3; i++) {
+            persister.publierTransfert(UUID.randomUUID(), UUID.randomUUID(), 100, LocalDateTime.now());
+        }
+        attendre(() -> persister.enAttente() == 3 && tentatives.get() >= 1);
+        CompletableFuture<Void> publication = CompletableFuture.runAsync(
+                () -> persister.publierTransfert(UUID.randomUUID(), UUID.randomUUID(), 100, LocalDateTime.now()));
+        assertThrows(TimeoutException.class, () -> publication.get(300, TimeUnit.MILLISECONDS));
+        assertFalse(publication.isDone());
+
+        baseDisponible.set(true);
+        publication.get(10, TimeUnit.SECONDS);
+        attendre(() -> journal.size() == 8);
+    }
+
+    @Test
+    void lArretJournaliseLesTransfertsEncoreEnFile() throws Exception {
+        demarrer(100, 10);
+        for (int i = 0; i < 25; i++) {
+            persister.publierTransfert(UUID.randomUUID(), UUID.randomUUID(), 100, LocalDateTime.now());
+        }
+        persister.publierTransfert(JournalService.COMPTE_EMISSION, UUID.randomUUID(), 500, LocalDateTime.now());
+        persister.arreter();
+
+        assertEquals(52, journal.size());
+        assertEquals(0, persister.enAttente());
+        // Le credit d'ouverture n'a pas d'avis
+        assertEquals(25, outbox.size());
+    }
+
+    private static void attendre(BooleanSupplier condition) throws InterruptedException {
+        long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > fin) {
+                throw new AssertionError("Condition non atteinte en 10 s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
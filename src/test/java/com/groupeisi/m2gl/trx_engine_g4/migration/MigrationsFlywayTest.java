@@ -0,0 +1,77 @@
+package com.groupeisi.m2gl.trx_engine_g4.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrations Flyway sur une base PostgreSQL neuve, avec la configuration de production (ddl-auto=validate) :
+ * le contexte ne demarre que si le schema cree par les migrations correspond aux entites.
+ * Lance par mvn -Ppostgres test (Docker requis).
+ */
+@Tag("postgres")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.server.port=0", "outbox.relay.enabled=false"})
+class MigrationsFlywayTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void base(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void leSchemaDeBaseEstCreeEnPremierEtToutesLesMigrationsPassent() {
+        List<MigrationInfo> appliquees = Arrays.asList(flyway.info().applied());
+
+        assertEquals("1", appliquees.get(0).getVersion().getVersion());
+        assertEquals("schema initial", appliquees.get(0).getDescription());
+        assertEquals(flyway.info().all().length, appliquees.size());
+        assertTrue(appliquees.stream().allMatch(m -> m.getState().isApplied() && !m.getState().isFailed()));
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void lesTablesDesEntitesEtDuJournalSontEnPlace() {
+        List<String> tables = jdbcTemplate.queryForList(
+                "SELECT table_name FROM information_schema.tables WHERE table_schema = 'public'", String.class);
+
+        assertTrue(tables.containsAll(List.of("compte", "app_user", "details_transaction", "transfert",
+                "cle_idempotence", "import_job", "import_ligne", "ecriture_journal", "message_outbox")));
+        // Queue du journal : index partiel sur les seules lignes non compactees
+        String queue = jdbcTemplate.queryForObject(
+                "SELECT indexdef FROM pg_indexes WHERE indexname = 'idx_ecriture_non_compactee'", String.class);
+        assertTrue(queue.endsWith("WHERE (compactee = false)"), queue);
+    }
+}
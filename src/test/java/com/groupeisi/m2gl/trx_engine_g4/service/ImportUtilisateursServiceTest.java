@@ -0,0 +1,140 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.Repository.ImportJobRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.UserRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.ImportJob;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import en masse sur base H2, Keycloak simule : un utilisateur deja present dans Keycloak (ignore par partialImport)
+ * n'est rattache a un nouvel utilisateur local que s'il a ete cree par le meme job.
+ */
+@ActiveProfiles("h2")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.server.port=0", "outbox.relay.enabled=false"})
+class ImportUtilisateursServiceTest {
+
+    private static final String EN_TETE = "prenom,nom,nomUtilisateur,telephone\n";
+
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+
+    @MockitoBean
+    private KeycloakService keycloakService;
+
+    @Autowired
+    private ImportUtilisateursService importUtilisateursService;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void roles() {
+        when(keycloakService.roleExists(anyString())).thenReturn(true);
+    }
+
+    @Test
+    void unUtilisateurKeycloakExistantNestPasRattache() throws Exception {
+        when(keycloakService.importerUtilisateurs(anyList())).thenReturn(Map.of(
+                "import.awa", new KeycloakService.UtilisateurImporte("kc-awa", true),
+                "import.admin", new KeycloakService.UtilisateurImporte("kc-admin-existant", false)));
+
+        ApiResponse reponse = importer(EN_TETE
+                + "Awa,Ndiaye,import.awa,+221770000101\n"
+                + "Moussa,Fall,import.admin,+221770000102\n", null);
+
+        assertEquals(201, reponse.getStatusCode());
+        Map<?, ?> bilan = (Map<?, ?>) reponse.getData();
+        assertEquals(1L, bilan.get("importes"));
+        assertEquals(1L, bilan.get("rejetes"));
+        assertEquals("kc-awa", userRepository.findByTelephone("+221770000101").orElseThrow().getKeycloakId());
+        assertTrue(userRepository.findByTelephone("+221770000102").isEmpty());
+        assertTrue(userRepository.findByKeycloakId("kc-admin-existant").isEmpty());
+
+        String rapport = rapport((Long) bilan.get("importId"));
+        assertTrue(rapport.contains("import.admin,REJETE,Nom d'utilisateur déjà pris dans Keycloak.,"));
+        assertFalse(rapport.contains(ImportUtilisateursService.STATUT_CREE_KEYCLOAK));
+    }
+
+    @Test
+    void laRepriseRattacheSeulementLesUtilisateursCreesParLeJob() throws Exception {
+        // Job interrompu : le lot a cree import.fatou dans Keycloak, mais sa transaction locale n'a pas ete validee
+        ImportJob job = importJobRepository.save(new ImportJob(null, LecteurImport.FORMAT_CSV, "INTERROMPU",
+                LocalDateTime.now(), null, 0, 0, 0, 0));
+        jdbcTemplate.update("INSERT INTO import_ligne (job_id, numero_ligne, telephone, nom_utilisateur, statut, keycloak_id) " +
+                        "VALUES (?, 2, '+221770000201', 'import.fatou', ?, 'kc-fatou')",
+                job.getId(), ImportUtilisateursService.STATUT_CREE_KEYCLOAK);
+
+        // A la reprise, Keycloak ignore les deux utilisateurs, deja presents
+        when(keycloakService.importerUtilisateurs(anyList())).thenReturn(Map.of(
+                "import.fatou", new KeycloakService.UtilisateurImporte("kc-fatou", false),
+                "import.cheikh", new KeycloakService.UtilisateurImporte("kc-cheikh-existant", false)));
+
+        ApiResponse reponse = importer(EN_TETE
+                + "Fatou,Sow,import.fatou,+221770000201\n"
+                + "Cheikh,Ba,import.cheikh,+221770000202\n", job.getId());
+
+        assertEquals(201, reponse.getStatusCode());
+        Map<?, ?> bilan = (Map<?, ?>) reponse.getData();
+        assertEquals(1L, bilan.get("importes"));
+        assertEquals(1L, bilan.get("rejetes"));
+        assertEquals("kc-fatou", userRepository.findByTelephone("+221770000201").orElseThrow().getKeycloakId());
+        assertTrue(userRepository.findByKeycloakId("kc-cheikh-existant").isEmpty());
+    }
+
+    @Test
+    void uneLigneInvalideEstRejeteeSansAppelerKeycloakPourElle() throws Exception {
+        when(keycloakService.importerUtilisateurs(any())).thenReturn(Map.of(
+                "import.ousmane", new KeycloakService.UtilisateurImporte("kc-ousmane", true)));
+
+        ApiResponse reponse = importer(EN_TETE
+                + "Ousmane,Diallo,import.ousmane,+221770000301\n"
+                + "Khady,Gueye,import khady,+221770000302\n", null);
+
+        Map<?, ?> bilan = (Map<?, ?>) reponse.getData();
+        assertEquals(1L, bilan.get("importes"));
+        assertEquals(1L, bilan.get("rejetes"));
+        assertEquals("kc-ousmane", userRepository.findByTelephone("+221770000301").orElseThrow().getKeycloakId());
+        // Compte cree desactive, en attente de l'OTP
+        assertEquals("DISABLE", userRepository.findByTelephone("+221770000301").orElseThrow().getCompte().getStatus());
+    }
+
+    private ApiResponse importer(String csv, Long reprise) {
+        return importUtilisateursService.importer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                LecteurImport.FORMAT_CSV, reprise);
+    }
+
+    private String rapport(Long jobId) throws Exception {
+        StringWriter writer = new StringWriter();
+        importUtilisateursService.ecrireRapport(jobId, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.LigneTransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertBatchDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import com.groupeisi.m2gl.trx_engine_g4.outbox.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Paiements groupes de bout en bout sur base H2 : validation ligne par ligne contre le solde restant,
+ * ecritures du journal, avis de credit dans l'outbox et verrouillage de l'emetteur entre deux lots concurrents.
+ */
+@ActiveProfiles("h2")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.server.port=0", "outbox.relay.enabled=false"})
+class TransfertBatchServiceTest {
+
+    private static final long SOLDE_INITIAL = 10_000L;
+
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private TransfertBatchService transfertBatchService;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void chaqueLigneEstValideeContreLeSoldeRestant() {
+        UUID emetteur = creerCompte("ENABLE");
+        UUID agent = creerCompte("ENABLE");
+        UUID marchand = creerCompte("ENABLE");
+        UUID bloque = creerCompte("BLOQUE");
+        UUID inconnu = UUID.randomUUID();
+
+        ApiResponse reponse = transfertBatchService.effectuerTransfertsBatch(new TransfertBatchDto(emetteur, List.of(
+                new LigneTransfertDto(agent, 3_000L),
+                new LigneTransfertDto(bloque, 1_000L),
+                new LigneTransfertDto(marchand, 8_000L),
+                new LigneTransfertDto(emetteur, 1_000L),
+                new LigneTransfertDto(inconnu, 1_000L),
+                new LigneTransfertDto(marchand, 7_000L))));
+
+        assertEquals(201, reponse.getStatusCode());
+        Map<?, ?> bilan = (Map<?, ?>) reponse.getData();
+        assertEquals(2, bilan.get("effectues"));
+        assertEquals(4, bilan.get("rejetes"));
+        List<?> resultats = (List<?>) bilan.get("resultats");
+        assertEquals(List.of("EFFECTUE", "REJETE", "REJETE", "REJETE", "REJETE", "EFFECTUE"),
+                resultats.stream().map(r -> ((Map<?, ?>) r).get("statut")).toList());
+        assertEquals("Solde insuffisant pour cette ligne. Solde restant: 7000", ((Map<?, ?>) resultats.get(2)).get("motif"));
+
+        // Journal : un debit et un credit par ligne effectuee, la ligne refusee pour solde n'a rien ecrit
+        assertEquals(0L, compteRepository.findSoldeCourant(emetteur).orElseThrow());
+        assertEquals(SOLDE_INITIAL + 3_000L, compteRepository.findSoldeCourant(agent).orElseThrow());
+        assertEquals(SOLDE_INITIAL + 7_000L, compteRepository.findSoldeCourant(marchand).orElseThrow());
+        assertEquals(SOLDE_INITIAL, compteRepository.findSoldeCourant(bloque).orElseThrow());
+        assertEquals(2, ecritures(emetteur));
+
+        // Un avis de credit par recepteur paye, dans la meme transaction
+        assertEquals(1, avisCredit(agent));
+        assertEquals(1, avisCredit(marchand));
+        assertEquals(0, avisCredit(bloque));
+    }
+
+    @Test
+    void deuxLotsConcurrentsNeDepensentPasDeuxFoisLeMemeSolde() {
+        UUID emetteur = creerCompte("ENABLE");
+        UUID premier = creerCompte("ENABLE");
+        UUID second = creerCompte("ENABLE");
+
+        CountDownLatch depart = new CountDownLatch(1);
+        CompletableFuture<ApiResponse> lotA = lancer(depart, new TransfertBatchDto(emetteur, List.of(
+                new LigneTransfertDto(premier, 3_000L), new LigneTransfertDto(premier, 3_000L))));
+        CompletableFuture<ApiResponse> lotB = lancer(depart, new TransfertBatchDto(emetteur, List.of(
+                new LigneTransfertDto(second, 3_000L), new LigneTransfertDto(second, 3_000L))));
+        depart.countDown();
+
+        int effectues = (Integer) ((Map<?, ?>) lotA.join().getData()).get("effectues")
+                + (Integer) ((Map<?, ?>) lotB.join().getData()).get("effectues");
+
+        // 10 000 disponibles : trois lignes de 3 000 passent, pas quatre
+        assertEquals(3, effectues);
+        long solde = compteRepository.findSoldeCourant(emetteur).orElseThrow();
+        assertEquals(SOLDE_INITIAL - 9_000L, solde);
+        assertTrue(solde >= 0);
+        assertEquals(3, ecritures(emetteur));
+    }
+
+    @Test
+    void unEmetteurBloqueNePeutPasPayer() {
+        UUID emetteur = creerCompte("BLOQUE");
+        UUID recepteur = creerCompte("ENABLE");
+
+        double refusAvant = echecs("compte_bloque");
+
+        TransfertRefuseException refus = assertThrows(TransfertRefuseException.class, () -> transfertBatchService.effectuerTransfertsBatch(
+                new TransfertBatchDto(emetteur, List.of(new LigneTransfertDto(recepteur, 1_000L)))));
+
+        assertEquals(TransfertRefuseException.Motif.COMPTE_BLOQUE, refus.getMotif());
+        assertEquals(refusAvant + 1, echecs("compte_bloque"));
+        assertEquals(SOLDE_INITIAL, compteRepository.findSoldeCourant(recepteur).orElseThrow());
+        assertEquals(0, avisCredit(recepteur));
+    }
+
+    private CompletableFuture<ApiResponse> lancer(CountDownLatch depart, TransfertBatchDto lot) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                depart.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return transfertBatchService.effectuerTransfertsBatch(lot);
+        });
+    }
+
+    private double echecs(String motif) {
+        Counter compteur = meterRegistry.find("transfert.echecs").tag("motif", motif).counter();
+        return compteur == null ? 0 : compteur.count();
+    }
+
+    private int ecritures(UUID numCompte) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ecriture_journal WHERE num_compte = ?",
+                Integer.class, numCompte);
+    }
+
+    private int avisCredit(UUID numCompte) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_outbox WHERE type = ? AND destinataire = ?",
+                Integer.class, OutboxService.TYPE_CREDIT_TRANSFERT, numCompte.toString());
+    }
+
+    private UUID creerCompte(String statut) {
+        Compte compte = new Compte();
+        compte.setNumCompte(UUID.randomUUID());
+        compte.setSolde(SOLDE_INITIAL);
+        compte.setTypeCompte("CLIENT");
+        compte.setStatus(statut);
+        compteRepository.save(compte);
+        return compte.getNumCompte();
+    }
+}
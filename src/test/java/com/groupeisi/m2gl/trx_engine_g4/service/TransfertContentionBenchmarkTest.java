@@ -0,0 +1,179 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.EcritureJournalRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.entities.EcritureJournal;
+import com.groupeisi.m2gl.trx_engine_g4.exception.TransfertRefuseException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de contention : 64 threads font des transferts croises sur un petit nombre de comptes.
+ * Le compacteur du journal tourne en continu pendant la charge, par petits lots.
+ * Verifie qu'aucune mise a jour n'est perdue et qu'aucun interblocage ne se produit.
+ * Lancement : mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@ActiveProfiles("h2")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.server.port=0", "outbox.relay.enabled=false", "journal.compaction.taille-lot=50"})
+class TransfertContentionBenchmarkTest {
+
+    private static final int THREADS = 64;
+    private static final int COMPTES = 8;
+    private static final int TRANSFERTS_PAR_THREAD = 250;
+    private static final long SOLDE_INITIAL = 5_000L;
+
+    // Pas de Keycloak pendant le benchmark : aucune cle JWKS a charger
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private TransfertService transfertService;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private EcritureJournalRepository ecritureJournalRepository;
+
+    @Autowired
+    private CompacteurJournal compacteurJournal;
+
+    @Test
+    void aucuneMiseAJourPerdueSousContention() throws Exception {
+        List<UUID> comptes = creerComptes();
+
+        AtomicInteger reussis = new AtomicInteger();
+        AtomicInteger soldesInsuffisants = new AtomicInteger();
+        AtomicInteger erreurs = new AtomicInteger();
+        CountDownLatch depart = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> taches = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            taches.add(pool.submit(() -> {
+                depart.await();
+                for (int i = 0; i < TRANSFERTS_PAR_THREAD; i++) {
+                    UUID emetteur = comptes.get(random.nextInt(COMPTES));
+                    UUID recepteur = comptes.get(random.nextInt(COMPTES));
+                    if (emetteur.equals(recepteur)) {
+                        continue;
+                    }
+                    try {
+                        transfertService.effectuerTransfert(
+                                new TransfertDto((long) (1 + random.nextInt(100)), emetteur, recepteur));
+                        reussis.incrementAndGet();
+                    } catch (TransfertRefuseException e) {
+                        assertEquals(TransfertRefuseException.Motif.SOLDE_INSUFFISANT, e.getMotif());
+                        soldesInsuffisants.incrementAndGet();
+                    } catch (Exception e) {
+                        erreurs.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Compaction concurrente : des ecritures sont validees pendant qu'un lot est integre aux soldes
+        AtomicInteger lotsCompactes = new AtomicInteger();
+        Thread compacteur = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (compacteurJournal.compacterLot() > 0) {
+                    lotsCompactes.incrementAndGet();
+                }
+            }
+        });
+
+        long debut = System.nanoTime();
+        depart.countDown();
+        compacteur.start();
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        compacteur.interrupt();
+        compacteur.join();
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.printf("Contention %d threads / %d comptes : %d transferts reussis, %d refuses (solde), %d erreurs, %.0f tx/s, %d lots compactes%n",
+                THREADS, COMPTES, reussis.get(), soldesInsuffisants.get(), erreurs.get(), reussis.get() / secondes, lotsCompactes.get());
+
+        // Aucun interblocage ni erreur technique
+        assertEquals(0, erreurs.get());
+
+        // Chaque solde doit correspondre exactement (montants entiers) au journal : aucune ecriture perdue,
+        // un debit et un credit par transfert, et aucun solde negatif
+        Map<UUID, Long> attendus = new HashMap<>();
+        comptes.forEach(c -> attendus.put(c, SOLDE_INITIAL));
+        int debits = 0;
+        long sommeJournal = 0;
+        for (EcritureJournal ecriture : ecritureJournalRepository.findAll()) {
+            if (attendus.containsKey(ecriture.getNumCompte())) {
+                attendus.merge(ecriture.getNumCompte(), ecriture.getMontant(), Long::sum);
+                sommeJournal += ecriture.getMontant();
+                if (ecriture.getMontant() < 0) {
+                    debits++;
+                }
+            }
+        }
+        assertEquals(reussis.get(), debits);
+        assertEquals(0, sommeJournal);
+
+        long total = 0;
+        for (UUID numCompte : comptes) {
+            long solde = compteRepository.findSoldeCourant(numCompte).orElseThrow();
+            assertEquals(attendus.get(numCompte).longValue(), solde);
+            assertTrue(solde >= 0);
+            total += solde;
+        }
+        assertEquals(COMPTES * SOLDE_INITIAL, total);
+
+        // Compaction complete : tout le journal est dans les snapshots, les soldes ne bougent pas
+        compacteurJournal.compacter();
+        for (UUID numCompte : comptes) {
+            Compte compte = compteRepository.findByNumCompte(numCompte).orElseThrow();
+            assertEquals(attendus.get(numCompte).longValue(), compte.getSolde());
+            assertEquals(compte.getSolde(), compteRepository.findSoldeCourant(numCompte).orElseThrow().longValue());
+        }
+    }
+
+    private List<UUID> creerComptes() {
+        List<UUID> comptes = new ArrayList<>();
+        for (int i = 0; i < COMPTES; i++) {
+            Compte compte = new Compte();
+            compte.setNumCompte(UUID.randomUUID());
+            compte.setSolde(SOLDE_INITIAL);
+            compte.setTypeCompte("CLIENT");
+            compte.setStatus("ENABLE");
+            compteRepository.save(compte);
+            comptes.add(compte.getNumCompte());
+        }
+        return comptes;
+    }
+}
@@ -0,0 +1,114 @@
+package com.groupeisi.m2gl.trx_engine_g4.service;
+
+import com.groupeisi.m2gl.trx_engine_g4.DTOs.TransfertDto;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CleIdempotenceRepository;
+import com.groupeisi.m2gl.trx_engine_g4.Repository.CompteRepository;
+import com.groupeisi.m2gl.trx_engine_g4.entities.CleIdempotence;
+import com.groupeisi.m2gl.trx_engine_g4.entities.Compte;
+import com.groupeisi.m2gl.trx_engine_g4.exception.ApiResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Cles Idempotency-Key sur base H2 : une cle est propre au compte emetteur, ne peut pas etre
+ * reutilisee pour une requete differente, et une reservation abandonnee est reprise apres son delai.
+ */
+@ActiveProfiles("h2")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"management.server.port=0", "outbox.relay.enabled=false"})
+class TransfertIdempotenceTest {
+
+    private static final long SOLDE_INITIAL = 10_000L;
+
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private TransfertService transfertService;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private CleIdempotenceRepository cleIdempotenceRepository;
+
+    @Test
+    void uneRequeteRejoueeNeDebitePasUneSecondeFois() {
+        UUID emetteur = creerCompte();
+        UUID recepteur = creerCompte();
+        TransfertDto transfert = new TransfertDto(1_000L, emetteur, recepteur);
+
+        assertEquals(201, transfertService.effectuerTransfert(transfert, "cle-rejeu").getStatusCode());
+        assertEquals(201, transfertService.effectuerTransfert(transfert, "cle-rejeu").getStatusCode());
+
+        assertEquals(SOLDE_INITIAL - 1_000L, compteRepository.findSoldeCourant(emetteur).orElseThrow());
+    }
+
+    @Test
+    void laMemeCleChezDeuxEmetteursDonneDeuxTransferts() {
+        UUID premier = creerCompte();
+        UUID second = creerCompte();
+        UUID recepteur = creerCompte();
+
+        assertEquals(201, transfertService.effectuerTransfert(new TransfertDto(1_000L, premier, recepteur), "cle-partagee").getStatusCode());
+        assertEquals(201, transfertService.effectuerTransfert(new TransfertDto(1_000L, second, recepteur), "cle-partagee").getStatusCode());
+
+        assertEquals(SOLDE_INITIAL - 1_000L, compteRepository.findSoldeCourant(premier).orElseThrow());
+        assertEquals(SOLDE_INITIAL - 1_000L, compteRepository.findSoldeCourant(second).orElseThrow());
+        assertEquals(SOLDE_INITIAL + 2_000L, compteRepository.findSoldeCourant(recepteur).orElseThrow());
+    }
+
+    @Test
+    void uneCleReutiliseePourUneAutreRequeteEstRefusee() {
+        UUID emetteur = creerCompte();
+        UUID recepteur = creerCompte();
+
+        transfertService.effectuerTransfert(new TransfertDto(1_000L, emetteur, recepteur), "cle-modifiee");
+        ApiResponse reponse = transfertService.effectuerTransfert(new TransfertDto(9_000L, emetteur, recepteur), "cle-modifiee");
+
+        assertEquals(422, reponse.getStatusCode());
+        assertFalse(reponse.isSuccess());
+        assertEquals(SOLDE_INITIAL - 1_000L, compteRepository.findSoldeCourant(emetteur).orElseThrow());
+    }
+
+    @Test
+    void uneReservationAbandonneeEstRepriseApresSonDelai() {
+        UUID emetteur = creerCompte();
+        UUID recepteur = creerCompte();
+        TransfertDto transfert = new TransfertDto(1_000L, emetteur, recepteur);
+        // Reservations laissees en cours (crash entre reserver et completer), l'une recente, l'autre ancienne
+        reservationEnCours(emetteur, "cle-recente", transfert, LocalDateTime.now());
+        reservationEnCours(emetteur, "cle-abandonnee", transfert, LocalDateTime.now().minusHours(1));
+
+        assertEquals(409, transfertService.effectuerTransfert(transfert, "cle-recente").getStatusCode());
+        assertEquals(201, transfertService.effectuerTransfert(transfert, "cle-abandonnee").getStatusCode());
+        assertEquals(201, transfertService.effectuerTransfert(transfert, "cle-abandonnee").getStatusCode());
+
+        assertEquals(SOLDE_INITIAL - 1_000L, compteRepository.findSoldeCourant(emetteur).orElseThrow());
+    }
+
+    private void reservationEnCours(UUID emetteur, String cle, TransfertDto transfert, LocalDateTime dateCreation) {
+        String empreinte = IdempotenceService.empreinte(transfert.getMontant(), emetteur, transfert.getCompteRecepteur());
+        cleIdempotenceRepository.save(new CleIdempotence(null, emetteur, cle, empreinte, null, 0, dateCreation));
+    }
+
+    private UUID creerCompte() {
+        Compte compte = new Compte();
+        compte.setNumCompte(UUID.randomUUID());
+        compte.setSolde(SOLDE_INITIAL);
+        compte.setTypeCompte("CLIENT");
+        compte.setStatus("ENABLE");
+        compteRepository.save(compte);
+        return compte.getNumCompte();
+    }
+}